@@ -0,0 +1,79 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный бенчмарк асинхронной таблицы: много вызывающих потоков, у каждого по одному запросу в полёте.
+ * Режим SampleTime даёт распределение времени ответа, в том числе p0.99, а Throughput - запросы в секунду.
+ * Исполнитель - пул платформенных потоков по числу ядер или исполнитель по умолчанию
+ * (виртуальные потоки на JDK 21+); доля повторяющихся цветов показывает выигрыш от объединения запросов.
+ * Время ответа и пропускная способность замеряются только здесь, модульные тесты проверяют лишь правильность ответов
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class AsyncLookupBenchmark {
+    @Param({"platform", "default"})
+    public String executor;
+
+    @Param({"random", "clustered"})
+    public String distribution;
+
+    private ExecutorService pool;
+    private AsyncTableOfColor async;
+    private TableOfColor table;
+    private int[] codes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = new TableOfColor(BenchmarkData.randomPalette(10_000), new TableSettings());
+        Executor chosen;
+        if ("platform".equals(executor)) {
+            pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            chosen = pool;
+        } else {
+            chosen = AsyncTableOfColor.defaultExecutor();
+        }
+        async = new AsyncTableOfColor(table, chosen, 1024);
+        codes = BenchmarkData.inputs(table, distribution);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public int findNamedColorIndexAsync(LookupBenchmark.Cursor cursor) {
+        return async.findNamedColorIndex(codes[cursor.next()]).join();
+    }
+
+    @Benchmark
+    public int findNamedColorIndexSync(LookupBenchmark.Cursor cursor) {
+        return table.findNamedColorIndex(codes[cursor.next()]);
+    }
+}
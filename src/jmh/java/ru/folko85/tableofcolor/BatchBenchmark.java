@@ -0,0 +1,69 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк пакетной обработки картинки в сравнении с поиском по одному пикселю
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+    /** Средняя длина серии одинаковых пикселей: 1 - шум, 16 - обычная картинка с заливками */
+    @Param({"1", "16"})
+    public int runLength;
+
+    private TableOfColor table;
+    private int[] pixels;
+    private int[] indexes;
+
+    @Setup
+    public void setUp() {
+        table = new TableOfColor(new Locale("ru"));
+        Random random = new Random(1920);
+        pixels = new int[1920 * 1080];
+        for (int i = 0; i < pixels.length; ) {
+            int argb = 0xFF000000 | random.nextInt(1 << 24);
+            for (int run = random.nextInt(2 * runLength); run >= 0 && i < pixels.length; run--) {
+                pixels[i++] = argb;
+            }
+        }
+        indexes = new int[pixels.length];
+    }
+
+    @Benchmark
+    public int[] pixelByPixel() {
+        for (int i = 0; i < pixels.length; i++) {
+            indexes[i] = table.findNamedColorIndex(pixels[i] & 0xFFFFFF);
+        }
+        return indexes;
+    }
+
+    @Benchmark
+    public int[] batch() {
+        table.findNamedColorIndexes(pixels, indexes);
+        return indexes;
+    }
+
+    @Benchmark
+    public long[] histogram() {
+        return table.countNamedColors(pixels);
+    }
+}
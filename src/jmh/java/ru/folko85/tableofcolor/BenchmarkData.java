@@ -0,0 +1,95 @@
+package ru.folko85.tableofcolor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Вспомогательный класс бенчмарков - синтетические палитры и наборы входных цветов.
+ * Все данные генерируются с фиксированным зерном, чтобы прогоны были сравнимы между собой
+ */
+final class BenchmarkData {
+    /** Размер набора входных цветов; степень двойки, чтобы брать индекс маской */
+    static final int INPUT_SIZE = 1 << 16;
+    static final int INPUT_MASK = INPUT_SIZE - 1;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Метод создания палитры из случайных цветов
+     * @param size - количество цветов
+     * @return - возвращает список точек-цветов с именами color0, color1, ...
+     */
+    static List<ColorPoint> randomPalette(int size) {
+        Random random = new Random(85);
+        List<ColorPoint> palette = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            palette.add(new ColorPoint("color" + i, String.format("%06x", random.nextInt(1 << 24))));
+        }
+        return palette;
+    }
+
+    /**
+     * Метод создания набора входных цветов
+     * @param table - таблица, для которой готовятся цвета
+     * @param distribution - random (равномерно по кубу), clustered (рядом с несколькими цветами, как на реальных
+     *                     картинках) или boundary (посередине между соседними цветами палитры - худший случай,
+     *                     когда поиску приходится заглядывать в соседние вёдра)
+     * @return - возвращает массив упакованных кодов 0xRRGGBB
+     */
+    static int[] inputs(TableOfColor table, String distribution) {
+        Random random = new Random(1985);
+        int[] codes = new int[INPUT_SIZE];
+        switch (distribution) {
+            case "random":
+                for (int i = 0; i < codes.length; i++) {
+                    codes[i] = random.nextInt(1 << 24);
+                }
+                break;
+            case "clustered":
+                int[] centers = random.ints(8, 0, 1 << 24).toArray();
+                for (int i = 0; i < codes.length; i++) {
+                    int center = centers[random.nextInt(centers.length)];
+                    codes[i] = pack(channel(center, 16) + random.nextInt(17) - 8,
+                            channel(center, 8) + random.nextInt(17) - 8, channel(center, 0) + random.nextInt(17) - 8);
+                }
+                break;
+            case "boundary":
+                int size = table.getPaletteSize();
+                for (int i = 0; i < codes.length; i++) {
+                    int one = table.rgbOf(random.nextInt(size));
+                    int two = table.rgbOf(table.findNamedColorIndex(one ^ 0x0F0F0F));   // сосед где-то рядом
+                    codes[i] = pack((channel(one, 16) + channel(two, 16)) / 2, (channel(one, 8) + channel(two, 8)) / 2,
+                            (channel(one, 0) + channel(two, 0)) / 2);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестное распределение: " + distribution);
+        }
+        return codes;
+    }
+
+    /**
+     * Метод переводит упакованные коды в шестнадцатеричные строки для бенчмарков строкового API
+     */
+    static String[] toHex(int[] codes) {
+        String[] hexCodes = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            hexCodes[i] = String.format("%06x", codes[i]);
+        }
+        return hexCodes;
+    }
+
+    private static int channel(int rgb, int shift) {
+        return (rgb >>> shift) & 0xFF;
+    }
+
+    private static int pack(int r, int g, int b) {
+        return (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
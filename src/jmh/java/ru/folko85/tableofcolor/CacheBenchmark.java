@@ -0,0 +1,58 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк кэша результатов на перекошенном потоке запросов: несколько тысяч "фирменных" цветов
+ * дают большую часть запросов, остальное - случайные цвета. Палитра большая, чтобы поиск был заметно дороже кэша
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+    @Param({"0", "8192"})
+    public int cacheCapacity;
+
+    private TableOfColor table;
+    private String[] hexCodes;
+
+    @Setup
+    public void setUp() {
+        table = new TableOfColor(BenchmarkData.randomPalette(10_000), new TableSettings().setCacheCapacity(cacheCapacity));
+        Random random = new Random(2020);
+        int[] popular = random.ints(4_000, 0, 1 << 24).toArray();
+        int[] codes = new int[BenchmarkData.INPUT_SIZE];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = random.nextInt(10) < 9 ? popular[random.nextInt(popular.length)] : random.nextInt(1 << 24);
+        }
+        hexCodes = BenchmarkData.toHex(codes);
+    }
+
+    @Benchmark
+    public String findNamedColorFromHex(LookupBenchmark.Cursor cursor) {
+        return table.findNamedColorFromHex(hexCodes[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String findNamedColorFromHexAllThreads(LookupBenchmark.Cursor cursor) {
+        return table.findNamedColorFromHex(hexCodes[cursor.next()]);
+    }
+}
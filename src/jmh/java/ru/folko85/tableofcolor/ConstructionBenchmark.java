@@ -0,0 +1,100 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк создания таблицы: чтение yml-файла и построение дерева вёдер
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+    @Param({"en", "ru"})
+    public String locale;
+
+    private Locale tableLocale;
+
+    @Setup
+    public void setUp() {
+        tableLocale = new Locale(locale);
+    }
+
+    @Benchmark
+    public TableOfColor createTable() {
+        return new TableOfColor(tableLocale);
+    }
+
+    /**
+     * Построение дерева для синтетических палитр разного размера, без чтения файла
+     */
+    @State(Scope.Benchmark)
+    public static class SyntheticPalette {
+        @Param({"100", "1000", "10000", "100000"})
+        public int paletteSize;
+
+        List<ColorPoint> palette;
+
+        @Setup
+        public void setUp() {
+            palette = BenchmarkData.randomPalette(paletteSize);
+        }
+    }
+
+    @Benchmark
+    public TableOfColor createTableFromPalette(SyntheticPalette state) {
+        return new TableOfColor(state.palette, new TableSettings());
+    }
+
+    /**
+     * Файл с синтетической палитрой из 100 000 цветов в каждом из форматов
+     */
+    @State(Scope.Benchmark)
+    public static class PaletteFile {
+        @Param({"YAML", "CSV", "BINARY"})
+        public PaletteFormat format;
+
+        Path file;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            file = Files.createTempFile("palette", format == PaletteFormat.BINARY ? ".ctpl" : "." + format.name().toLowerCase());
+            TableOfColor table = new TableOfColor(BenchmarkData.randomPalette(100_000), new TableSettings());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                table.exportPalette(out, format);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public TableOfColor createTableFromFile(PaletteFile state) throws IOException {
+        return new TableOfColor(state.file, new TableSettings());
+    }
+}
@@ -0,0 +1,80 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк поиска ближайшего цвета в таблицах из yml-файлов. Режимы Throughput и SampleTime дают
+ * и пропускную способность, и распределение задержек (перцентили) одного вызова
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    @Param({"en", "ru"})
+    public String locale;
+
+    @Param({"random", "clustered", "boundary"})
+    public String distribution;
+
+    private TableOfColor table;
+    private int[] codes;
+    private String[] hexCodes;
+
+    @Setup
+    public void setUp() {
+        table = new TableOfColor(new Locale(locale));
+        codes = BenchmarkData.inputs(table, distribution);
+        hexCodes = BenchmarkData.toHex(codes);
+    }
+
+    /**
+     * Счётчик входных цветов у каждого потока свой, чтобы потоки не мешали друг другу
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int position;
+
+        int next() {
+            return position++ & BenchmarkData.INPUT_MASK;
+        }
+    }
+
+    @Benchmark
+    public String findNamedColorFromHex(Cursor cursor) {
+        return table.findNamedColorFromHex(hexCodes[cursor.next()]);
+    }
+
+    @Benchmark
+    public String findNamedColorFromRGB(Cursor cursor) {
+        int rgb = codes[cursor.next()];
+        return table.findNamedColorFromRGB((rgb >>> 16) & 0xFF, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    @Benchmark
+    public int findNamedColorIndex(Cursor cursor) {
+        return table.findNamedColorIndex(codes[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int findNamedColorIndexAllThreads(Cursor cursor) {
+        return table.findNamedColorIndex(codes[cursor.next()]);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк поиска по разным метрикам: сколько стоит перцептивный поиск по сравнению с поиском в RGB
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricBenchmark {
+    @Param({"EUCLIDEAN_RGB", "REDMEAN", "CIE76", "CIEDE2000"})
+    public ColorMetric metric;
+
+    @Param({"ru"})
+    public String locale;
+
+    private TableOfColor table;
+    private int[] codes;
+
+    @Setup
+    public void setUp() {
+        table = new TableOfColor(new Locale(locale), new TableSettings().setMetric(metric));
+        codes = BenchmarkData.inputs(table, "random");
+    }
+
+    @Benchmark
+    public int findNamedColorIndex(LookupBenchmark.Cursor cursor) {
+        return table.findNamedColorIndex(codes[cursor.next()]);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк поиска нескольких ближайших цветов и цветов в радиусе в сравнении с поиском одного цвета
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighborsBenchmark {
+    @Param({"1000", "10000"})
+    public int paletteSize;
+
+    @Param({"1", "5", "20"})
+    public int k;
+
+    private TableOfColor table;
+    private int[] codes;
+
+    @Setup
+    public void setUp() {
+        table = new TableOfColor(BenchmarkData.randomPalette(paletteSize), new TableSettings());
+        codes = BenchmarkData.inputs(table, "random");
+    }
+
+    @Benchmark
+    public int findNamedColorIndex(LookupBenchmark.Cursor cursor) {
+        return table.findNamedColorIndex(codes[cursor.next()]);
+    }
+
+    @Benchmark
+    public List<ColorMatch> findNearestK(LookupBenchmark.Cursor cursor) {
+        return table.findNearestK(codes[cursor.next()], k);
+    }
+
+    @Benchmark
+    public List<ColorMatch> findWithinRadius(LookupBenchmark.Cursor cursor) {
+        return table.findWithinRadius(codes[cursor.next()], 4.0 * k);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк масштабирования поиска с ростом палитры - от сотни до ста тысяч синтетических цветов
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaletteScalingBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int paletteSize;
+
+    @Param({"random", "boundary"})
+    public String distribution;
+
+    private TableOfColor table;
+    private int[] codes;
+
+    @Setup
+    public void setUp() {
+        table = new TableOfColor(BenchmarkData.randomPalette(paletteSize), new TableSettings());
+        codes = BenchmarkData.inputs(table, distribution);
+    }
+
+    @Benchmark
+    public int findNamedColorIndex(LookupBenchmark.Cursor cursor) {
+        return table.findNamedColorIndex(codes[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int findNamedColorIndexAllThreads(LookupBenchmark.Cursor cursor) {
+        return table.findNamedColorIndex(codes[cursor.next()]);
+    }
+}
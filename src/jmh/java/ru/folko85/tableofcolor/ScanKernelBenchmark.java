@@ -0,0 +1,69 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк перебора палитры против kd-дерева - по нему выбран порог {@link ScanKernel#MAX_PALETTE_SIZE}.
+ * Векторный перебор участвует, только если JVM запущена с модулем Vector API:
+ * java -jar target/benchmarks.jar ScanKernelBenchmark -jvmArgsAppend --add-modules=jdk.incubator.vector
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanKernelBenchmark {
+    @Param({"16", "64", "128", "256", "512", "1024", "2048"})
+    public int paletteSize;
+
+    private BucketTree tree;
+    private ScanKernel scalar;
+    private ScanKernel best;
+    private int[] codes;
+
+    @Setup
+    public void setUp() {
+        List<ColorPoint> palette = BenchmarkData.randomPalette(paletteSize);
+        TableOfColor table = new TableOfColor(palette, new TableSettings());
+        int[] paletteRgb = new int[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            paletteRgb[i] = table.rgbOf(i);
+        }
+        tree = BucketTree.build(palette, new int[]{0, 0, 0}, new int[]{256, 256, 256}, 16);
+        scalar = new ScanKernel(paletteRgb);
+        best = ScanKernel.create(paletteRgb);
+        codes = BenchmarkData.inputs(table, "random");
+    }
+
+    @Benchmark
+    public int tree(LookupBenchmark.Cursor cursor) {
+        int rgb = codes[cursor.next()];
+        return tree.nearest(rgb >>> 16, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    @Benchmark
+    public int scalarScan(LookupBenchmark.Cursor cursor) {
+        int rgb = codes[cursor.next()];
+        return scalar.nearest(rgb >>> 16, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    @Benchmark
+    public int bestScan(LookupBenchmark.Cursor cursor) {
+        int rgb = codes[cursor.next()];
+        return best.nearest(rgb >>> 16, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+    }
+}
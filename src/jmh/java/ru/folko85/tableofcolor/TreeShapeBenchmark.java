@@ -0,0 +1,50 @@
+package ru.folko85.tableofcolor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк устройства kd-дерева: размер листа и способ деления вёдер на синтетических палитрах
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeShapeBenchmark {
+    @Param({"1000", "100000"})
+    public int paletteSize;
+
+    @Param({"4", "16", "64"})
+    public int leafCapacity;
+
+    @Param({"MIDPOINT", "MEDIAN", "SURFACE_AREA"})
+    public SplitPolicy splitPolicy;
+
+    private TableOfColor table;
+    private int[] codes;
+
+    @Setup
+    public void setUp() {
+        table = new TableOfColor(BenchmarkData.randomPalette(paletteSize),
+                new TableSettings().setLeafCapacity(leafCapacity).setSplitPolicy(splitPolicy));
+        codes = BenchmarkData.inputs(table, "random");
+    }
+
+    @Benchmark
+    public int findNamedColorIndex(LookupBenchmark.Cursor cursor) {
+        return table.findNamedColorIndex(codes[cursor.next()]);
+    }
+}
@@ -0,0 +1,288 @@
+package ru.folko85.tableofcolor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Класс асинхронной таблицы именованных цветов - для сервисов на event loop (Netty, WebFlux, Vert.x),
+ * где вызывающий поток нельзя занимать ни построением таблицы, ни большими пакетами пикселей.
+ * Построение и поиск выполняются в переданном исполнителе, а вызывающий сразу получает {@link CompletableFuture}.
+ * Запросы, пришедшие до готовности таблицы, не блокируются, а выполняются, как только она построится.
+ * Одинаковые одновременные запросы одного цвета объединяются: ищется один раз, результат получают все.
+ * Количество выполняющихся и ждущих запросов ограничено - сверх лимита будущее сразу завершается
+ * с {@link RejectedExecutionException}, и сервис может ответить "занято", а не копить очередь
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public class AsyncTableOfColor {
+    /** Размер куска пакета пикселей, который ищется одной задачей исполнителя */
+    static final int BATCH_CHUNK_SIZE = 1 << 16;
+    /** Поле - будущая таблица */
+    private final CompletableFuture<TableOfColor> table;
+    /** Поле - исполнитель построения и поиска */
+    private final Executor executor;
+    /** Поле - наибольшее количество незавершённых запросов */
+    private final int maxPendingRequests;
+    /** Поле - свободные места для запросов */
+    private final Semaphore permits;
+    /** Поле - выполняющиеся поиски по кодам цветов, для объединения одинаковых запросов */
+    private final ConcurrentMap<Integer, CompletableFuture<Integer>> inFlight = new ConcurrentHashMap<>();
+    /** Поле - количество запросов, получивших результат уже выполнявшегося поиска */
+    private final LongAdder coalesced = new LongAdder();
+    /** Поле - количество запросов, отклонённых из-за лимита */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Конструктор - фоновое построение таблицы встроенной палитры. Если исполнитель отказался принять построение,
+     * будущая таблица и все запросы к ней завершаются с {@link RejectedExecutionException}
+     * @param locale - язык таблицы
+     * @param settings - настройки таблицы
+     * @param executor - исполнитель построения и поиска, null - {@link #defaultExecutor()}
+     * @param maxPendingRequests - наибольшее количество незавершённых запросов
+     */
+    public AsyncTableOfColor(Locale locale, TableSettings settings, Executor executor, int maxPendingRequests) {
+        this(executor, maxPendingRequests, pool -> CompletableFuture.supplyAsync(() -> new TableOfColor(locale, settings), pool));
+    }
+
+    /**
+     * Конструктор - фоновое построение таблицы из файла с палитрой. Если файл не удалось прочитать
+     * или исполнитель отказался принять построение, будущая таблица и все запросы к ней завершаются с той же ошибкой
+     * @param palette - путь к файлу с палитрой
+     * @param settings - настройки таблицы
+     * @param executor - исполнитель построения и поиска, null - {@link #defaultExecutor()}
+     * @param maxPendingRequests - наибольшее количество незавершённых запросов
+     */
+    public AsyncTableOfColor(Path palette, TableSettings settings, Executor executor, int maxPendingRequests) {
+        this(executor, maxPendingRequests, pool -> {
+            CompletableFuture<TableOfColor> future = new CompletableFuture<>();
+            pool.execute(() -> {
+                try {
+                    future.complete(new TableOfColor(palette, settings));
+                } catch (IOException | RuntimeException | Error ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+            return future;
+        });
+    }
+
+    /**
+     * Конструктор - асинхронный доступ к уже построенной таблице
+     * @param table - таблица
+     * @param executor - исполнитель поиска, null - {@link #defaultExecutor()}
+     * @param maxPendingRequests - наибольшее количество незавершённых запросов
+     */
+    public AsyncTableOfColor(TableOfColor table, Executor executor, int maxPendingRequests) {
+        this(executor, maxPendingRequests, pool -> CompletableFuture.completedFuture(Objects.requireNonNull(table, "table")));
+    }
+
+    private AsyncTableOfColor(Executor executor, int maxPendingRequests,
+                              Function<Executor, CompletableFuture<TableOfColor>> build) {
+        if (maxPendingRequests < 1) {
+            throw new IllegalArgumentException("Лимит запросов должен быть положительным: " + maxPendingRequests);
+        }
+        this.executor = executor != null ? executor : defaultExecutor();
+        this.maxPendingRequests = maxPendingRequests;
+        this.permits = new Semaphore(maxPendingRequests);
+        CompletableFuture<TableOfColor> future;
+        try {
+            future = build.apply(this.executor);
+        } catch (RejectedExecutionException ex) {
+            future = CompletableFuture.failedFuture(ex);          // отказ исполнителя - ошибка таблицы, а не конструктора
+        }
+        this.table = future;
+    }
+
+    /**
+     * Метод выбора исполнителя по умолчанию: виртуальные потоки на JDK 21+, иначе общий пул fork-join.
+     * Поиск занимает процессор, так что виртуальные потоки не ускоряют его, но позволяют тысячам вызывающих
+     * не держать по платформенному потоку; параллельность всё равно ограничена количеством ядер
+     * @return - метод возвращает общий для всех таблиц исполнитель
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * Геттер будущей таблицы. Завершение или отмена возвращённого будущего на таблицу не влияет
+     * @return - возвращает будущую таблицу
+     */
+    public CompletableFuture<TableOfColor> getTable() {
+        return table.copy();
+    }
+
+    /**
+     * Метод проверки готовности таблицы
+     * @return - метод возвращает true, если таблица построена
+     */
+    public boolean isReady() {
+        return table.isDone() && !table.isCompletedExceptionally();
+    }
+
+    /**
+     * Метод поиска индекса ближайшего именованного цвета. Если этот же код уже ищется, новый поиск не запускается
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @return - метод возвращает будущий индекс цвета в палитре
+     */
+    public CompletableFuture<Integer> findNamedColorIndex(int rgb) {
+        Integer key = rgb & 0xFFFFFF;
+        CompletableFuture<Integer> running = inFlight.get(key);
+        if (running == null) {
+            CompletableFuture<Integer> created = new CompletableFuture<>();
+            running = inFlight.putIfAbsent(key, created);
+            if (running == null) {
+                submit(table -> CompletableFuture.completedFuture(table.findNamedColorIndex(key)))
+                        .whenComplete((index, ex) -> {
+                            inFlight.remove(key, created);      // до завершения, чтобы следующий запрос искал заново
+                            if (ex == null) {
+                                created.complete(index);
+                            } else {
+                                created.completeExceptionally(unwrap(ex));
+                            }
+                        });
+                return created.copy();
+            }
+        }
+        coalesced.increment();
+        return running.copy();
+    }
+
+    /**
+     * Метод поиска названия ближайшего именованного цвета по шестнадцатеричному коду
+     * @param hexCode - шестизначный шестнадцатеричный код (регистр не важен, ведущий символ # допускается)
+     * @return - метод возвращает будущее название; для неверного кода будущее завершается с NumberFormatException
+     */
+    public CompletableFuture<String> findNamedColorFromHex(String hexCode) {
+        int rgb;
+        try {
+            rgb = ColorPoint.packedFromHex(hexCode);
+        } catch (NumberFormatException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return findNamedColorIndex(rgb).thenApply(index -> table.join().nameOf(index));   // таблица уже готова
+    }
+
+    /**
+     * Метод поиска названия ближайшего именованного цвета по координатам
+     * @param r - интенсивность красного цвета от 0 до 255
+     * @param g - интенсивность зелёного цвета от 0 до 255
+     * @param b - интенсивность голубого цвета от 0 до 255
+     * @return - метод возвращает будущее название; для координаты вне 0..255 будущее завершается
+     * с IllegalArgumentException
+     */
+    public CompletableFuture<String> findNamedColorFromRGB(int r, int g, int b) {
+        int rgb;
+        try {
+            rgb = ColorPoint.packedFromRGB(r, g, b);
+        } catch (IllegalArgumentException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return findNamedColorIndex(rgb).thenApply(index -> table.join().nameOf(index));
+    }
+
+    /**
+     * Пакетный метод поиска индексов ближайших именованных цветов. Массив делится на куски
+     * по {@link #BATCH_CHUNK_SIZE} пикселей, которые ищутся отдельными задачами исполнителя, так что
+     * пакет не занимает ни вызывающий поток, ни общий пул fork-join. Весь пакет - один запрос для лимита.
+     * Массив пикселей нельзя изменять, пока будущее не завершится
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @return - метод возвращает будущий массив индексов цветов палитры той же длины
+     */
+    public CompletableFuture<int[]> findNamedColorIndexes(int[] pixels) {
+        Objects.requireNonNull(pixels, "pixels");
+        return submit(table -> {
+            int[] indexes = new int[pixels.length];
+            int chunkCount = Math.max(1, (pixels.length + BATCH_CHUNK_SIZE - 1) / BATCH_CHUNK_SIZE);
+            CompletableFuture<?>[] chunks = new CompletableFuture<?>[chunkCount - 1];
+            for (int chunk = 1; chunk < chunkCount; chunk++) {
+                int from = chunk * BATCH_CHUNK_SIZE;
+                int to = Math.min(pixels.length, from + BATCH_CHUNK_SIZE);
+                chunks[chunk - 1] = CompletableFuture.runAsync(
+                        () -> PixelBatch.findIndexesSequential(table, pixels, indexes, from, to), executor);
+            }
+            PixelBatch.findIndexesSequential(table, pixels, indexes, 0, Math.min(pixels.length, BATCH_CHUNK_SIZE));
+            return CompletableFuture.allOf(chunks).thenApply(ignored -> indexes);   // первый кусок - в этом же потоке
+        });
+    }
+
+    /**
+     * Геттер количества незавершённых запросов; объединённые с уже выполняющимися не считаются
+     * @return - возвращает количество запросов, занимающих место в лимите
+     */
+    public int getPendingRequests() {
+        return maxPendingRequests - permits.availablePermits();
+    }
+
+    /**
+     * Геттер лимита запросов
+     * @return - возвращает наибольшее количество незавершённых запросов
+     */
+    public int getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    /**
+     * Геттер количества объединённых запросов
+     * @return - возвращает, сколько запросов получили результат уже выполнявшегося поиска того же цвета
+     */
+    public long getCoalescedRequests() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Геттер количества отклонённых запросов
+     * @return - возвращает, сколько запросов не поместились в лимит
+     */
+    public long getRejectedRequests() {
+        return rejected.sum();
+    }
+
+    /**
+     * Метод запуска запроса: занимает место в лимите, дожидается таблицы и выполняет работу в исполнителе.
+     * Место освобождается до того, как завершится возвращённое будущее
+     */
+    private <T> CompletableFuture<T> submit(Function<TableOfColor, CompletableFuture<T>> work) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Незавершённых запросов уже " + maxPendingRequests));
+        }
+        return table.thenComposeAsync(work, executor)           // отказ исполнителя тоже завершит будущее, с ошибкой
+                .whenComplete((value, ex) -> permits.release());
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    /**
+     * Вспомогательный класс - ленивое создание исполнителя по умолчанию. Виртуальные потоки ищутся
+     * через отражение, потому что библиотека собирается для Java 11
+     */
+    private static final class DefaultExecutor {
+        private static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return ForkJoinPool.commonPool();   // JDK до 21 или виртуальные потоки в режиме preview не включены
+            }
+        }
+    }
+}
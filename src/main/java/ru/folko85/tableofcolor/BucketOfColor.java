@@ -1,12 +1,11 @@
 package ru.folko85.tableofcolor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Вспомогательный класс библиотеки - ведро с цветами.
  * Каждое ведро представляет из себя прямоугольный параллелепипед(кубоид) со сторонами,
- * параллельными осям координат, а значит его можно определить двумя крайними точками
+ * параллельными осям координат, а значит его можно определить двумя крайними точками.
+ * Границы и разброс хранятся в одном массиве коротких целых - все координаты лежат в диапазоне от 0 до 257.
+ * Самих точек ведро не хранит: их индексы держит дерево, а ведру нужен только разброс их координат
  *
  * @author Othernik aka Folko85
  * @version 1.0.6
@@ -20,26 +19,17 @@ public class BucketOfColor {
     private static final int G_CODE_INDEX = 1;
     private static final int B_CODE_INDEX = 2;
     /**
-     * У каждого ведра кроме координат границ есть координаты разброса точек по каждой из осей
-     */
-    private static final int MIN_RANGE_INDEX = 0;
-    private static final int MAX_RANGE_INDEX = 1;
-    /**
-     * массив с начальной координатой ведра
-     */
-    private final int[] startCoordinates;   // размер задан заранее в нашем случае
-    /**
-     * массив с конечной координатой ведра
-     */
-    private final int[] endCoordinates;     // поэтому мы фиксируем ещё и разброс точке по осям
-    /**
-     * массив с координатами разброса по каждой из осей
+     * Смещения троек координат в массиве границ: начало и конец ведра, затем наименьшие и наибольшие
+     * координаты точек - у каждого ведра кроме координат границ есть координаты разброса точек по каждой из осей
      */
-    private int[][] range = new int[2][3];
+    private static final int START_OFFSET = 0;
+    private static final int END_OFFSET = 3;
+    private static final int MIN_RANGE_OFFSET = 6;
+    private static final int MAX_RANGE_OFFSET = 9;
     /**
-     * список всех точек принадлежащих данному ведру
+     * массив с начальной и конечной координатами ведра и разбросом точек по каждой из осей
      */
-    private List<ColorPoint> bucketPoints = new ArrayList<>();
+    private final short[] bounds = new short[12];
 
     /**
      * Конструктор - создание нового ведра. При создании нового ведра в нём нет точек, а координаты
@@ -49,70 +39,57 @@ public class BucketOfColor {
      * @param end   - конечная координата
      */
     protected BucketOfColor(int[] start, int[] end) {
-        this.startCoordinates = start;
-        this.endCoordinates = end;
         for (int i = 0; i < 3; i++) {
-            range[MAX_RANGE_INDEX][i] = startCoordinates[i] + (endCoordinates[i] - startCoordinates[i]) / 2;
-            range[MIN_RANGE_INDEX][i] = range[MAX_RANGE_INDEX][i];
+            bounds[START_OFFSET + i] = (short) start[i];
+            bounds[END_OFFSET + i] = (short) end[i];
+            bounds[MAX_RANGE_OFFSET + i] = (short) (start[i] + (end[i] - start[i]) / 2);
+            bounds[MIN_RANGE_OFFSET + i] = bounds[MAX_RANGE_OFFSET + i];
         }
     }
 
     /**
      * Геттер начальной координаты
      *
-     * @return - возвращает массив с начальной координатой
+     * @return - возвращает новый массив с начальной координатой
      */
     protected int[] getStartCoordinates() {
-        return startCoordinates;
+        return coordinates(START_OFFSET);
     }
 
     /**
      * Геттер конечной координаты
      *
-     * @return - возвращает массив с конечной координатой
+     * @return - возвращает новый массив с конечной координатой
      */
     protected int[] getEndCoordinates() {
-        return endCoordinates;
+        return coordinates(END_OFFSET);
     }
 
-    /**
-     * Метод, проверяющий, принадлежит ли цвет-точка данному ведру.
-     *
-     * @param colorPoint - точка-цвет, которую нужно проверить
-     * @return - метод возвращает true, если координаты точки внутри координат ведра
-     */
-    protected boolean isContainPoint(ColorPoint colorPoint) {
-        int r = colorPoint.getRValue();
-        int g = colorPoint.getGValue();
-        int b = colorPoint.getBValue();
-        return r >= this.startCoordinates[R_CODE_INDEX] && r <= this.endCoordinates[R_CODE_INDEX] &&
-                g >= this.startCoordinates[G_CODE_INDEX] && g <= this.endCoordinates[G_CODE_INDEX] &&
-                b >= this.startCoordinates[B_CODE_INDEX] && b <= this.endCoordinates[B_CODE_INDEX];
+    private int[] coordinates(int offset) {
+        return new int[]{bounds[offset + R_CODE_INDEX], bounds[offset + G_CODE_INDEX], bounds[offset + B_CODE_INDEX]};
     }
 
     /**
-     * Геттер текущего размера ведра(количества точек в нём)
+     * Метод учёта координат точки в диапазоне разброса. Координаты могут быть и не в RGB,
+     * а, например, номерами ячеек сетки CIELAB
      *
-     * @return - метод возвращает количество цветов-точек в ведре
+     * @param coordinates - целые координаты точки
      */
-    protected int getSize() {
-        return this.bucketPoints.size();
+    protected void addCoordinates(int[] coordinates) {
+        addCoordinates(coordinates[R_CODE_INDEX], coordinates[G_CODE_INDEX], coordinates[B_CODE_INDEX]);
     }
 
-    /**
-     * Метод добавления точки к ведру. Кроме добавления к списку вёдер, метод также изменяет
-     * координаты разброса точек по осям
-     *
-     * @param point - метод принимает на вход добавляемую к ведру цвет-точку
-     */
-    protected void addColorPoint(ColorPoint point) {
-        this.bucketPoints.add(point);        // добавляем точку в список и обновляем диапазон разброса
-        for (int i = 0; i < 3; i++) {
-            if (range[MIN_RANGE_INDEX][i] > point.getCoordinates()[i])
-                range[MIN_RANGE_INDEX][i] = point.getCoordinates()[i];
-            if (range[MAX_RANGE_INDEX][i] < point.getCoordinates()[i])
-                range[MAX_RANGE_INDEX][i] = point.getCoordinates()[i];
-        }
+    private void addCoordinates(int r, int g, int b) {
+        widen(R_CODE_INDEX, r);
+        widen(G_CODE_INDEX, g);
+        widen(B_CODE_INDEX, b);
+    }
+
+    private void widen(int axis, int coordinate) {
+        if (bounds[MIN_RANGE_OFFSET + axis] > coordinate)
+            bounds[MIN_RANGE_OFFSET + axis] = (short) coordinate;
+        if (bounds[MAX_RANGE_OFFSET + axis] < coordinate)
+            bounds[MAX_RANGE_OFFSET + axis] = (short) coordinate;
     }
 
     /**
@@ -125,13 +102,17 @@ public class BucketOfColor {
     protected int getBestColorAxis() {
         int boundRange = R_CODE_INDEX;
         for (int i = 1; i < 3; i++) {
-            if ((this.range[MAX_RANGE_INDEX][i] - this.range[MIN_RANGE_INDEX][i]) > (this.range[MAX_RANGE_INDEX][boundRange] - this.range[MIN_RANGE_INDEX][boundRange])) {
+            if (spread(i) > spread(boundRange)) {
                 boundRange = i;
             }
         }
         return boundRange;
     }
 
+    private int spread(int axis) {
+        return bounds[MAX_RANGE_OFFSET + axis] - bounds[MIN_RANGE_OFFSET + axis];
+    }
+
     /**
      * Метод вычисляет координату соответствующей оси, по которой лучше всего произвести деление ведра
      *
@@ -139,15 +120,6 @@ public class BucketOfColor {
      * @return - на выходе число от 0 до 256, являющееся серединой диапазона разброса цветов-точек в ведре
      */
     protected int getBoundPlane(int bestAxis) {
-        return range[MAX_RANGE_INDEX][bestAxis] - ((range[MAX_RANGE_INDEX][bestAxis] - range[MIN_RANGE_INDEX][bestAxis]) / 2);
-    }
-
-    /**
-     * Геттер списка точек, принадлежащих ведру
-     *
-     * @return - возвразает список точек ведра
-     */
-    protected List<ColorPoint> getBucketPoints() {
-        return bucketPoints;
+        return bounds[MAX_RANGE_OFFSET + bestAxis] - spread(bestAxis) / 2;
     }
-}
\ No newline at end of file
+}
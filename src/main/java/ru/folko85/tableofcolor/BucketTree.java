@@ -0,0 +1,786 @@
+package ru.folko85.tableofcolor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Вспомогательный класс библиотеки - kd-дерево вёдер.
+ * Дерево строится тем же делением вёдер надвое по оси с наибольшим разбросом точек, что и раньше,
+ * но каждое деление запоминается как узел дерева. Узлы и точки листьев лежат в плоских массивах
+ * примитивов, поэтому поиск не ходит по объектам и не выделяет память.
+ * Дерево строится в RGB (для евклидовой метрики и "redmean") или в CIELAB (для ΔE 1976). Отсечение
+ * поддеревьев верно для любой метрики, которая не меньше взвешенного евклидова расстояния в пространстве дерева.
+ * Дерево не изменяется: добавление и удаление точки возвращают новое дерево, в котором перестроено
+ * только затронутое поддерево, а остальные узлы просто скопированы
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class BucketTree {
+    /** Признак листа в поле оси узла */
+    private static final int LEAF = -1;
+    /** Количество целых чисел на один узел: ось, правый потомок (или начало листа), конец листа */
+    private static final int NODE_STRIDE = 3;
+    /** Расстояние, заведомо большее любого реального, упакованное вместе с индексом */
+    private static final long NOTHING_FOUND = ((long) Float.floatToRawIntBits(Float.POSITIVE_INFINITY) << 32) | 0xFFFFFFFFL;
+    /**
+     * Узлы дерева в прямом порядке обхода: левый потомок узла n всегда n + 1.
+     * У внутреннего узла хранятся ось деления и номер правого потомка, у листа - границы его точек в массивах ниже
+     */
+    private final int[] nodes;
+    /** Для каждого внутреннего узла - наибольшая координата слева и наименьшая справа от плоскости деления */
+    private final float[] planes;
+    /** Координаты точек, сгруппированные по листьям */
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] zs;
+    /** Индексы точек в палитре, в том же порядке, что и координаты */
+    private final int[] ids;
+    /** Веса квадратов расстояний до плоскости по каждой оси: метрика дерева не меньше их суммы */
+    private final float[] axisWeights;
+    /** Поле - считать ли расстояние в листьях по формуле "redmean" вместо евклидовой */
+    private final boolean redmean;
+    /** Поле - построено ли дерево в CIELAB; от этого зависят целые координаты, по которым делятся вёдра */
+    private final boolean lab;
+    /** Поле - максимальное количество точек в листе; с ним же перестраиваются листья при изменениях */
+    private final int leafCapacity;
+    /** Поле - способ деления вёдер */
+    private final SplitPolicy policy;
+    /** Границы всего пространства дерева в целых координатах */
+    private static final int[] GRID_START = {0, 0, 0};
+    private static final int[] GRID_END = {256, 256, 256};
+
+    private BucketTree(int[] nodes, float[] planes, float[] xs, float[] ys, float[] zs, int[] ids,
+                       float[] axisWeights, boolean redmean, boolean lab, int leafCapacity, SplitPolicy policy) {
+        this.nodes = nodes;
+        this.planes = planes;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.ids = ids;
+        this.axisWeights = axisWeights;
+        this.redmean = redmean;
+        this.lab = lab;
+        this.leafCapacity = leafCapacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Метод построения дерева
+     * @param colors - палитра, по которой строится дерево
+     * @param start - начальная граничная точка рабочей области
+     * @param end - конечная граничная точка рабочей области
+     * @param maxPointsCount - максимальное количество точек в листе
+     * @return - метод возвращает построенное дерево
+     */
+    static BucketTree build(List<ColorPoint> colors, int[] start, int[] end, int maxPointsCount) {
+        return build(colors, ColorMetric.EUCLIDEAN_RGB, start, end, maxPointsCount);
+    }
+
+    /**
+     * Метод построения дерева в RGB для евклидовой метрики или "redmean"
+     * @param colors - палитра, по которой строится дерево
+     * @param metric - {@link ColorMetric#EUCLIDEAN_RGB} или {@link ColorMetric#REDMEAN}
+     * @param start - начальная граничная точка рабочей области
+     * @param end - конечная граничная точка рабочей области
+     * @param maxPointsCount - максимальное количество точек в листе
+     * @return - метод возвращает построенное дерево
+     */
+    static BucketTree build(List<ColorPoint> colors, ColorMetric metric, int[] start, int[] end, int maxPointsCount) {
+        return build(colors, metric, start, end, maxPointsCount, SplitPolicy.MIDPOINT);
+    }
+
+    /**
+     * Метод построения дерева в RGB с заданным способом деления вёдер
+     * @param colors - палитра, по которой строится дерево
+     * @param metric - {@link ColorMetric#EUCLIDEAN_RGB} или {@link ColorMetric#REDMEAN}
+     * @param start - начальная граничная точка рабочей области
+     * @param end - конечная граничная точка рабочей области
+     * @param maxPointsCount - максимальное количество точек в листе
+     * @param policy - способ деления вёдер
+     * @return - метод возвращает построенное дерево
+     */
+    static BucketTree build(List<ColorPoint> colors, ColorMetric metric, int[] start, int[] end, int maxPointsCount,
+                            SplitPolicy policy) {
+        if (metric.isLab()) {
+            throw new IllegalArgumentException("Дерево в RGB не подходит для метрики " + metric);
+        }
+        int[][] grid = new int[colors.size()][];
+        float[][] space = new float[3][colors.size()];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = colors.get(i).getCoordinates();
+            for (int axis = 0; axis < 3; axis++) {
+                space[axis][i] = grid[i][axis];
+            }
+        }
+        boolean redmean = metric == ColorMetric.REDMEAN;
+        float[] weights = redmean ? new float[]{2f, 4f, 2f} : new float[]{1f, 1f, 1f};
+        return build(grid, space, weights, redmean, false, start, end, maxPointsCount, policy);
+    }
+
+    /**
+     * Метод построения дерева в CIELAB для ΔE 1976. Вёдра делятся по координатам, округлённым до целых
+     * и сдвинутым в диапазон от 0 до 256, а точки листьев и плоскости хранят точные координаты
+     * @param lab - координаты палитры из {@link CieLab#toLab(int[])}
+     * @param maxPointsCount - максимальное количество точек в листе
+     * @return - метод возвращает построенное дерево
+     */
+    static BucketTree buildLab(float[][] lab, int maxPointsCount) {
+        return buildLab(lab, maxPointsCount, SplitPolicy.MIDPOINT);
+    }
+
+    /**
+     * Метод построения дерева в CIELAB с заданным способом деления вёдер
+     * @param lab - координаты палитры из {@link CieLab#toLab(int[])}
+     * @param maxPointsCount - максимальное количество точек в листе
+     * @param policy - способ деления вёдер
+     * @return - метод возвращает построенное дерево
+     */
+    static BucketTree buildLab(float[][] lab, int maxPointsCount, SplitPolicy policy) {
+        int[][] grid = new int[lab[0].length][3];
+        for (int i = 0; i < grid.length; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                grid[i][axis] = gridOf(lab[axis][i], axis, true);
+            }
+        }
+        return build(grid, lab, new float[]{1f, 1f, 1f}, false, true, GRID_START, GRID_END, maxPointsCount, policy);
+    }
+
+    private static BucketTree build(int[][] grid, float[][] space, float[] weights, boolean redmean, boolean lab,
+                                    int[] start, int[] end, int maxPointsCount, SplitPolicy policy) {
+        if (maxPointsCount < 1) {
+            throw new IllegalArgumentException("В листе должна помещаться хотя бы одна точка: " + maxPointsCount);
+        }
+        Builder builder = new Builder(grid, space, maxPointsCount, policy);
+        int[] members = new int[grid.length];
+        Arrays.setAll(members, i -> i);
+        builder.buildNode(fill(new BucketOfColor(start, end), members, grid), members);
+        return new BucketTree(Arrays.copyOf(builder.nodes, builder.nodeCount * NODE_STRIDE),
+                Arrays.copyOf(builder.planes, builder.nodeCount * 2), builder.xs, builder.ys, builder.zs, builder.ids,
+                weights, redmean, lab, maxPointsCount, policy);
+    }
+
+    /**
+     * Вспомогательный метод - целая координата, по которой делятся вёдра
+     * @param coordinate - точная координата в пространстве дерева
+     * @param axis - ось
+     * @param lab - true для дерева в CIELAB
+     * @return - метод возвращает координату от 0 до 256
+     */
+    private static int gridOf(float coordinate, int axis, boolean lab) {
+        if (!lab) {
+            return (int) coordinate;                      // в RGB координаты и так целые
+        }
+        int shifted = Math.round(coordinate) + (axis == 0 ? 0 : 128);     // L от 0 до 100, a и b около ±110
+        return Math.max(0, Math.min(256, shifted));
+    }
+
+    /**
+     * Метод добавления точки. Точка спускается к листу по той стороне каждой плоскости, к которой она ближе,
+     * границы плоскостей на пути расширяются так, чтобы включить её, а лист перестраивается и, если точек
+     * в нём стало больше допустимого, делится на месте. Старое дерево не изменяется
+     * @param x - первая координата точки в пространстве дерева
+     * @param y - вторая координата
+     * @param z - третья координата
+     * @param id - индекс точки в палитре
+     * @return - метод возвращает новое дерево с добавленной точкой
+     */
+    BucketTree withPoint(float x, float y, float z, int id) {
+        int[] path = new int[nodes.length / NODE_STRIDE];       // узлы на пути к листу, со знаком стороны
+        int depth = 0;
+        int node = 0;
+        while (nodes[node * NODE_STRIDE] != LEAF) {
+            int axis = nodes[node * NODE_STRIDE];
+            float coordinate = axis == 0 ? x : (axis == 1 ? y : z);
+            boolean left = coordinate - planes[2 * node] <= planes[2 * node + 1] - coordinate;
+            path[depth++] = left ? node : ~node;
+            node = left ? node + 1 : nodes[node * NODE_STRIDE + 1];
+        }
+        BucketTree tree = rebuild(node, -1, new float[]{x, y, z}, id);
+        for (int i = 0; i < depth; i++) {                    // узлы на пути стоят до листа, их номера не сдвинулись
+            boolean left = path[i] >= 0;
+            int parent = left ? path[i] : ~path[i];
+            int axis = tree.nodes[parent * NODE_STRIDE];
+            float coordinate = axis == 0 ? x : (axis == 1 ? y : z);
+            if (left) {
+                tree.planes[2 * parent] = Math.max(tree.planes[2 * parent], coordinate);
+            } else {
+                tree.planes[2 * parent + 1] = Math.min(tree.planes[2 * parent + 1], coordinate);
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Метод удаления точки. Лист с точкой перестраивается, а если он опустел или вместе с соседним листом
+     * помещается в одно ведро - перестраивается их общий родитель, то есть листья сливаются.
+     * Индексы точек, стоявших в палитре после удалённой, уменьшаются на единицу. Старое дерево не изменяется
+     * @param id - индекс точки в палитре
+     * @return - метод возвращает новое дерево без точки
+     */
+    BucketTree withoutPoint(int id) {
+        int position = 0;
+        while (ids[position] != id) {
+            position++;
+        }
+        int leaf = 0;
+        int parent = -1;
+        while (nodes[leaf * NODE_STRIDE] != LEAF) {
+            parent = leaf;
+            int right = nodes[leaf * NODE_STRIDE + 1];
+            leaf = position < firstPoint(right) ? leaf + 1 : right;
+        }
+        int leafCount = nodes[leaf * NODE_STRIDE + 2] - nodes[leaf * NODE_STRIDE + 1];
+        boolean merge = parent >= 0 && (leafCount == 1
+                || lastPoint(parent) - firstPoint(parent) - 1 <= leafCapacity);
+        return rebuild(merge ? parent : leaf, id, null, -1);
+    }
+
+    /**
+     * Метод перестройки поддерева. Точки поддерева (без удаляемой и с добавляемой) заново делятся на вёдра,
+     * новое поддерево встаёт на место старого, а номера узлов и границы точек за ним сдвигаются
+     * @param root - корень перестраиваемого поддерева
+     * @param removedId - индекс удаляемой точки или -1
+     * @param added - координаты добавляемой точки или null
+     * @param addedId - индекс добавляемой точки
+     * @return - метод возвращает новое дерево
+     */
+    private BucketTree rebuild(int root, int removedId, float[] added, int addedId) {
+        int first = firstPoint(root);
+        int last = lastPoint(root);
+        int rootEnd = subtreeEnd(root);
+        int count = last - first + (added != null ? 1 : 0) - (removedId >= 0 ? 1 : 0);
+        int[][] grid = new int[count][3];
+        float[][] space = new float[3][count];
+        int[] localIds = new int[count];
+        int local = 0;
+        for (int i = first; i < last; i++) {
+            if (ids[i] != removedId) {
+                space[0][local] = xs[i];
+                space[1][local] = ys[i];
+                space[2][local] = zs[i];
+                localIds[local++] = ids[i];
+            }
+        }
+        if (added != null) {
+            for (int axis = 0; axis < 3; axis++) {
+                space[axis][local] = added[axis];
+            }
+            localIds[local] = addedId;
+        }
+        for (int i = 0; i < count; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                grid[i][axis] = gridOf(space[axis][i], axis, lab);
+            }
+        }
+        Builder builder = new Builder(grid, space, leafCapacity, policy);
+        int[] members = new int[count];
+        Arrays.setAll(members, i -> i);
+        builder.buildNode(fill(new BucketOfColor(GRID_START, GRID_END), members, grid), members);
+
+        int nodeDelta = builder.nodeCount - (rootEnd - root);
+        int pointDelta = count - (last - first);
+        int nodeCount = nodes.length / NODE_STRIDE + nodeDelta;
+        int[] newNodes = new int[nodeCount * NODE_STRIDE];
+        float[] newPlanes = new float[nodeCount * 2];
+        for (int node = 0; node < nodes.length / NODE_STRIDE; node++) {
+            if (node >= root && node < rootEnd) {
+                continue;
+            }
+            int target = node < root ? node : node + nodeDelta;
+            int base = node * NODE_STRIDE;
+            newNodes[target * NODE_STRIDE] = nodes[base];
+            if (nodes[base] == LEAF) {
+                int shift = node < root ? 0 : pointDelta;
+                newNodes[target * NODE_STRIDE + 1] = nodes[base + 1] + shift;
+                newNodes[target * NODE_STRIDE + 2] = nodes[base + 2] + shift;
+            } else {
+                int right = nodes[base + 1];
+                newNodes[target * NODE_STRIDE + 1] = right >= rootEnd ? right + nodeDelta : right;
+            }
+            newPlanes[2 * target] = planes[2 * node];
+            newPlanes[2 * target + 1] = planes[2 * node + 1];
+        }
+        for (int node = 0; node < builder.nodeCount; node++) {
+            int target = root + node;
+            int base = node * NODE_STRIDE;
+            newNodes[target * NODE_STRIDE] = builder.nodes[base];
+            if (builder.nodes[base] == LEAF) {
+                newNodes[target * NODE_STRIDE + 1] = builder.nodes[base + 1] + first;
+                newNodes[target * NODE_STRIDE + 2] = builder.nodes[base + 2] + first;
+            } else {
+                newNodes[target * NODE_STRIDE + 1] = builder.nodes[base + 1] + root;
+            }
+            newPlanes[2 * target] = builder.planes[2 * node];
+            newPlanes[2 * target + 1] = builder.planes[2 * node + 1];
+        }
+
+        int pointCount = xs.length + pointDelta;
+        float[] newXs = new float[pointCount];
+        float[] newYs = new float[pointCount];
+        float[] newZs = new float[pointCount];
+        int[] newIds = new int[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            int source = i < first ? i : i - count + (last - first);      // точки за поддеревом сдвигаются
+            int id;
+            if (i >= first && i < first + count) {
+                newXs[i] = builder.xs[i - first];
+                newYs[i] = builder.ys[i - first];
+                newZs[i] = builder.zs[i - first];
+                id = localIds[builder.ids[i - first]];
+            } else {
+                newXs[i] = xs[source];
+                newYs[i] = ys[source];
+                newZs[i] = zs[source];
+                id = ids[source];
+            }
+            newIds[i] = removedId >= 0 && id > removedId ? id - 1 : id;
+        }
+        return new BucketTree(newNodes, newPlanes, newXs, newYs, newZs, newIds, axisWeights, redmean, lab,
+                leafCapacity, policy);
+    }
+
+    /**
+     * Вспомогательный метод - начало точек поддерева: точки поддеревьев лежат подряд, в прямом порядке обхода
+     */
+    private int firstPoint(int node) {
+        while (nodes[node * NODE_STRIDE] != LEAF) {
+            node++;
+        }
+        return nodes[node * NODE_STRIDE + 1];
+    }
+
+    /**
+     * Вспомогательный метод - конец точек поддерева
+     */
+    private int lastPoint(int node) {
+        return nodes[(subtreeEnd(node) - 1) * NODE_STRIDE + 2];
+    }
+
+    /**
+     * Вспомогательный метод - номер узла, следующего за поддеревом: самый правый лист поддерева стоит в нём последним
+     */
+    private int subtreeEnd(int node) {
+        while (nodes[node * NODE_STRIDE] != LEAF) {
+            node = nodes[node * NODE_STRIDE + 1];
+        }
+        return node + 1;
+    }
+
+    /**
+     * Геттер количества точек дерева
+     * @return - возвращает количество точек во всех листьях
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Геттер максимального количества точек в листе
+     * @return - возвращает размер листа, с которым построено дерево
+     */
+    int getLeafCapacity() {
+        return leafCapacity;
+    }
+
+    /**
+     * Геттер способа деления вёдер
+     * @return - возвращает способ, которым построено дерево
+     */
+    SplitPolicy getSplitPolicy() {
+        return policy;
+    }
+
+    /**
+     * Основной метод дерева - поиск ближайшей точки методом ветвей и границ. Сначала обходится
+     * поддерево по ту же сторону плоскости, что и искомая точка, а другое поддерево обходится, только если
+     * плоскость ближе уже найденной точки
+     * @param r - интенсивность красного цвета
+     * @param g - интенсивность зелёного цвета
+     * @param b - интенсивность голубого цвета
+     * @return - метод возвращает индекс ближайшей точки в палитре; при равных расстояниях - наименьший
+     */
+    int nearest(int r, int g, int b) {
+        return (int) nearest(0, r, g, b, NOTHING_FOUND, null);
+    }
+
+    /**
+     * Метод поиска ближайшей точки по координатам в пространстве дерева, например в CIELAB
+     * @return - метод возвращает индекс ближайшей точки в палитре; при равных расстояниях - наименьший
+     */
+    int nearest(float x, float y, float z) {
+        return (int) nearest(0, x, y, z, NOTHING_FOUND, null);
+    }
+
+    /**
+     * Метод поиска ближайшей точки с подсчётом посещённых вёдер и просмотренных точек
+     * @param stats - счётчики поиска
+     * @return - метод возвращает индекс ближайшей точки в палитре; при равных расстояниях - наименьший
+     */
+    int nearest(float x, float y, float z, SearchStats stats) {
+        return (int) nearest(0, x, y, z, NOTHING_FOUND, stats);
+    }
+
+    /**
+     * Рекурсивная часть поиска. Лучший результат передаётся одним числом: в старших битах квадрат расстояния,
+     * в младших - индекс, так что сравнение чисел сравнивает сначала расстояние, а потом индекс
+     * @param node - номер узла
+     * @param best - лучший найденный результат
+     * @param stats - счётчики поиска или null, если статистика не нужна
+     * @return - метод возвращает лучший результат с учётом точек узла
+     */
+    private long nearest(int node, float x, float y, float z, long best, SearchStats stats) {
+        int base = node * NODE_STRIDE;
+        int axis = nodes[base];
+        if (axis == LEAF) {
+            if (stats != null) {
+                stats.visit(nodes[base + 2] - nodes[base + 1]);
+            }
+            return redmean ? nearestRedmean(base, x, y, z, best) : nearestInLeaf(base, x, y, z, best);
+        }
+        float coordinate = axis == 0 ? x : (axis == 1 ? y : z);
+        float leftGap = Math.max(0f, coordinate - planes[2 * node]);       // расстояние до точек слева
+        float rightGap = Math.max(0f, planes[2 * node + 1] - coordinate);  // и справа от плоскости
+        float weight = axisWeights[axis];
+        int left = node + 1;
+        int right = nodes[base + 1];
+        if (leftGap <= rightGap) {
+            best = nearest(left, x, y, z, best, stats);
+            if (weight * rightGap * rightGap <= distanceOf(best)) {      // равенство тоже проверяем - там может быть индекс меньше
+                best = nearest(right, x, y, z, best, stats);
+            }
+        } else {
+            best = nearest(right, x, y, z, best, stats);
+            if (weight * leftGap * leftGap <= distanceOf(best)) {
+                best = nearest(left, x, y, z, best, stats);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Метод поиска нескольких ближайших точек или всех точек в радиусе. Устроен так же, как поиск одной точки,
+     * только поддерево отбрасывается, если плоскость дальше границы накопителя
+     * @param neighbors - накопитель, в который складываются найденные точки
+     */
+    void collect(float x, float y, float z, Neighbors neighbors) {
+        collect(0, x, y, z, neighbors);
+    }
+
+    private void collect(int node, float x, float y, float z, Neighbors neighbors) {
+        int base = node * NODE_STRIDE;
+        int axis = nodes[base];
+        if (axis == LEAF) {
+            for (int i = nodes[base + 1], to = nodes[base + 2]; i < to; i++) {
+                float dx = xs[i] - x;
+                float dy = ys[i] - y;
+                float dz = zs[i] - z;
+                neighbors.offer(redmean ? ColorMetric.redmeanDistance(dx, dy, dz, (xs[i] + x) * 0.5f)
+                        : dx * dx + dy * dy + dz * dz, ids[i]);
+            }
+            return;
+        }
+        float coordinate = axis == 0 ? x : (axis == 1 ? y : z);
+        float leftGap = Math.max(0f, coordinate - planes[2 * node]);
+        float rightGap = Math.max(0f, planes[2 * node + 1] - coordinate);
+        float weight = axisWeights[axis];
+        int left = node + 1;
+        int right = nodes[base + 1];
+        boolean leftFirst = leftGap <= rightGap;
+        collect(leftFirst ? left : right, x, y, z, neighbors);
+        float gap = leftFirst ? rightGap : leftGap;
+        if (weight * gap * gap <= neighbors.bound()) {
+            collect(leftFirst ? right : left, x, y, z, neighbors);
+        }
+    }
+
+    /**
+     * Перебор точек листа по евклидову расстоянию
+     */
+    private long nearestInLeaf(int base, float x, float y, float z, long best) {
+        for (int i = nodes[base + 1], to = nodes[base + 2]; i < to; i++) {
+            float dx = xs[i] - x;
+            float dy = ys[i] - y;
+            float dz = zs[i] - z;
+            long candidate = ((long) Float.floatToRawIntBits(dx * dx + dy * dy + dz * dz) << 32) | ids[i];
+            if (candidate < best) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Перебор точек листа по расстоянию "redmean"
+     */
+    private long nearestRedmean(int base, float x, float y, float z, long best) {
+        for (int i = nodes[base + 1], to = nodes[base + 2]; i < to; i++) {
+            float distance = ColorMetric.redmeanDistance(xs[i] - x, ys[i] - y, zs[i] - z, (xs[i] + x) * 0.5f);
+            long candidate = ((long) Float.floatToRawIntBits(distance) << 32) | ids[i];
+            if (candidate < best) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Вспомогательный метод - извлечение квадрата расстояния из упакованного результата
+     */
+    private static float distanceOf(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    /**
+     * Геттер количества листьев (вёдер) дерева
+     * @return - возвращает количество листьев
+     */
+    int getBucketCount() {
+        int count = 0;
+        for (int i = 0; i < nodes.length; i += NODE_STRIDE) {
+            if (nodes[i] == LEAF) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Геттер глубины дерева
+     * @return - возвращает количество узлов на самом длинном пути от корня до листа
+     */
+    int getDepth() {
+        return depth(0);
+    }
+
+    private int depth(int node) {
+        if (nodes[node * NODE_STRIDE] == LEAF) {
+            return 1;
+        }
+        return 1 + Math.max(depth(node + 1), depth(nodes[node * NODE_STRIDE + 1]));
+    }
+
+    /**
+     * Метод подсчёта заполненности вёдер
+     * @return - метод возвращает массив, в котором элемент n - количество листьев ровно с n точками
+     */
+    long[] getOccupancyHistogram() {
+        int largest = 0;
+        for (int i = 0; i < nodes.length; i += NODE_STRIDE) {
+            if (nodes[i] == LEAF) {
+                largest = Math.max(largest, nodes[i + 2] - nodes[i + 1]);
+            }
+        }
+        long[] histogram = new long[largest + 1];
+        for (int i = 0; i < nodes.length; i += NODE_STRIDE) {
+            if (nodes[i] == LEAF) {
+                histogram[nodes[i + 2] - nodes[i + 1]]++;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Вспомогательный метод - учитывает координаты точек в разбросе ведра
+     * @return - возвращает то же ведро, уже с разбросом точек
+     */
+    private static BucketOfColor fill(BucketOfColor bucket, int[] members, int[][] grid) {
+        for (int member : members) {
+            bucket.addCoordinates(grid[member]);
+        }
+        return bucket;
+    }
+
+    /**
+     * Вспомогательный класс для построения дерева. Заполняет массивы узлов и точек
+     * по мере рекурсивного деления вёдер
+     */
+    private static final class Builder {
+        /** Целые координаты точек, по которым делятся вёдра */
+        private final int[][] grid;
+        /** Точные координаты точек в пространстве дерева, по осям */
+        private final float[][] space;
+        private final int maxPointsCount;
+        private final SplitPolicy policy;
+        private final int[] nodes;
+        private final float[] planes;
+        private final float[] xs;
+        private final float[] ys;
+        private final float[] zs;
+        private final int[] ids;
+        private int nodeCount;
+        private int pointCount;
+
+        private Builder(int[][] grid, float[][] space, int maxPointsCount, SplitPolicy policy) {
+            this.grid = grid;
+            this.space = space;
+            this.maxPointsCount = maxPointsCount;
+            this.policy = policy;
+            int maxNodes = 2 * grid.length + 1;     // каждое деление даёт два непустых ведра
+            this.nodes = new int[maxNodes * NODE_STRIDE];
+            this.planes = new float[maxNodes * 2];
+            this.xs = new float[grid.length];
+            this.ys = new float[grid.length];
+            this.zs = new float[grid.length];
+            this.ids = new int[grid.length];
+        }
+
+        /**
+         * Метод построения узла. Ось и плоскость деления выбираются по {@link SplitPolicy}; по умолчанию - так же,
+         * как при распределении точек по вёдрам: по оси с наибольшим разбросом и по плоскости
+         * из {@link BucketOfColor#getBoundPlane(int)}. Если все точки оказались по одну сторону,
+         * то дальше делится непустая половина
+         * @param bucket - ведро с точками узла
+         * @param members - индексы точек ведра в палитре
+         * @return - метод возвращает номер построенного узла
+         */
+        private int buildNode(BucketOfColor bucket, int[] members) {
+            int node = nodeCount++;
+            while (members.length > maxPointsCount) {
+                long plane = choosePlane(bucket, members);
+                int axis = (int) (plane >>> 32);
+                int bound = (int) plane;
+                int leftCount = 0;
+                for (int member : members) {
+                    if (grid[member][axis] <= bound) {
+                        leftCount++;
+                    }
+                }
+                int[] leftBound = bucket.getEndCoordinates().clone();     // у условно левой части изменится конечная координата
+                int[] rightBound = bucket.getStartCoordinates().clone();  // у условно правой части начальная координата
+                leftBound[axis] = bound;
+                rightBound[axis] = bound + 1;
+                BucketOfColor leftBucket = new BucketOfColor(bucket.getStartCoordinates(), leftBound);
+                BucketOfColor rightBucket = new BucketOfColor(rightBound, bucket.getEndCoordinates());
+                if (leftCount == 0 || leftCount == members.length) {   // плоскость ничего не разделила
+                    BucketOfColor narrower = leftCount == 0 ? rightBucket : leftBucket;
+                    if (Arrays.equals(narrower.getStartCoordinates(), bucket.getStartCoordinates())
+                            && Arrays.equals(narrower.getEndCoordinates(), bucket.getEndCoordinates())) {
+                        break;                       // сужать некуда - все точки совпадают, пусть лежат в одном листе
+                    }
+                    bucket = fill(narrower, members, grid);
+                    continue;
+                }
+                int[] leftMembers = new int[leftCount];
+                int[] rightMembers = new int[members.length - leftCount];
+                int leftIndex = 0;
+                int rightIndex = 0;
+                float leftMax = Float.NEGATIVE_INFINITY;
+                float rightMin = Float.POSITIVE_INFINITY;
+                for (int member : members) {
+                    float coordinate = space[axis][member];
+                    if (grid[member][axis] <= bound) {
+                        leftMembers[leftIndex++] = member;
+                        leftMax = Math.max(leftMax, coordinate);
+                    } else {
+                        rightMembers[rightIndex++] = member;
+                        rightMin = Math.min(rightMin, coordinate);
+                    }
+                }
+                nodes[node * NODE_STRIDE] = axis;
+                planes[2 * node] = leftMax;
+                planes[2 * node + 1] = rightMin;
+                buildNode(fill(leftBucket, leftMembers, grid), leftMembers);     // левый потомок - следующий узел
+                nodes[node * NODE_STRIDE + 1] = buildNode(fill(rightBucket, rightMembers, grid), rightMembers);
+                return node;
+            }
+            nodes[node * NODE_STRIDE] = LEAF;
+            nodes[node * NODE_STRIDE + 1] = pointCount;
+            for (int member : members) {
+                xs[pointCount] = space[0][member];
+                ys[pointCount] = space[1][member];
+                zs[pointCount] = space[2][member];
+                ids[pointCount++] = member;
+            }
+            nodes[node * NODE_STRIDE + 2] = pointCount;
+            return node;
+        }
+
+        /**
+         * Метод выбора плоскости деления. Точки с целой координатой по оси не больше границы уходят влево
+         * @param bucket - ведро с точками узла
+         * @param members - индексы точек ведра
+         * @return - метод возвращает ось в старших 32 битах и границу в младших
+         */
+        private long choosePlane(BucketOfColor bucket, int[] members) {
+            int axis = bucket.getBestColorAxis();
+            if (policy == SplitPolicy.MEDIAN) {
+                int[] coordinates = new int[members.length];
+                for (int i = 0; i < members.length; i++) {
+                    coordinates[i] = grid[members[i]][axis];
+                }
+                Arrays.sort(coordinates);
+                int median = (members.length - 1) / 2;
+                int last = coordinates[members.length - 1];
+                while (median > 0 && coordinates[median] == last) {    // справа должна остаться хотя бы одна точка
+                    median--;
+                }
+                return ((long) axis << 32) | coordinates[median];
+            }
+            if (policy == SplitPolicy.SURFACE_AREA) {
+                long plane = cheapestSurfacePlane(members);
+                if (plane >= 0) {
+                    return plane;
+                }
+            }
+            return ((long) axis << 32) | bucket.getBoundPlane(axis);
+        }
+
+        /**
+         * Метод перебора плоскостей между соседними по каждой оси точками. Стоимость плоскости - сумма
+         * произведений количества точек на площадь поверхности их охватывающего параллелепипеда по обе стороны.
+         * Площади всех плоскостей оси считаются за два прохода по отсортированным точкам
+         * @param members - индексы точек ведра
+         * @return - метод возвращает ось и границу самой дешёвой плоскости или -1, если все точки совпадают
+         */
+        private long cheapestSurfacePlane(int[] members) {
+            int count = members.length;
+            long[] sorted = new long[count];
+            double[] suffixArea = new double[count];
+            double bestCost = Double.POSITIVE_INFINITY;
+            long best = -1;
+            for (int axis = 0; axis < 3; axis++) {
+                for (int i = 0; i < count; i++) {
+                    sorted[i] = ((long) grid[members[i]][axis] << 32) | i;
+                }
+                Arrays.sort(sorted);
+                int[] min = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+                int[] max = {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+                for (int i = count - 1; i > 0; i--) {
+                    extend(min, max, grid[members[(int) sorted[i]]]);
+                    suffixArea[i] = surfaceArea(min, max);
+                }
+                Arrays.fill(min, Integer.MAX_VALUE);
+                Arrays.fill(max, Integer.MIN_VALUE);
+                for (int i = 0; i < count - 1; i++) {
+                    extend(min, max, grid[members[(int) sorted[i]]]);
+                    int coordinate = (int) (sorted[i] >>> 32);
+                    if (coordinate == (int) (sorted[i + 1] >>> 32)) {
+                        continue;                    // плоскость не может пройти между точками с одной координатой
+                    }
+                    double cost = (i + 1) * surfaceArea(min, max) + (count - i - 1) * suffixArea[i + 1];
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = ((long) axis << 32) | coordinate;
+                    }
+                }
+            }
+            return best;
+        }
+
+        private static void extend(int[] min, int[] max, int[] coordinates) {
+            for (int i = 0; i < 3; i++) {
+                min[i] = Math.min(min[i], coordinates[i]);
+                max[i] = Math.max(max[i], coordinates[i]);
+            }
+        }
+
+        private static double surfaceArea(int[] min, int[] max) {
+            double dx = max[0] - min[0] + 1;             // +1, чтобы у плоского облака точек площадь не обнулялась
+            double dy = max[1] - min[1] + 1;
+            double dz = max[2] - min[2] + 1;
+            return 2 * (dx * dy + dy * dz + dz * dx);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ru.folko85.tableofcolor;
+
+/**
+ * Вспомогательный класс библиотеки - перевод цветов sRGB в пространство CIELAB (белая точка D65)
+ * и формула ΔE 2000. Снятие гамма-коррекции sRGB берётся из заранее вычисленной таблицы на 256 значений,
+ * так что перевод цвета стоит девяти умножений и трёх кубических корней.
+ * Чтобы не создавать массив на каждый цвет, перевод разбит на три функции f(X), f(Y), f(Z),
+ * из которых L, a и b получаются методами {@link #lightness(float)}, {@link #a(float, float)} и {@link #b(float, float)}
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class CieLab {
+    /** Линейная интенсивность для каждого из 256 значений канала sRGB */
+    private static final float[] LINEAR = new float[256];
+    /** Наибольший коэффициент S_L в формуле ΔE 2000 (при L = 0 и L = 100 он равен 1.7471) с запасом */
+    static final double MAX_LIGHTNESS_WEIGHT = 1.75;
+    private static final double POW_25_7 = Math.pow(25, 7);
+    private static final float EPSILON = 216f / 24389f;
+    private static final float KAPPA = 24389f / 27f;
+
+    static {
+        for (int i = 0; i < LINEAR.length; i++) {
+            double c = i / 255.0;
+            LINEAR[i] = (float) (c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4));
+        }
+    }
+
+    private CieLab() {
+    }
+
+    /**
+     * Функции f(X/Xn), f(Y/Yn), f(Z/Zn) для упакованного кода 0xRRGGBB. Строки матрицы sRGB → XYZ
+     * поделены на координаты белой точки, так что белый переходит ровно в (100, 0, 0)
+     */
+    static float fx(int rgb) {
+        return f((0.4124564f * LINEAR[(rgb >>> 16) & 0xFF] + 0.3575761f * LINEAR[(rgb >>> 8) & 0xFF] + 0.1804375f * LINEAR[rgb & 0xFF]) / 0.9504700f);
+    }
+
+    static float fy(int rgb) {
+        return f(0.2126729f * LINEAR[(rgb >>> 16) & 0xFF] + 0.7151522f * LINEAR[(rgb >>> 8) & 0xFF] + 0.0721750f * LINEAR[rgb & 0xFF]);
+    }
+
+    static float fz(int rgb) {
+        return f((0.0193339f * LINEAR[(rgb >>> 16) & 0xFF] + 0.1191920f * LINEAR[(rgb >>> 8) & 0xFF] + 0.9503041f * LINEAR[rgb & 0xFF]) / 1.0888300f);
+    }
+
+    private static float f(float t) {
+        return t > EPSILON ? (float) Math.cbrt(t) : (KAPPA * t + 16f) / 116f;
+    }
+
+    static float lightness(float fy) {
+        return 116f * fy - 16f;
+    }
+
+    static float a(float fx, float fy) {
+        return 500f * (fx - fy);
+    }
+
+    static float b(float fy, float fz) {
+        return 200f * (fy - fz);
+    }
+
+    /**
+     * Метод перевода всей палитры в CIELAB. Делается один раз при создании таблицы
+     * @param paletteRgb - упакованные коды цветов палитры
+     * @return - метод возвращает три массива: L, a и b для каждого цвета палитры
+     */
+    static float[][] toLab(int[] paletteRgb) {
+        float[][] lab = new float[3][paletteRgb.length];
+        for (int i = 0; i < paletteRgb.length; i++) {
+            float fy = fy(paletteRgb[i]);
+            lab[0][i] = lightness(fy);
+            lab[1][i] = a(fx(paletteRgb[i]), fy);
+            lab[2][i] = b(fy, fz(paletteRgb[i]));
+        }
+        return lab;
+    }
+
+    /**
+     * Метод вычисления квадрата ΔE 2000 по формуле CIE (в записи Шармы, Ву и Далала).
+     * Квадрат не меньше (ΔL / S_L)², то есть (ΔL / {@link #MAX_LIGHTNESS_WEIGHT})² - слагаемое
+     * с поворотом R_T не может сделать сумму хроматических слагаемых отрицательной
+     * @return - метод возвращает квадрат ΔE 2000
+     */
+    static double deltaE2000Squared(double l1, double a1, double b1, double l2, double a2, double b2) {
+        return deltaE2000Squared(l1, a1, b1, l2, a2, b2, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Метод вычисления квадрата ΔE 2000 с досрочным выходом. До тригонометрии по тону вычисляется нижняя граница:
+     * |R_T| ≤ R_C · sin 60°, поэтому хроматическая часть не меньше (1 - R_C · sin 60° / 2) · (ΔC'² + ΔH'²) / S_C²,
+     * где ΔC'² + ΔH'² = Δa'² + Δb², а S_H ≤ S_C. Если граница больше порога, то она и возвращается
+     * @param cutoff - порог: расстояния больше него не интересны
+     * @return - метод возвращает квадрат ΔE 2000 или число больше порога, не превосходящее квадрат ΔE 2000
+     */
+    static double deltaE2000Squared(double l1, double a1, double b1, double l2, double a2, double b2, double cutoff) {
+        double cMean7 = pow7((Math.sqrt(a1 * a1 + b1 * b1) + Math.sqrt(a2 * a2 + b2 * b2)) / 2);
+        double g = 0.5 * (1 - Math.sqrt(cMean7 / (cMean7 + POW_25_7)));
+        double a1p = (1 + g) * a1;
+        double a2p = (1 + g) * a2;
+        double c1p = Math.sqrt(a1p * a1p + b1 * b1);
+        double c2p = Math.sqrt(a2p * a2p + b2 * b2);
+        double cpMean = (c1p + c2p) / 2;
+        double cpMean7 = pow7(cpMean);
+        double rc = 2 * Math.sqrt(cpMean7 / (cpMean7 + POW_25_7));
+        double lm50 = (l1 + l2) / 2 - 50;
+        double sl = 1 + 0.015 * lm50 * lm50 / Math.sqrt(20 + lm50 * lm50);
+        double sc = 1 + 0.045 * cpMean;
+        double dl = (l2 - l1) / sl;
+        double dap = a2p - a1p;
+        double db = b2 - b1;
+        double bound = dl * dl + (1 - 0.4331 * rc) * (dap * dap + db * db) / (sc * sc);
+        if (bound > cutoff) {
+            return bound;
+        }
+        double h1p = hueAngle(a1p, b1);
+        double h2p = hueAngle(a2p, b2);
+        boolean achromatic = c1p * c2p == 0;
+        double dhp = achromatic ? 0 : h2p - h1p;
+        if (dhp > 180) {
+            dhp -= 360;
+        } else if (dhp < -180) {
+            dhp += 360;
+        }
+        double dHp = 2 * Math.sqrt(c1p * c2p) * Math.sin(Math.toRadians(dhp / 2));
+        double hpMean;
+        if (achromatic) {
+            hpMean = h1p + h2p;
+        } else if (Math.abs(h1p - h2p) <= 180) {
+            hpMean = (h1p + h2p) / 2;
+        } else {
+            hpMean = (h1p + h2p + (h1p + h2p < 360 ? 360 : -360)) / 2;
+        }
+        double t = 1 - 0.17 * Math.cos(Math.toRadians(hpMean - 30)) + 0.24 * Math.cos(Math.toRadians(2 * hpMean))
+                + 0.32 * Math.cos(Math.toRadians(3 * hpMean + 6)) - 0.20 * Math.cos(Math.toRadians(4 * hpMean - 63));
+        double sh = 1 + 0.015 * cpMean * t;
+        double hueOffset = (hpMean - 275) / 25;
+        double dTheta = 30 * Math.exp(-hueOffset * hueOffset);
+        double rt = -rc * Math.sin(Math.toRadians(2 * dTheta));
+        double dc = (c2p - c1p) / sc;
+        double dh = dHp / sh;
+        return dl * dl + dc * dc + dh * dh + rt * dc * dh;
+    }
+
+    /**
+     * Седьмая степень умножениями - Math.pow здесь заметно медленнее
+     */
+    private static double pow7(double x) {
+        double x2 = x * x;
+        return x2 * x2 * x2 * x;
+    }
+
+    private static double hueAngle(double a, double b) {
+        if (a == 0 && b == 0) {
+            return 0;
+        }
+        double h = Math.toDegrees(Math.atan2(b, a));
+        return h < 0 ? h + 360 : h;
+    }
+}
@@ -0,0 +1,127 @@
+package ru.folko85.tableofcolor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Вспомогательный класс библиотеки - кэш результатов поиска ограниченного размера.
+ * Кэш наборно-ассоциативный: код цвета определяет набор из {@link #WAYS} ячеек, в одной из которых
+ * может лежать результат. Каждая ячейка - одно число long (код, индекс и два служебных бита), поэтому
+ * чтение и запись обходятся без блокировок, а вытеснение работает как "часы" (CLOCK): у недавно
+ * прочитанной ячейки есть второй шанс
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class ColorCache {
+    /** Максимальный размер кэша */
+    static final int MAX_CAPACITY = 1 << 26;
+    /** Количество ячеек в наборе */
+    static final int WAYS = 4;
+    /** Младшие 24 бита ячейки - код цвета 0xRRGGBB */
+    private static final long KEY_MASK = 0xFFFFFFL;
+    /** Бит занятой ячейки - чтобы пустая ячейка не совпала с кодом 000000 */
+    private static final long VALID = 1L << 24;
+    /** Бит недавнего чтения, дающий ячейке второй шанс при вытеснении */
+    private static final long REFERENCED = 1L << 25;
+    /** Старшие 32 бита ячейки - индекс цвета в палитре */
+    private static final int INDEX_SHIFT = 32;
+    /** Поле - ячейки кэша */
+    private final AtomicLongArray slots;
+    /** Поле - маска номера набора */
+    private final int setMask;
+    /** Счётчики попаданий, промахов и вытеснений */
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Конструктор - создание пустого кэша
+     * @param capacity - желаемое количество результатов, округляется вверх до степени двойки, не меньше {@link #WAYS}
+     */
+    ColorCache(int capacity) {
+        int size = Math.max(WAYS, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        this.slots = new AtomicLongArray(size);
+        this.setMask = size / WAYS - 1;
+    }
+
+    /**
+     * Метод чтения результата
+     * @param rgb - код цвета 0xRRGGBB
+     * @return - метод возвращает индекс цвета в палитре или -1, если результата в кэше нет
+     */
+    int get(int rgb) {
+        int base = setOf(rgb);
+        for (int way = 0; way < WAYS; way++) {
+            long slot = slots.get(base + way);
+            if ((slot & (VALID | KEY_MASK)) == (VALID | rgb)) {
+                if ((slot & REFERENCED) == 0) {
+                    slots.compareAndSet(base + way, slot, slot | REFERENCED);  // не удалось - значит, кто-то уже отметил
+                }
+                hits.increment();
+                return (int) (slot >>> INDEX_SHIFT);
+            }
+        }
+        misses.increment();
+        return -1;
+    }
+
+    /**
+     * Метод записи результата. Занимается пустая ячейка набора, а если пустых нет - первая ячейка,
+     * которую не читали с прошлого обхода; у прочитанных по пути ячеек снимается отметка о чтении
+     * @param rgb - код цвета 0xRRGGBB
+     * @param index - индекс ближайшего цвета в палитре
+     */
+    void put(int rgb, int index) {
+        int base = setOf(rgb);
+        long entry = ((long) index << INDEX_SHIFT) | VALID | rgb;
+        int victim = base;
+        for (int way = 0; way < WAYS; way++) {
+            long slot = slots.get(base + way);
+            if ((slot & VALID) == 0) {
+                slots.compareAndSet(base + way, slot, entry);
+                return;
+            }
+            if ((slot & REFERENCED) != 0) {
+                slots.compareAndSet(base + way, slot, slot & ~REFERENCED);   // второй шанс
+            } else {
+                victim = base + way;
+                break;
+            }
+        }
+        long old = slots.get(victim);
+        if (slots.compareAndSet(victim, old, entry) && (old & VALID) != 0) {  // гонку проиграли - не беда, это кэш
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Метод вычисления первой ячейки набора. Код перемешивается, чтобы соседние цвета
+     * не попадали в один набор
+     */
+    private int setOf(int rgb) {
+        int hash = rgb * 0x9E3779B9;
+        return ((hash ^ (hash >>> 16)) & setMask) * WAYS;
+    }
+
+    /**
+     * Геттер количества ячеек кэша
+     * @return - возвращает количество ячеек
+     */
+    int getCapacity() {
+        return slots.length();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.folko85.tableofcolor;
+
+/**
+ * Класс результата поиска нескольких цветов - именованный цвет палитры и его расстояние до искомого.
+ * Расстояние измеряется метрикой таблицы: для EUCLIDEAN_RGB это обычное евклидово расстояние от 0 до 255√3 ≈ 441,7,
+ * для REDMEAN сумма весов осей почти 9, так что расстояние доходит почти до 765, для CIE76 и CIEDE2000 - ΔE.
+ * В результатах поиска по названию расстояние - число правок в названии
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public final class ColorMatch {
+    /** Поле - индекс цвета в палитре */
+    private final int index;
+    /** Поле - название цвета */
+    private final String colorName;
+    /** Поле - упакованный код цвета 0xRRGGBB */
+    private final int rgb;
+    /** Поле - расстояние до искомого цвета */
+    private final double distance;
+
+    ColorMatch(int index, String colorName, int rgb, double distance) {
+        this.index = index;
+        this.colorName = colorName;
+        this.rgb = rgb;
+        this.distance = distance;
+    }
+
+    /**
+     * Геттер индекса цвета в палитре
+     * @return - возвращает индекс, по которому таблица отдаёт название и код
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Геттер названия цвета
+     * @return - возвращает название именованного цвета
+     */
+    public String getColorName() {
+        return colorName;
+    }
+
+    /**
+     * Геттер кода цвета
+     * @return - возвращает упакованный код цвета 0xRRGGBB
+     */
+    public int getRgb() {
+        return rgb;
+    }
+
+    /**
+     * Геттер шестнадцатеричного кода цвета
+     * @return - возвращает шестизначный код в нижнем регистре, без #
+     */
+    public String getHexCode() {
+        return ColorPoint.rgbToHex(rgb >>> 16, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    /**
+     * Геттер расстояния до искомого цвета
+     * @return - возвращает расстояние в единицах метрики таблицы
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return colorName + " #" + getHexCode() + " (" + String.format(java.util.Locale.ROOT, "%.2f", distance) + ")";
+    }
+}
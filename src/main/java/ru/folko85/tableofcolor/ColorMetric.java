@@ -0,0 +1,43 @@
+package ru.folko85.tableofcolor;
+
+/**
+ * Перечисление способов измерения расстояния между цветами.
+ * Евклидово расстояние в RGB самое быстрое, но глаз воспринимает цвета иначе: например, два оттенка
+ * синего с одинаковым расстоянием в RGB могут выглядеть куда ближе, чем два оттенка зелёного.
+ * Остальные метрики ближе к восприятию, а поиск по ним лишь немного медленнее
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public enum ColorMetric {
+    /** Евклидово расстояние в RGB - метрика по умолчанию */
+    EUCLIDEAN_RGB,
+    /** Взвешенное расстояние в RGB "redmean": вес красного и голубого зависит от средней интенсивности красного */
+    REDMEAN,
+    /** Евклидово расстояние в пространстве CIELAB - ΔE 1976 */
+    CIE76,
+    /** Расстояние ΔE 2000 в пространстве CIELAB - самая точная и самая дорогая из метрик */
+    CIEDE2000;
+
+    /**
+     * Метод проверки, в каком пространстве ищутся цвета
+     * @return - метод возвращает true, если палитра и искомые цвета переводятся в CIELAB
+     */
+    boolean isLab() {
+        return this == CIE76 || this == CIEDE2000;
+    }
+
+    /**
+     * Статический метод вычисления квадрата расстояния "redmean". Каждое слагаемое не меньше
+     * 2dr², 4dg² и 2db² соответственно - на этом держатся границы в kd-дереве
+     * @param dr - разность интенсивностей красного
+     * @param dg - разность интенсивностей зелёного
+     * @param db - разность интенсивностей голубого
+     * @param rMean - средняя интенсивность красного двух цветов
+     * @return - метод возвращает квадрат расстояния
+     */
+    static float redmeanDistance(float dr, float dg, float db, float rMean) {
+        return (2f + rMean / 256f) * dr * dr + 4f * dg * dg + (2f + (255f - rMean) / 256f) * db * db;
+    }
+}
@@ -0,0 +1,592 @@
+package ru.folko85.tableofcolor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Класс командной строки - потоковое именование цветов в больших выгрузках.
+ * Вход (файлы или стандартный ввод) читается блоками по {@link #BLOCK_SIZE} байт, каждый блок заканчивается
+ * на границе строки; файлы отображаются в память, ввод читается через канал. Блоки разбираются и ищутся
+ * в таблице в пуле потоков, а результаты пишутся строго в порядке входа. В обработке одновременно
+ * не больше двух блоков на поток, так что память не зависит от размера выгрузки.
+ * К каждой строке с кодом цвета дописывается название ближайшего именованного цвета: в CSV и TSV - последним
+ * столбцом, в NDJSON - полем "colorName". Строки без кода (например, заголовок) выводятся без изменений.
+ * Переводы строк (\n или \r\n) сохраняются; только последней строке без перевода дописывается \n,
+ * чтобы выводы нескольких файлов не склеивались.
+ * В конце в стандартный поток ошибок выводится производительность
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public final class ColorNamer {
+    /** Размер блока входа */
+    static final int BLOCK_SIZE = 1 << 20;
+    /** Код завершения при ошибке ввода-вывода */
+    static final int EXIT_IO_ERROR = 1;
+    /** Код завершения при ошибке в параметрах */
+    static final int EXIT_USAGE = 2;
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Использование: java -jar ColorTable.jar [параметры] [файл ...]",
+            "Без файлов или с файлом \"-\" читается стандартный ввод.",
+            "  --locale <язык>       встроенная палитра: en или ru (по умолчанию en)",
+            "  --palette <файл>      своя палитра: .yml, .csv или .ctpl",
+            "  --metric <метрика>    EUCLIDEAN_RGB, REDMEAN, CIE76 или CIEDE2000",
+            "  --dense               построить плотную таблицу поиска",
+            "  --index <файл>        файл индекса плотной таблицы",
+            "  --cache <размер>      кэш результатов на указанное количество кодов",
+            "  --threads <n>         количество потоков (по умолчанию - по числу ядер)",
+            "  --format <формат>     csv, tsv или ndjson (по умолчанию csv)",
+            "  --output <файл>       куда писать результат (по умолчанию стандартный вывод)",
+            "  --quiet               не выводить производительность",
+            "Переводы строк сохраняются; к последней строке без перевода дописывается \\n.");
+
+    /**
+     * Формат вывода - как название цвета дописывается к строке
+     */
+    enum Format {
+        CSV, TSV, NDJSON
+    }
+
+    /** Поле - таблица, в которой ищутся цвета */
+    private final TableOfColor table;
+    /** Поле - формат вывода */
+    private final Format format;
+    /** Поле - готовые байты, дописываемые к строке, для каждого индекса палитры */
+    private final byte[][] suffixes;
+
+    /**
+     * Конструктор - подготовка именования
+     * @param table - таблица, в которой ищутся цвета
+     * @param format - формат вывода
+     */
+    ColorNamer(TableOfColor table, Format format) {
+        this.table = table;
+        this.format = format;
+        this.suffixes = new byte[table.getPaletteSize()][];
+        for (int i = 0; i < suffixes.length; i++) {         // названия кодируются один раз, а не в каждой строке
+            suffixes[i] = suffix(table.nameOf(i), format).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Точка входа командной строки
+     * @param args - параметры и файлы, см. --help
+     */
+    public static void main(String[] args) {
+        int code = run(args, System.in, System.out, System.err);
+        if (code != 0) {
+            System.exit(code);
+        }
+    }
+
+    /**
+     * Метод запуска именования с заданными потоками вместо стандартных
+     * @param args - параметры и файлы
+     * @param in - стандартный ввод
+     * @param out - стандартный вывод
+     * @param err - поток для сообщений и производительности
+     * @return - метод возвращает код завершения: 0 - успех, {@link #EXIT_IO_ERROR}, {@link #EXIT_USAGE}
+     */
+    static int run(String[] args, InputStream in, OutputStream out, PrintStream err) {
+        TableSettings settings = new TableSettings();
+        Locale locale = Locale.ENGLISH;
+        Path palette = null;
+        Path output = null;
+        Format format = Format.CSV;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean quiet = false;
+        List<String> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--locale":
+                        locale = Locale.forLanguageTag(value(args, ++i));
+                        break;
+                    case "--palette":
+                        palette = Path.of(value(args, ++i));
+                        break;
+                    case "--metric":
+                        settings.setMetric(ColorMetric.valueOf(value(args, ++i).toUpperCase(Locale.ROOT)));
+                        break;
+                    case "--dense":
+                        settings.setDenseLookup(true);
+                        break;
+                    case "--index":
+                        settings.setIndexFile(Path.of(value(args, ++i)));
+                        break;
+                    case "--cache":
+                        settings.setCacheCapacity(Integer.parseInt(value(args, ++i)));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i));
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + threads);
+                        }
+                        break;
+                    case "--format":
+                        format = Format.valueOf(value(args, ++i).toUpperCase(Locale.ROOT));
+                        break;
+                    case "--output":
+                        output = Path.of(value(args, ++i));
+                        break;
+                    case "--quiet":
+                        quiet = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        err.println(USAGE);
+                        return 0;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Неизвестный параметр: " + args[i]);
+                        }
+                        inputs.add(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException ex) {              // в том числе NumberFormatException и неизвестная метрика
+            return usageError(ex, err);
+        }
+        if (inputs.isEmpty()) {
+            inputs.add("-");
+        }
+        try {
+            TableOfColor table;
+            try {
+                table = palette != null ? new TableOfColor(palette, settings) : new TableOfColor(locale, settings);
+            } catch (PaletteFormatException ex) {
+                throw ex;                                     // ошибка в файле палитры - как и ошибка его чтения
+            } catch (IllegalArgumentException ex) {           // нет палитры для языка, палитра не подходит к настройкам
+                return usageError(ex, err);
+            }
+            ColorNamer namer = new ColorNamer(table, format);
+            Statistics statistics = new Statistics();
+            long start = System.nanoTime();
+            WritableByteChannel channel = output != null
+                    ? Files.newByteChannel(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                    : Channels.newChannel(out);
+            ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "color-namer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                for (String input : inputs) {
+                    try (BlockReader reader = input.equals("-") ? new BlockReader(Channels.newChannel(in), false)
+                            : BlockReader.open(Path.of(input))) {
+                        namer.process(reader, channel, pool, 2 * threads, statistics);
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+                if (output != null) {
+                    channel.close();                 // стандартный вывод не закрываем
+                } else {
+                    out.flush();
+                }
+            }
+            if (!quiet) {
+                err.println(statistics.report(System.nanoTime() - start));
+            }
+            return 0;
+        } catch (IOException | UncheckedIOException | PaletteFormatException ex) {
+            err.println("Ошибка: " + ex.getMessage());
+            return EXIT_IO_ERROR;
+        }
+    }
+
+    private static int usageError(IllegalArgumentException ex, PrintStream err) {
+        err.println(ex.getMessage());
+        err.println(USAGE);
+        return EXIT_USAGE;
+    }
+
+    /**
+     * Метод обработки одного входа: блоки разбираются в пуле, а записываются по порядку.
+     * Если в обработке уже inFlight блоков, чтение ждёт записи самого старого
+     * @param reader - источник блоков
+     * @param channel - куда писать результат
+     * @param pool - пул потоков
+     * @param inFlight - наибольшее количество блоков в обработке
+     * @param statistics - счётчики производительности
+     * @throws IOException - если не удалось прочитать вход, обработать блок или записать результат
+     */
+    void process(BlockReader reader, WritableByteChannel channel, ExecutorService pool, int inFlight,
+                 Statistics statistics) throws IOException {
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>(inFlight);
+        ByteBuffer block;
+        while ((block = reader.next()) != null) {
+            if (pending.size() == inFlight) {
+                write(pending.poll(), channel, statistics);
+            }
+            ByteBuffer submitted = block;
+            pending.add(pool.submit(() -> name(submitted)));
+        }
+        while (!pending.isEmpty()) {
+            write(pending.poll(), channel, statistics);
+        }
+    }
+
+    private static void write(Future<Chunk> future, WritableByteChannel channel, Statistics statistics) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Обработка прервана", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Ошибка при обработке блока: " + ex.getCause().getMessage(), ex.getCause());
+        }
+        while (chunk.output.hasRemaining()) {
+            channel.write(chunk.output);
+        }
+        statistics.add(chunk);
+    }
+
+    /**
+     * Метод именования одного блока: строки разбираются, коды ищутся в таблице одним пакетом,
+     * затем собирается вывод точного размера
+     * @param block - блок целых строк; последняя строка может быть без перевода строки
+     * @return - метод возвращает вывод блока и его счётчики
+     */
+    Chunk name(ByteBuffer block) {
+        int from = block.position();
+        int to = block.limit();
+        int[] lineEnds = new int[256];
+        int[] colors = new int[256];
+        int lines = 0;
+        int named = 0;
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && block.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lines == lineEnds.length) {
+                lineEnds = Arrays.copyOf(lineEnds, lines * 2);
+                colors = Arrays.copyOf(colors, lines * 2);
+            }
+            int contentEnd = lineEnd > lineStart && block.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            lineEnds[lines] = contentEnd;
+            int rgb = ColorTokenParser.parse(block, lineStart, contentEnd);
+            colors[lines++] = rgb;
+            if (rgb != ColorTokenParser.NO_COLOR) {
+                named++;
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        int[] pixels = new int[named];                // коды подряд - для пакетного поиска
+        int count = 0;
+        for (int i = 0; i < lines; i++) {
+            if (colors[i] != ColorTokenParser.NO_COLOR) {
+                pixels[count++] = colors[i];
+            }
+        }
+        int[] indexes = new int[named];
+        PixelBatch.findIndexesSequential(table, pixels, indexes, named);
+
+        long size = 0;
+        lineStart = from;
+        count = 0;
+        for (int i = 0; i < lines; i++) {
+            int next = nextLine(block, lineEnds[i], to);
+            size += lineEnds[i] - lineStart + Math.max(1, next - lineEnds[i]);
+            if (colors[i] != ColorTokenParser.NO_COLOR) {
+                size += suffixes[indexes[count++]].length - (insertsIntoEmptyObject(block, lineStart, lineEnds[i]) ? 1 : 0);
+            }
+            lineStart = next;
+        }
+        ByteBuffer output = ByteBuffer.allocate(Math.toIntExact(size));
+        lineStart = from;
+        count = 0;
+        for (int i = 0; i < lines; i++) {
+            int lineEnd = lineEnds[i];
+            if (colors[i] == ColorTokenParser.NO_COLOR) {
+                copy(block, lineStart, lineEnd, output);
+            } else {
+                byte[] suffix = suffixes[indexes[count++]];
+                int insertAt = format == Format.NDJSON ? closingBrace(block, lineStart, lineEnd) : lineEnd;
+                int skip = insertsIntoEmptyObject(block, lineStart, lineEnd) ? 1 : 0;   // в {} поле идёт без запятой
+                copy(block, lineStart, insertAt, output);
+                output.put(suffix, skip, suffix.length - skip);
+                copy(block, insertAt, lineEnd, output);
+            }
+            int next = nextLine(block, lineEnd, to);
+            if (next > lineEnd) {
+                copy(block, lineEnd, next, output);          // исходный перевод строки, \n или \r\n
+            } else {
+                output.put((byte) '\n');                      // последняя строка входа без перевода
+            }
+            lineStart = next;
+        }
+        output.flip();
+        return new Chunk(output, to - from, lines, named);
+    }
+
+    /**
+     * Начало следующей строки после конца содержимого (пропускаются \r и \n), не дальше конца блока
+     */
+    private static int nextLine(ByteBuffer block, int contentEnd, int to) {
+        int position = contentEnd;
+        if (position < to && block.get(position) == '\r') {
+            position++;
+        }
+        return Math.min(position + 1, to);
+    }
+
+    /**
+     * Позиция последней закрывающей скобки объекта NDJSON, перед которой вставляется поле;
+     * если скобки нет, поле дописывается в конец строки
+     */
+    private static int closingBrace(ByteBuffer block, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (block.get(i) == '}') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Проверка, что поле NDJSON вставляется в пустой объект: перед закрывающей скобкой только пробелы и {
+     */
+    private boolean insertsIntoEmptyObject(ByteBuffer block, int from, int to) {
+        if (format != Format.NDJSON) {
+            return false;
+        }
+        int brace = closingBrace(block, from, to);
+        if (brace == to) {
+            return false;
+        }
+        int i = brace - 1;
+        while (i >= from && (block.get(i) == ' ' || block.get(i) == '\t')) {
+            i--;
+        }
+        return i >= from && block.get(i) == '{';
+    }
+
+    private static void copy(ByteBuffer block, int from, int to, ByteBuffer output) {
+        output.put(block.duplicate().position(from).limit(to));
+    }
+
+    /**
+     * Метод построения текста, дописываемого к строке, с экранированием по правилам формата
+     * @param name - название цвета
+     * @param format - формат вывода
+     * @return - метод возвращает текст, дописываемый к строке
+     */
+    static String suffix(String name, Format format) {
+        switch (format) {
+            case TSV:
+                return "\t" + name.replace('\t', ' ');
+            case NDJSON:
+                StringBuilder json = new StringBuilder(",\"colorName\":\"");
+                for (int i = 0; i < name.length(); i++) {
+                    char c = name.charAt(i);
+                    if (c == '"' || c == '\\') {
+                        json.append('\\').append(c);
+                    } else if (c < ' ') {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+                return json.append('"').toString();
+            default:
+                boolean quoted = name.indexOf(',') >= 0 || name.indexOf('"') >= 0;
+                return "," + (quoted ? "\"" + name.replace("\"", "\"\"") + "\"" : name);
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Не указано значение параметра " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    /**
+     * Результат обработки блока
+     */
+    static final class Chunk {
+        /** Поле - вывод блока */
+        final ByteBuffer output;
+        /** Поле - размер блока входа в байтах */
+        final long bytes;
+        /** Поле - количество строк */
+        final int lines;
+        /** Поле - количество строк с кодом цвета */
+        final int named;
+
+        private Chunk(ByteBuffer output, long bytes, int lines, int named) {
+            this.output = output;
+            this.bytes = bytes;
+            this.lines = lines;
+            this.named = named;
+        }
+    }
+
+    /**
+     * Счётчики производительности; обновляются только потоком, который пишет результат
+     */
+    static final class Statistics {
+        /** Поле - прочитано байт */
+        long bytes;
+        /** Поле - прочитано строк */
+        long lines;
+        /** Поле - строк с найденным цветом */
+        long named;
+
+        private void add(Chunk chunk) {
+            bytes += chunk.bytes;
+            lines += chunk.lines;
+            named += chunk.named;
+        }
+
+        /**
+         * Метод построения отчёта о производительности
+         * @param nanos - время работы в наносекундах
+         * @return - метод возвращает строку отчёта
+         */
+        String report(long nanos) {
+            double seconds = Math.max(nanos, 1) / 1e9;
+            return String.format(Locale.ROOT, "Строк: %d, с цветом: %d, без цвета: %d, %.1f Мб за %.3f с: %.0f строк/с, %.1f Мб/с",
+                    lines, named, lines - named, bytes / 1e6, seconds, lines / seconds, bytes / 1e6 / seconds);
+        }
+    }
+
+    /**
+     * Источник блоков входа. Каждый блок заканчивается переводом строки (кроме последнего блока входа),
+     * так что блоки можно обрабатывать независимо. Обычные файлы отображаются в память окнами размером с блок,
+     * остальные входы читаются через канал с переносом неполной строки в следующий блок
+     */
+    static final class BlockReader implements Closeable {
+        /** Поле - канал входа */
+        private final ReadableByteChannel channel;
+        /** Поле - закрывать ли канал вместе с источником; стандартный ввод не закрывается */
+        private final boolean owned;
+        /** Поле - размер файла для отображения в память или -1 для чтения через канал */
+        private final long size;
+        /** Поле - позиция следующего блока в файле */
+        private long position;
+        /** Поле - начало следующего блока, прочитанное вместе с предыдущим */
+        private ByteBuffer carry = ByteBuffer.allocate(0);
+        /** Поле - признак конца входа */
+        private boolean exhausted;
+
+        /**
+         * Конструктор - чтение через канал, например стандартного ввода
+         * @param channel - канал входа
+         * @param owned - true, если канал нужно закрыть вместе с источником
+         */
+        BlockReader(ReadableByteChannel channel, boolean owned) {
+            this.channel = channel;
+            this.owned = owned;
+            this.size = -1;
+        }
+
+        private BlockReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.owned = true;
+            this.size = channel.size();
+        }
+
+        /**
+         * Метод открытия файла: обычный файл отображается в память, остальные (например, каналы) читаются потоком
+         * @param file - путь к файлу
+         * @return - метод возвращает источник блоков
+         * @throws IOException - если файл не удалось открыть
+         */
+        static BlockReader open(Path file) throws IOException {
+            if (Files.isRegularFile(file)) {
+                return new BlockReader(FileChannel.open(file, StandardOpenOption.READ));
+            }
+            return new BlockReader(Files.newByteChannel(file, StandardOpenOption.READ), true);
+        }
+
+        /**
+         * Метод чтения следующего блока
+         * @return - метод возвращает блок целых строк или null, если вход закончился
+         * @throws IOException - если вход не удалось прочитать
+         */
+        ByteBuffer next() throws IOException {
+            return size >= 0 ? nextMapped() : nextRead();
+        }
+
+        private ByteBuffer nextMapped() throws IOException {
+            if (position >= size) {
+                return null;
+            }
+            long window = Math.min(BLOCK_SIZE, size - position);
+            while (true) {
+                ByteBuffer mapped = ((FileChannel) channel).map(FileChannel.MapMode.READ_ONLY, position, window);
+                int end = position + window == size ? (int) window : lastNewline(mapped, 0, (int) window) + 1;
+                if (end > 0) {
+                    position += end;
+                    return mapped.limit(end);
+                }
+                window = Math.min(Math.min(window * 2, size - position), Integer.MAX_VALUE);  // строка длиннее окна
+            }
+        }
+
+        private ByteBuffer nextRead() throws IOException {
+            if (exhausted && !carry.hasRemaining()) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(BLOCK_SIZE, carry.remaining() * 2));
+            buffer.put(carry);
+            while (!exhausted && buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    exhausted = true;
+                }
+            }
+            buffer.flip();
+            int end = exhausted ? buffer.limit() : lastNewline(buffer, 0, buffer.limit()) + 1;
+            if (end == 0) {                          // строка длиннее блока - дочитываем в буфер побольше
+                carry = buffer;
+                return nextRead();
+            }
+            carry = buffer.duplicate().position(end).slice();
+            return buffer.limit(end);
+        }
+
+        private static int lastNewline(ByteBuffer buffer, int from, int to) {
+            for (int i = to - 1; i >= from; i--) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (owned) {
+                channel.close();
+            }
+        }
+    }
+}
@@ -3,42 +3,27 @@ package ru.folko85.tableofcolor;
 /**
  * Вспомогательный класс библиотеки - цвет-точка.
  * Каждый объект является подобием точки с координатами R, G, B, определяющими интенсивность соответствующего
- * цвета, вместо стандартных X, Y, Z и с дополнительным полем - названием именованного цвета
+ * цвета, вместо стандартных X, Y, Z и с дополнительным полем - названием именованного цвета.
+ * Координаты хранятся одним упакованным числом 0xRRGGBB, а шестнадцатеричный код и массив координат
+ * вычисляются по запросу: объект занимает 24 байта вместо прежних полутора сотен вместе со строкой кода
  *
  * @version 1.0.6
  * @author Othernik aka Folko85
  */
 
 public class ColorPoint implements Comparable<ColorPoint> {
-    /**
-     * Все координаты хранятся в массивах, элементы которых соответствуют интенсивности определённого цвета
-     */
-    private static final int R_CODE_INDEX = 0;
-    private static final int G_CODE_INDEX = 1;
-    private static final int B_CODE_INDEX = 2;
     /** Поле с названием именованного цвета */
-    private String colorName;
-    /** Поле с кодом именованого цвета */
-    private final String hexCode;
-    /** Поля с координатами от 0 до 256 */
-    private final int rValue;
-    private final int gValue;
-    private final int bValue;
-    /** массив с теми же координатами */
-    private final int[] coordinates;
+    private final String colorName;
+    /** Поле с упакованным кодом цвета 0xRRGGBB */
+    private final int rgb;
 
     /**
      * Конструктор для создания именованной точки
      * @param colorName - имя цвета-точки
      * @param hexCode - шестизначный шестнадцатеричный код цвета-точки
      */
-    protected ColorPoint(String colorName, String hexCode) {   // для каждого цвета определим все возможные представления параметров
-        this.colorName = colorName;
-        this.hexCode = hexCode;
-        this.coordinates = coordinateFromHex(hexCode);
-        this.rValue = coordinates[R_CODE_INDEX];
-        this.gValue = coordinates[G_CODE_INDEX];
-        this.bValue = coordinates[B_CODE_INDEX];
+    protected ColorPoint(String colorName, String hexCode) {
+        this(colorName, packedFromHex(hexCode));
     }
 
     /**
@@ -46,11 +31,17 @@ public class ColorPoint implements Comparable<ColorPoint> {
      * @param hexCode - шестизначный шестнадцатеричный код цвета-точки
      */
     protected ColorPoint(String hexCode) {   // конструктор для безымянных точек для служебных целей
-        this.hexCode = hexCode;
-        this.coordinates = coordinateFromHex(hexCode);
-        this.rValue = coordinates[R_CODE_INDEX];
-        this.gValue = coordinates[G_CODE_INDEX];
-        this.bValue = coordinates[B_CODE_INDEX];
+        this(null, packedFromHex(hexCode));
+    }
+
+    /**
+     * Конструктор для создания точки по упакованному коду, без разбора строки
+     * @param colorName - имя цвета-точки
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты отбрасываются
+     */
+    ColorPoint(String colorName, int rgb) {
+        this.colorName = colorName;
+        this.rgb = rgb & 0xFFFFFF;
     }
 
     /**
@@ -65,11 +56,45 @@ public class ColorPoint implements Comparable<ColorPoint> {
         return new int[]{r, g, b};
     }
 
+    /**
+     * Статический метод, преобразующий шестнадцатеричный код в упакованное число 0xRRGGBB без создания подстрок.
+     * Регистр букв не важен, ведущий символ # допускается, поэтому "#AB67FA" и "ab67fa" дают одно и то же число
+     * @param hexCode - шестизначный шестнадцатеричный код цвета, возможно с ведущим #
+     * @return - метод возвращает упакованный код цвета
+     */
+    protected static int packedFromHex(CharSequence hexCode) {
+        int start = hexCode.length() > 0 && hexCode.charAt(0) == '#' ? 1 : 0;
+        if (hexCode.length() - start != 6) {
+            throw new NumberFormatException("Ожидается шестизначный шестнадцатеричный код: " + hexCode);
+        }
+        int packed = Integer.parseInt(hexCode, start, start + 6, 16);
+        if (packed < 0 || hexCode.charAt(start) == '+') {     // parseInt пропускает знак, а в коде цвета его быть не может
+            throw new NumberFormatException("Ожидается шестизначный шестнадцатеричный код: " + hexCode);
+        }
+        return packed;
+    }
+
+    /**
+     * Статический метод, упаковывающий десятичные координаты в число 0xRRGGBB
+     * @param r - десятичное число от 0 до 255 характеризующее интенсивность красного цвета
+     * @param g - десятичное число от 0 до 255 характеризующее интенсивность зелёного цвета
+     * @param b - десятичное число от 0 до 255 характеризующее интенсивность голубого цвета
+     * @return - метод возвращает упакованный код цвета
+     * @throws IllegalArgumentException - если координата вне диапазона 0..255: сдвиг такой координаты
+     *                                  незаметно дал бы другой, вполне допустимый цвет
+     */
+    static int packedFromRGB(int r, int g, int b) {
+        if (((r | g | b) & ~0xFF) != 0) {
+            throw new IllegalArgumentException("Координаты цвета должны быть от 0 до 255: " + r + ", " + g + ", " + b);
+        }
+        return (r << 16) | (g << 8) | b;
+    }
+
     /**
      * Статический метод, преобразующий десятичные координаты в строку с шестнадцатеричным числом
-     * @param r - десятичное число от 0 до 256 характеризующее интенсивность красного цвета
-     * @param g - десятичное число от 0 до 256 характеризующее интенсивность зелёного цвета
-     * @param b - десятичное число от 0 до 256 характеризующее интенсивность голубого цвета
+     * @param r - десятичное число от 0 до 255 характеризующее интенсивность красного цвета
+     * @param g - десятичное число от 0 до 255 характеризующее интенсивность зелёного цвета
+     * @param b - десятичное число от 0 до 255 характеризующее интенсивность голубого цвета
      * @return - метод возвращает строку с шестизначным шестнадцатеричным числом
      */
     protected static String rgbToHex(int r, int g, int b) {
@@ -98,22 +123,30 @@ public class ColorPoint implements Comparable<ColorPoint> {
 
     /**
      * Геттер координат
-     * @return - возвращает массив с координатами цвета-точки
+     * @return - возвращает новый массив с координатами цвета-точки
      */
     protected int[] getCoordinates() {
-        return coordinates;
+        return new int[]{getRValue(), getGValue(), getBValue()};
+    }
+
+    /**
+     * Геттер упакованного кода
+     * @return - возвращает код цвета 0xRRGGBB
+     */
+    int getRgb() {
+        return rgb;
     }
 
     protected int getRValue() {
-        return rValue;
+        return rgb >>> 16;
     }
 
     protected int getGValue() {
-        return gValue;
+        return (rgb >>> 8) & 0xFF;
     }
 
     protected int getBValue() {
-        return bValue;
+        return rgb & 0xFF;
     }
 
     @Override
@@ -130,11 +163,11 @@ public class ColorPoint implements Comparable<ColorPoint> {
 
     @Override
     public int compareTo(ColorPoint point) {
-        return this.hexCode.compareTo(point.hexCode);
+        return Integer.compare(this.rgb, point.rgb);   // "AFEEEE" и "afeeee" - один цвет
     }
 
     @Override
     public int hashCode() {
-        return Integer.valueOf(this.hexCode, 16);
+        return rgb;
     }
 }
\ No newline at end of file
@@ -0,0 +1,396 @@
+package ru.folko85.tableofcolor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Класс построения палитры по картинке (квантования цветов) методом медианного сечения.
+ * Пиксели не хранятся: они сразу раскладываются в гистограмму 32×32×32 корзин (по 5 бит на канал),
+ * в каждой корзине копятся количество пикселей и суммы каналов. Поэтому картинку можно подавать
+ * частями - строками, полосами, кадрами - и память не зависит от её размера: около 1 Мб на гистограмму.
+ * Большие массивы пикселей раскладываются параллельно, каждый поток в свою гистограмму.
+ * Палитра строится так же, как kd-дерево таблицы: корзины складываются в ведро ({@link BucketOfColor}),
+ * которое делится по оси с наибольшим разбросом, только плоскость проходит не посередине, а по медиане
+ * пикселей. Затем палитру можно уточнить несколькими шагами k-средних, а каждый её цвет сопоставляется
+ * с ближайшим именованным цветом таблицы
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public class ColorQuantizer {
+    /** Количество бит на канал в гистограмме */
+    private static final int BITS = 5;
+    /** Количество корзин по каждой оси */
+    private static final int SIDE = 1 << BITS;
+    /** Количество корзин гистограммы */
+    private static final int BINS = SIDE * SIDE * SIDE;
+    /** Наибольший размер палитры, которую можно построить */
+    public static final int MAX_COLORS = 1 << 12;
+    /** Поле - таблица, по которой подбираются именованные цвета */
+    private final TableOfColor table;
+    /** Поле - количество пикселей в каждой корзине */
+    private final long[] counts = new long[BINS];
+    /** Поле - суммы каналов пикселей каждой корзины, для точного среднего цвета */
+    private final long[] sumR = new long[BINS];
+    private final long[] sumG = new long[BINS];
+    private final long[] sumB = new long[BINS];
+    /** Поле - количество учтённых пикселей */
+    private long pixelCount;
+
+    /**
+     * Конструктор - создание пустой гистограммы
+     * @param table - таблица, по которой подбираются именованные цвета палитры
+     */
+    public ColorQuantizer(TableOfColor table) {
+        this.table = Objects.requireNonNull(table, "table");
+    }
+
+    /**
+     * Метод учёта пикселей в гистограмме
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @return - метод возвращает этот же объект, чтобы вызовы можно было объединять в цепочку
+     */
+    public ColorQuantizer accept(int[] pixels) {
+        return accept(pixels, 0, pixels.length);
+    }
+
+    /**
+     * Метод учёта части массива пикселей, например одной полосы картинки. Можно вызывать из разных потоков
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @param from - индекс первого пикселя
+     * @param to - индекс за последним пикселем
+     * @return - метод возвращает этот же объект, чтобы вызовы можно было объединять в цепочку
+     */
+    public ColorQuantizer accept(int[] pixels, int from, int to) {
+        Objects.checkFromToIndex(from, to, pixels.length);
+        int chunks = (int) Math.min((to - from) / PixelBatch.CHUNK_SIZE + 1L,
+                4L * ForkJoinPool.getCommonPoolParallelism());      // не больше нескольких гистограмм на поток
+        IntStream stream = IntStream.range(0, chunks);
+        (chunks > 1 ? stream.parallel() : stream).forEach(chunk -> {
+            long length = to - from;
+            int chunkFrom = from + (int) (length * chunk / chunks);
+            int chunkTo = from + (int) (length * (chunk + 1) / chunks);
+            long[] localCounts = new long[BINS];
+            long[] localR = new long[BINS];
+            long[] localG = new long[BINS];
+            long[] localB = new long[BINS];
+            for (int i = chunkFrom; i < chunkTo; i++) {
+                int r = (pixels[i] >>> 16) & 0xFF;
+                int g = (pixels[i] >>> 8) & 0xFF;
+                int b = pixels[i] & 0xFF;
+                int bin = binOf(r, g, b);
+                localCounts[bin]++;
+                localR[bin] += r;
+                localG[bin] += g;
+                localB[bin] += b;
+            }
+            merge(localCounts, localR, localG, localB, chunkTo - chunkFrom);
+        });
+        return this;
+    }
+
+    private synchronized void merge(long[] localCounts, long[] localR, long[] localG, long[] localB, long pixels) {
+        for (int bin = 0; bin < BINS; bin++) {
+            counts[bin] += localCounts[bin];
+            sumR[bin] += localR[bin];
+            sumG[bin] += localG[bin];
+            sumB[bin] += localB[bin];
+        }
+        pixelCount += pixels;
+    }
+
+    /**
+     * Геттер количества учтённых пикселей
+     * @return - возвращает количество пикселей, переданных в гистограмму
+     */
+    public synchronized long getPixelCount() {
+        return pixelCount;
+    }
+
+    /**
+     * Метод построения палитры медианным сечением
+     * @param colors - размер палитры от 1 до {@link #MAX_COLORS}; если разных цветов на картинке меньше, палитра будет меньше
+     * @return - метод возвращает цвета палитры по убыванию количества пикселей
+     */
+    public List<QuantizedColor> quantize(int colors) {
+        return quantize(colors, 0);
+    }
+
+    /**
+     * Метод построения палитры медианным сечением с уточнением методом k-средних. Каждый шаг k-средних
+     * переносит корзины гистограммы к ближайшему цвету палитры и пересчитывает цвета как средние,
+     * что уменьшает среднеквадратичную ошибку палитры
+     * @param colors - размер палитры от 1 до {@link #MAX_COLORS}
+     * @param kMeansIterations - количество шагов k-средних, 0 - без уточнения
+     * @return - метод возвращает цвета палитры по убыванию количества пикселей
+     */
+    public synchronized List<QuantizedColor> quantize(int colors, int kMeansIterations) {
+        if (colors < 1 || colors > MAX_COLORS) {
+            throw new IllegalArgumentException("Размер палитры должен быть от 1 до " + MAX_COLORS + ": " + colors);
+        }
+        if (kMeansIterations < 0) {
+            throw new IllegalArgumentException("Количество шагов k-средних должно быть неотрицательным: " + kMeansIterations);
+        }
+        if (pixelCount == 0) {
+            throw new IllegalStateException("В гистограмме нет ни одного пикселя");
+        }
+        List<Box> boxes = medianCut(colors);
+        int size = boxes.size();
+        double[][] centers = new double[size][];
+        for (int i = 0; i < size; i++) {
+            centers[i] = boxes.get(i).mean();
+        }
+        long[] populations = boxes.stream().mapToLong(box -> box.population).toArray();
+        for (int iteration = 0; iteration < kMeansIterations; iteration++) {
+            populations = kMeansStep(centers);
+        }
+        List<QuantizedColor> palette = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (populations[i] == 0) {
+                continue;                        // k-средние могли оставить цвет без пикселей
+            }
+            int rgb = (channel(centers[i][0]) << 16) | (channel(centers[i][1]) << 8) | channel(centers[i][2]);
+            palette.add(new QuantizedColor(rgb, populations[i], table.findNearestK(rgb, 1).get(0)));
+        }
+        palette.sort(Comparator.comparingLong(QuantizedColor::getPixelCount).reversed());
+        return List.copyOf(palette);
+    }
+
+    /**
+     * Метод сопоставления пикселей картинки с палитрой - уменьшение картинки до цветов палитры.
+     * Поиск по палитре строится при каждом вызове; для кадров видео или тайлов одной картинки
+     * нужен {@link #remapper(List)}, который строит его один раз
+     * @param palette - палитра, построенная методом {@link #quantize(int)}
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @param indexes - массив не короче массива пикселей, в который записываются индексы цветов палитры
+     */
+    public static void remap(List<QuantizedColor> palette, int[] pixels, int[] indexes) {
+        remapper(palette).remap(pixels, indexes);
+    }
+
+    /**
+     * Метод подготовки сопоставления с палитрой для многих картинок или частей одной картинки
+     * @param palette - палитра, построенная методом {@link #quantize(int)}
+     * @return - метод возвращает объект, который сопоставляет пиксели с палитрой без повторного построения поиска
+     */
+    public static Remapper remapper(List<QuantizedColor> palette) {
+        return new Remapper(palette);
+    }
+
+    /**
+     * Класс сопоставления пикселей с готовой палитрой. Поиск по палитре строится один раз, в конструкторе,
+     * а дальше объект только читается, поэтому его можно применять к каждому кадру из любых потоков
+     */
+    public static final class Remapper {
+        /** Поле - таблица цветов палитры, индексы в ней совпадают с индексами палитры */
+        private final TableOfColor lookup;
+
+        private Remapper(List<QuantizedColor> palette) {
+            if (palette.isEmpty()) {
+                throw new IllegalArgumentException("Палитра пуста");
+            }
+            List<ColorPoint> points = new ArrayList<>(palette.size());
+            for (QuantizedColor color : palette) {
+                points.add(new ColorPoint(color.getHexCode(), color.getHexCode()));
+            }
+            this.lookup = new TableOfColor(points, new TableSettings());
+        }
+
+        /**
+         * Метод сопоставления пикселей с палитрой. Пиксели обрабатываются параллельно,
+         * а серии одинаковых соседних пикселей ищутся один раз
+         * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+         * @param indexes - массив не короче массива пикселей, в который записываются индексы цветов палитры
+         */
+        public void remap(int[] pixels, int[] indexes) {
+            lookup.findNamedColorIndexes(pixels, indexes);
+        }
+
+        /**
+         * Метод сопоставления одного пикселя с палитрой
+         * @param pixel - пиксель в формате ARGB, альфа-канал игнорируется
+         * @return - метод возвращает индекс ближайшего цвета палитры
+         */
+        public int indexOf(int pixel) {
+            return lookup.findNamedColorIndex(pixel);
+        }
+    }
+
+    /**
+     * Медианное сечение: всякий раз делится ведро с наибольшим произведением количества пикселей
+     * на разброс по лучшей оси, пока не наберётся нужное количество вёдер или делить станет нечего
+     */
+    private List<Box> medianCut(int colors) {
+        int[] occupied = IntStream.range(0, BINS).filter(bin -> counts[bin] > 0).toArray();
+        PriorityQueue<Box> queue = new PriorityQueue<>(Comparator.comparingDouble((Box box) -> box.score).reversed());
+        List<Box> done = new ArrayList<>();
+        queue.add(new Box(occupied));
+        while (!queue.isEmpty() && queue.size() + done.size() < colors) {
+            Box box = queue.poll();
+            if (box.spread == 0) {
+                done.add(box);                   // в ведре одна корзина - делить нечего
+                continue;
+            }
+            Box[] halves = box.split();
+            queue.add(halves[0]);
+            queue.add(halves[1]);
+        }
+        done.addAll(queue);
+        return done;
+    }
+
+    /**
+     * Один шаг k-средних по корзинам гистограммы: каждая корзина относится к ближайшему центру,
+     * затем центры пересчитываются как взвешенные средние своих корзин
+     * @param centers - центры, на выходе - пересчитанные
+     * @return - метод возвращает количество пикселей у каждого центра
+     */
+    private long[] kMeansStep(double[][] centers) {
+        int size = centers.length;
+        long[] populations = new long[size];
+        double[][] sums = new double[size][3];
+        for (int bin = 0; bin < BINS; bin++) {
+            if (counts[bin] == 0) {
+                continue;
+            }
+            double r = sumR[bin] / (double) counts[bin];
+            double g = sumG[bin] / (double) counts[bin];
+            double b = sumB[bin] / (double) counts[bin];
+            int nearest = 0;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                double dr = centers[i][0] - r;
+                double dg = centers[i][1] - g;
+                double db = centers[i][2] - b;
+                double distance = dr * dr + dg * dg + db * db;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    nearest = i;
+                }
+            }
+            populations[nearest] += counts[bin];
+            sums[nearest][0] += sumR[bin];
+            sums[nearest][1] += sumG[bin];
+            sums[nearest][2] += sumB[bin];
+        }
+        for (int i = 0; i < size; i++) {
+            if (populations[i] > 0) {
+                for (int axis = 0; axis < 3; axis++) {
+                    centers[i][axis] = sums[i][axis] / populations[i];
+                }
+            }
+        }
+        return populations;
+    }
+
+    private static int binOf(int r, int g, int b) {
+        return ((r >>> (8 - BITS)) << (2 * BITS)) | ((g >>> (8 - BITS)) << BITS) | (b >>> (8 - BITS));
+    }
+
+    private static int coordinateOf(int bin, int axis) {
+        return (bin >>> ((2 - axis) * BITS)) & (SIDE - 1);
+    }
+
+    private static int channel(double value) {
+        return (int) Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    /**
+     * Ведро медианного сечения - набор непустых корзин гистограммы
+     */
+    private final class Box {
+        /** Номера корзин ведра */
+        private final int[] bins;
+        /** Количество пикселей во всех корзинах */
+        private final long population;
+        /** Ось с наибольшим разбросом */
+        private final int axis;
+        /** Разброс корзин по этой оси */
+        private final int spread;
+        /** Приоритет деления */
+        private final double score;
+
+        private Box(int[] bins) {
+            this.bins = bins;
+            int[] min = {SIDE, SIDE, SIDE};
+            int[] max = {-1, -1, -1};
+            long total = 0;
+            for (int bin : bins) {
+                total += counts[bin];
+                for (int i = 0; i < 3; i++) {
+                    min[i] = Math.min(min[i], coordinateOf(bin, i));
+                    max[i] = Math.max(max[i], coordinateOf(bin, i));
+                }
+            }
+            BucketOfColor bucket = new BucketOfColor(min, max);   // центр плотного ведра внутри разброса, так что разброс точный
+            bucket.addCoordinates(min);
+            bucket.addCoordinates(max);
+            this.population = total;
+            this.axis = bucket.getBestColorAxis();
+            this.spread = max[axis] - min[axis];
+            this.score = (double) population * spread;
+        }
+
+        /**
+         * Метод деления ведра по медиане пикселей вдоль лучшей оси. Обе половины всегда непусты
+         * @return - метод возвращает две половины
+         */
+        private Box[] split() {
+            long[] slices = new long[SIDE];
+            int min = SIDE;
+            int max = -1;
+            for (int bin : bins) {
+                int coordinate = coordinateOf(bin, axis);
+                slices[coordinate] += counts[bin];
+                min = Math.min(min, coordinate);
+                max = Math.max(max, coordinate);
+            }
+            int median = min;
+            long seen = slices[min];
+            while (seen * 2 < population) {
+                seen += slices[++median];
+            }
+            median = Math.min(median, max - 1);            // правая половина не должна остаться пустой
+            int leftCount = 0;
+            for (int bin : bins) {
+                if (coordinateOf(bin, axis) <= median) {
+                    leftCount++;
+                }
+            }
+            int[] left = new int[leftCount];
+            int[] right = new int[bins.length - leftCount];
+            int leftIndex = 0;
+            int rightIndex = 0;
+            for (int bin : bins) {
+                if (coordinateOf(bin, axis) <= median) {
+                    left[leftIndex++] = bin;
+                } else {
+                    right[rightIndex++] = bin;
+                }
+            }
+            return new Box[]{new Box(left), new Box(right)};
+        }
+
+        /**
+         * Метод вычисления среднего цвета пикселей ведра
+         * @return - метод возвращает средние значения каналов R, G, B
+         */
+        private double[] mean() {
+            double r = 0;
+            double g = 0;
+            double b = 0;
+            for (int bin : bins) {
+                r += sumR[bin];
+                g += sumG[bin];
+                b += sumB[bin];
+            }
+            return new double[]{r / population, g / population, b / population};
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ru.folko85.tableofcolor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Вспомогательный класс библиотеки - разбор кода цвета в строке выгрузки прямо из байтов, без создания строк.
+ * Строка делится на слова из латинских букв и цифр, остальные символы считаются разделителями,
+ * так что один разбор подходит и для CSV, и для NDJSON, и для простого списка кодов. Цвет ищется в порядке:
+ * <ol>
+ * <li>первый код вида #RRGGBB или 0xRRGGBB;</li>
+ * <li>первое слово ровно из шести шестнадцатеричных цифр;</li>
+ * <li>первые три десятичных числа от 0 до 255 подряд, разделённые только запятыми, точками с запятой
+ * и пробелами - RGB-тройка, например "12,200,31" или "rgb(12, 200, 31)".</li>
+ * </ol>
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class ColorTokenParser {
+    /** Признак строки без кода цвета */
+    static final int NO_COLOR = -1;
+
+    private ColorTokenParser() {
+    }
+
+    /**
+     * Метод разбора строки
+     * @param line - буфер со строкой; позиция и граница буфера не меняются
+     * @param from - индекс первого байта строки
+     * @param to - индекс за последним байтом строки
+     * @return - метод возвращает упакованный код 0xRRGGBB или {@link #NO_COLOR}
+     */
+    static int parse(ByteBuffer line, int from, int to) {
+        int bare = NO_COLOR;
+        int triple = NO_COLOR;
+        int numbers = 0;                      // длина текущей серии чисел через разделители
+        int partial = 0;
+        int i = from;
+        while (i <= to) {
+            byte c = i < to ? line.get(i) : (byte) '\n';
+            if (!isWordChar(c)) {
+                if (!isTripleSeparator(c) || i == to) {
+                    if (numbers == 3 && triple == NO_COLOR) {
+                        triple = partial;     // ровно три числа: "2024-01-05,12,200,31" - не тройка
+                    }
+                    numbers = 0;
+                }
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < to && isWordChar(line.get(i))) {
+                i++;
+            }
+            int length = i - start;
+            if (length == 6 && start > from && line.get(start - 1) == '#') {
+                int value = hex(line, start);
+                if (value != NO_COLOR) {
+                    return value;
+                }
+            }
+            if (length == 8 && line.get(start) == '0' && (line.get(start + 1) | 0x20) == 'x') {
+                int value = hex(line, start + 2);
+                if (value != NO_COLOR) {
+                    return value;
+                }
+            }
+            if (bare == NO_COLOR && length == 6) {
+                bare = hex(line, start);
+            }
+            int value = length <= 3 ? decimal(line, start, i) : NO_COLOR;
+            if (value != NO_COLOR) {
+                partial = ((partial << 8) | value) & 0xFFFFFF;
+                numbers++;
+            } else {
+                if (numbers == 3 && triple == NO_COLOR) {
+                    triple = partial;         // слово не число - серия закончилась
+                }
+                numbers = 0;
+            }
+        }
+        return bare != NO_COLOR ? bare : triple;
+    }
+
+    /**
+     * Шесть шестнадцатеричных цифр начиная с from
+     * @return - метод возвращает код или {@link #NO_COLOR}, если среди символов есть не цифры
+     */
+    private static int hex(ByteBuffer line, int from) {
+        int value = 0;
+        for (int i = from; i < from + 6; i++) {
+            int digit = Character.digit(line.get(i), 16);
+            if (digit < 0) {
+                return NO_COLOR;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Десятичное число от 0 до 255
+     * @return - метод возвращает число или {@link #NO_COLOR}
+     */
+    private static int decimal(ByteBuffer line, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            byte c = line.get(i);
+            if (c < '0' || c > '9') {
+                return NO_COLOR;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value <= 255 ? value : NO_COLOR;
+    }
+
+    private static boolean isWordChar(byte c) {
+        return (c >= '0' && c <= '9') || ((c | 0x20) >= 'a' && (c | 0x20) <= 'z');
+    }
+
+    private static boolean isTripleSeparator(byte c) {
+        return c == ',' || c == ';' || c == ' ' || c == '\t';
+    }
+}
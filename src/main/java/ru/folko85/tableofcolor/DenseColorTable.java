@@ -0,0 +1,161 @@
+package ru.folko85.tableofcolor;
+
+import java.nio.ShortBuffer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Вспомогательный класс библиотеки - плотная таблица поиска.
+ * Для каждого из 256³ возможных RGB-кодов заранее вычисляется индекс ближайшего именованного цвета,
+ * после чего поиск сводится к одному чтению из массива. Плата за это - 32 Мб памяти на таблицу
+ * и несколько секунд процессорного времени при её построении. Готовую таблицу можно сохранить в файл индекса
+ * и потом отобразить в память ({@link IndexFile}): тогда она лежит вне кучи и делится между процессами
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class DenseColorTable {
+    /** Количество всех возможных RGB-кодов */
+    static final int RGB_CUBE_SIZE = 1 << 24;
+    /** Размер таблицы в байтах - по два байта (short) на каждый RGB-код */
+    static final long MEMORY_BYTES = RGB_CUBE_SIZE * (long) Short.BYTES;
+    /** Максимальный размер палитры, индексы которой помещаются в беззнаковый short */
+    static final int MAX_PALETTE_SIZE = 1 << 16;
+    /** Поле - индексы ближайших именованных цветов, адресуемые упакованным кодом 0xRRGGBB; null для отображённой таблицы */
+    private final short[] table;
+    /** Поле - те же индексы в файле, отображённом в память; null для таблицы в куче */
+    private final ShortBuffer mapped;
+    /** Поле - время построения таблицы в наносекундах */
+    private final long buildTimeNanos;
+
+    /**
+     * Сравнение двух цветов палитры по расстоянию до кода - по метрике таблицы и в тех же числах, что и поиск
+     */
+    interface Comparison {
+        /**
+         * Метод сравнения
+         * @param rgb - упакованный код цвета 0xRRGGBB
+         * @param candidate - индекс цвета, который проверяется
+         * @param current - индекс цвета, записанного в таблицу сейчас
+         * @return - метод возвращает true, если candidate строго ближе к коду, чем current
+         */
+        boolean isCloser(int rgb, int candidate, int current);
+    }
+
+    private DenseColorTable(short[] table, ShortBuffer mapped, long buildTimeNanos) {
+        this.table = table;
+        this.mapped = mapped;
+        this.buildTimeNanos = buildTimeNanos;
+    }
+
+    /**
+     * Метод построения таблицы. Куб RGB обходится один раз, слоями по красной координате,
+     * слои обрабатываются параллельно на всех доступных ядрах
+     * @param paletteSize - размер палитры, индексы которой будут храниться в таблице
+     * @param nearest - точный поиск индекса ближайшего цвета по упакованному коду 0xRRGGBB;
+     *                вызывается из нескольких потоков сразу
+     * @return - метод возвращает заполненную таблицу
+     */
+    static DenseColorTable build(int paletteSize, IntUnaryOperator nearest) {
+        checkPaletteSize(paletteSize);
+        long start = System.nanoTime();
+        short[] table = new short[RGB_CUBE_SIZE];
+        IntStream.range(0, 256).parallel().forEach(r -> {
+            for (int gb = 0; gb < 1 << 16; gb++) {
+                int rgb = (r << 16) | gb;
+                table[rgb] = (short) nearest.applyAsInt(rgb);
+            }
+        });
+        return new DenseColorTable(table, null, System.nanoTime() - start);
+    }
+
+    /**
+     * Метод создания таблицы для палитры с ещё одним цветом в конце. Куб обходится один раз, но без поиска:
+     * код переходит к новому цвету, только если тот строго ближе записанного - при равенстве остаётся
+     * цвет с меньшим индексом, как и при поиске. Эта таблица не изменяется
+     * @param added - индекс нового цвета, он же прежний размер палитры
+     * @param comparison - сравнение цветов новой палитры
+     * @return - метод возвращает новую таблицу в куче
+     */
+    DenseColorTable withAdded(int added, Comparison comparison) {
+        checkPaletteSize(added + 1);
+        long start = System.nanoTime();
+        short[] updated = new short[RGB_CUBE_SIZE];
+        IntStream.range(0, 256).parallel().forEach(r -> {
+            for (int gb = 0; gb < 1 << 16; gb++) {
+                int rgb = (r << 16) | gb;
+                int current = indexOf(rgb);
+                updated[rgb] = (short) (comparison.isCloser(rgb, added, current) ? added : current);
+            }
+        });
+        return new DenseColorTable(updated, null, System.nanoTime() - start);
+    }
+
+    /**
+     * Метод создания таблицы для палитры без одного цвета. Заново ищутся только коды, которые указывали
+     * на удалённый цвет; индексы после него сдвигаются на единицу, как и цвета в палитре. Эта таблица не изменяется
+     * @param removed - индекс удалённого цвета
+     * @param nearest - точный поиск по новой палитре; вызывается из нескольких потоков сразу
+     * @return - метод возвращает новую таблицу в куче
+     */
+    DenseColorTable withRemoved(int removed, IntUnaryOperator nearest) {
+        long start = System.nanoTime();
+        short[] updated = new short[RGB_CUBE_SIZE];
+        IntStream.range(0, 256).parallel().forEach(r -> {
+            for (int gb = 0; gb < 1 << 16; gb++) {
+                int rgb = (r << 16) | gb;
+                int index = indexOf(rgb);
+                updated[rgb] = (short) (index == removed ? nearest.applyAsInt(rgb) : index > removed ? index - 1 : index);
+            }
+        });
+        return new DenseColorTable(updated, null, System.nanoTime() - start);
+    }
+
+    private static void checkPaletteSize(int paletteSize) {
+        if (paletteSize == 0 || paletteSize > MAX_PALETTE_SIZE) {
+            throw new IllegalArgumentException("Плотная таблица поддерживает от 1 до " + MAX_PALETTE_SIZE
+                    + " цветов, а в палитре " + paletteSize);
+        }
+    }
+
+    /**
+     * Метод создания таблицы поверх готовых индексов, отображённых из файла. Индексы не копируются в кучу
+     * @param mapped - {@link #RGB_CUBE_SIZE} индексов, уже проверенных по контрольной сумме
+     * @return - метод возвращает таблицу, читающую индексы прямо из отображения
+     */
+    static DenseColorTable wrap(ShortBuffer mapped) {
+        if (mapped.capacity() != RGB_CUBE_SIZE) {
+            throw new IllegalArgumentException("В плотной таблице должно быть " + RGB_CUBE_SIZE + " индексов: " + mapped.capacity());
+        }
+        return new DenseColorTable(null, mapped, 0);
+    }
+
+    /**
+     * Основной метод таблицы - чтение индекса ближайшего цвета
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @return - метод возвращает индекс ближайшего именованного цвета в палитре
+     */
+    int indexOf(int rgb) {
+        if (table != null) {
+            return table[rgb & 0xFFFFFF] & 0xFFFF;
+        }
+        return mapped.get(rgb & 0xFFFFFF) & 0xFFFF;     // абсолютное чтение не трогает позицию, поэтому безопасно из любых потоков
+    }
+
+    /**
+     * Метод проверки, откуда читаются индексы
+     * @return - возвращает true, если таблица отображена из файла индекса, а не построена в куче
+     */
+    boolean isMapped() {
+        return mapped != null;
+    }
+
+    /**
+     * Геттер времени построения таблицы
+     * @return - возвращает время построения или обновления в наносекундах, 0 для отображённой таблицы
+     */
+    long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+}
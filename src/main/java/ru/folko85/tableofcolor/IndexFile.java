@@ -0,0 +1,174 @@
+package ru.folko85.tableofcolor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32C;
+
+/**
+ * Вспомогательный класс библиотеки - файл индекса с готовой плотной таблицей поиска.
+ * Файл открывается через {@link FileChannel#map} только для чтения: таблица не копируется в кучу,
+ * страницы подгружаются операционной системой по мере обращения и делятся между всеми процессами,
+ * открывшими тот же файл. В заголовке хранятся версия формата, метрика и контрольные суммы палитры и таблицы;
+ * если хоть что-то не сходится, таблица строится заново и файл перезаписывается. Если перезаписать файл
+ * нельзя (например, каталог индекса общий и доступен только для чтения), построенная таблица остаётся в куче,
+ * а в журнал пишется предупреждение
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class IndexFile {
+    /** Заголовок файла индекса - байты "CTIX" */
+    static final int MAGIC = 0x43544958;
+    /** Версия формата файла индекса */
+    static final int VERSION = 1;
+    /** Размер заголовка в байтах; таблица начинается сразу за ним, с выровненного адреса */
+    static final int HEADER_SIZE = 64;
+    /** Размер всего файла в байтах */
+    static final long FILE_SIZE = HEADER_SIZE + DenseColorTable.MEMORY_BYTES;
+    /** Размер буфера записи */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Журнал для предупреждений о файле индекса, который не удалось записать */
+    private static final System.Logger LOGGER = System.getLogger(IndexFile.class.getName());
+
+    private IndexFile() {
+    }
+
+    /**
+     * Метод открытия плотной таблицы из файла индекса или, если файл устарел, её построения и записи в файл
+     * @param file - путь к файлу индекса
+     * @param colors - палитра таблицы
+     * @param metric - метрика таблицы
+     * @param nearest - точный поиск индекса ближайшего цвета, нужен только для построения
+     * @return - метод возвращает таблицу, отображённую из файла, или заново построенную в куче
+     * @throws IOException - если файл есть, но его не удалось прочитать; ошибка записи не бросается
+     */
+    static DenseColorTable openOrBuild(Path file, List<ColorPoint> colors, ColorMetric metric,
+                                       IntUnaryOperator nearest) throws IOException {
+        long checksum = paletteChecksum(colors, metric);
+        DenseColorTable table = open(file, colors.size(), metric, checksum);
+        if (table == null) {
+            table = DenseColorTable.build(colors.size(), nearest);
+            try {
+                write(file, table, colors, metric);
+            } catch (IOException ex) {                      // таблица уже построена - работаем с ней из кучи
+                LOGGER.log(System.Logger.Level.WARNING, "Не удалось записать файл индекса " + file
+                        + ", плотная таблица остаётся в куче", ex);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Метод открытия файла индекса с проверкой заголовка и контрольной суммы таблицы
+     * @param file - путь к файлу индекса
+     * @param paletteSize - размер палитры таблицы
+     * @param metric - метрика таблицы
+     * @param paletteChecksum - контрольная сумма палитры и метрики таблицы
+     * @return - метод возвращает отображённую таблицу или null, если файла нет или он не подходит к палитре
+     * @throws IOException - если файл есть, но его не удалось прочитать
+     */
+    static DenseColorTable open(Path file, int paletteSize, ColorMetric metric, long paletteChecksum) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != FILE_SIZE) {
+                return null;                                  // обрезан или вовсе не файл индекса
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE);   // отображение переживает закрытие канала
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getInt(8) != metric.ordinal() || buffer.getInt(12) != paletteSize
+                || buffer.getLong(16) != paletteChecksum || buffer.getLong(32) != DenseColorTable.MEMORY_BYTES) {
+            return null;
+        }
+        ByteBuffer payload = buffer.duplicate().position(HEADER_SIZE).slice();   // slice(int, int) появился только в JDK 13
+        payload.limit((int) DenseColorTable.MEMORY_BYTES);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if (crc.getValue() != buffer.getLong(24)) {
+            return null;                                      // таблица повреждена
+        }
+        return DenseColorTable.wrap(payload.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer());
+    }
+
+    /**
+     * Метод записи файла индекса. Файл сначала пишется рядом под временным именем и затем атомарно
+     * подменяет старый, поэтому процессы, уже отобразившие старый файл, продолжают читать его целым
+     * @param file - путь к файлу индекса
+     * @param table - плотная таблица
+     * @param colors - палитра таблицы
+     * @param metric - метрика таблицы
+     * @throws IOException - если файл не удалось записать
+     */
+    static void write(Path file, DenseColorTable table, List<ColorPoint> colors, ColorMetric metric) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer chunk = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                CRC32C crc = new CRC32C();
+                channel.position(HEADER_SIZE);
+                for (int rgb = 0; rgb < DenseColorTable.RGB_CUBE_SIZE; rgb++) {
+                    chunk.putShort((short) table.indexOf(rgb));
+                    if (!chunk.hasRemaining()) {
+                        writeChunk(channel, chunk, crc);
+                    }
+                }
+                writeChunk(channel, chunk, crc);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(metric.ordinal()).putInt(colors.size())
+                        .putLong(paletteChecksum(colors, metric)).putLong(crc.getValue())
+                        .putLong(DenseColorTable.MEMORY_BYTES);       // остаток заголовка - нули, запас на будущее
+                header.clear();
+                channel.write(header, 0);
+                channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeChunk(FileChannel channel, ByteBuffer chunk, CRC32C crc) throws IOException {
+        chunk.flip();
+        crc.update(chunk.duplicate());
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Метод вычисления контрольной суммы палитры: метрика, коды и названия всех цветов по порядку.
+     * Изменение любого цвета, его названия или порядка цветов делает файл индекса устаревшим
+     * @param colors - палитра таблицы
+     * @param metric - метрика таблицы
+     * @return - метод возвращает контрольную сумму CRC32C
+     */
+    static long paletteChecksum(List<ColorPoint> colors, ColorMetric metric) {
+        CRC32C crc = new CRC32C();
+        crc.update(metric.name().getBytes(StandardCharsets.UTF_8));
+        ByteBuffer rgb = ByteBuffer.allocate(Integer.BYTES + 1);
+        for (ColorPoint color : colors) {
+            rgb.clear();
+            rgb.put((byte) 0).putInt(color.getRgb());
+            crc.update(rgb.array());                        // нулевой байт отделяет название от следующего кода
+            crc.update(color.getColorName().getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,128 @@
+package ru.folko85.tableofcolor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Вспомогательный класс библиотеки - гистограмма времени поиска.
+ * Устроена как HdrHistogram: значения до 16 нс хранятся точно, а каждый следующий интервал от 2ⁿ до 2ⁿ⁺¹
+ * делится на 8 равных корзин, так что погрешность не больше 1/8 значения. Запись - одно атомарное
+ * увеличение счётчика корзины, без блокировок; процентили считаются по снимку счётчиков
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class LatencyHistogram {
+    /** Количество корзин на каждую степень двойки - 2³ */
+    private static final int SUB_BUCKET_BITS = 3;
+    /** Значения меньше этого хранятся в корзине со своим номером */
+    private static final int EXACT_LIMIT = 16;
+    /** Наибольшая степень двойки; всё, что дольше 2⁴⁰ нс (около 18 минут), попадает в последнюю корзину */
+    private static final int MAX_EXPONENT = 40;
+    private static final int EXACT_EXPONENT = 4;
+    /** Поле - счётчики корзин */
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(Long.MAX_VALUE) + 1);
+    /** Поле - сумма всех значений, для среднего */
+    private final LongAdder total = new LongAdder();
+    /** Поле - наибольшее значение */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Метод записи значения
+     * @param nanos - время в наносекундах
+     */
+    void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(nanos));
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Метод вычисления процентиля
+     * @param percentile - процентиль от 0 до 100
+     * @return - метод возвращает верхнюю границу корзины, в которую попал процентиль, или 0, если записей нет
+     */
+    long percentile(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Геттер количества записей
+     * @return - возвращает количество записанных значений
+     */
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Геттер среднего значения
+     * @return - возвращает среднее в наносекундах или 0, если записей нет
+     */
+    double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : total.sum() / (double) count;
+    }
+
+    /**
+     * Геттер наибольшего значения
+     * @return - возвращает наибольшее записанное значение в наносекундах
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Метод обнуления гистограммы. Записи, сделанные одновременно с обнулением, могут как остаться, так и пропасть
+     */
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        max.reset();
+    }
+
+    private static int indexOf(long nanos) {
+        if (nanos < EXACT_LIMIT) {
+            return (int) nanos;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT);
+        int subBucket = exponent == MAX_EXPONENT && nanos >= 1L << (MAX_EXPONENT + 1) ? (1 << SUB_BUCKET_BITS) - 1
+                : (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return EXACT_LIMIT + ((exponent - EXACT_EXPONENT) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+        int exponent = ((index - EXACT_LIMIT) >> SUB_BUCKET_BITS) + EXACT_EXPONENT;
+        int subBucket = (index - EXACT_LIMIT) & ((1 << SUB_BUCKET_BITS) - 1);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((1L << SUB_BUCKET_BITS) + subBucket) * width + width - 1;
+    }
+}
@@ -0,0 +1,155 @@
+package ru.folko85.tableofcolor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Вспомогательный класс библиотеки - поиск по ΔE 2000.
+ * Для ΔE 2000 kd-дерево не подходит: из-за делителей S_C и S_H хроматическая часть расстояния может быть
+ * много меньше евклидовой, и граница плоскости ничего не гарантирует. Зато светлота даёт честную
+ * нижнюю границу: ΔE 2000 ≥ |ΔL| / {@link CieLab#MAX_LIGHTNESS_WEIGHT}. Поэтому палитра упорядочивается по L,
+ * а поиск идёт от светлоты искомого цвета в обе стороны и останавливается, когда разница светлот
+ * становится больше найденного расстояния. Внутри окна полная формула считается только для цветов,
+ * у которых дешёвая нижняя граница (по светлоте и разности a, b) не больше найденного расстояния.
+ * Чтобы окно сразу было узким, первым кандидатом берётся ближайший цвет по ΔE 1976 из kd-дерева -
+ * обычно он же или почти он же ближайший и по ΔE 2000
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class LightnessIndex {
+    /** Координаты цветов палитры в CIELAB, упорядоченные по светлоте */
+    private final float[] ls;
+    private final float[] as;
+    private final float[] bs;
+    /** Насыщенность C = √(a² + b²) цветов палитры, в том же порядке */
+    private final float[] cs;
+    /** Индексы цветов в палитре, в том же порядке */
+    private final int[] ids;
+    /** Координаты палитры в исходном порядке - для первого кандидата */
+    private final float[][] lab;
+    /** Поле - kd-дерево палитры в CIELAB для поиска первого кандидата */
+    private final BucketTree seedTree;
+
+    /**
+     * Конструктор - упорядочивание палитры по светлоте
+     * @param lab - координаты палитры из {@link CieLab#toLab(int[])}
+     * @param seedTree - kd-дерево той же палитры в CIELAB для поиска первого кандидата
+     */
+    LightnessIndex(float[][] lab, BucketTree seedTree) {
+        this.lab = lab;
+        this.seedTree = seedTree;
+        int size = lab[0].length;
+        this.ids = IntStream.range(0, size).boxed()
+                .sorted(Comparator.comparingDouble(i -> lab[0][i]))
+                .mapToInt(Integer::intValue).toArray();
+        this.ls = new float[size];
+        this.as = new float[size];
+        this.bs = new float[size];
+        this.cs = new float[size];
+        for (int i = 0; i < size; i++) {
+            ls[i] = lab[0][ids[i]];
+            as[i] = lab[1][ids[i]];
+            bs[i] = lab[2][ids[i]];
+            cs[i] = (float) Math.sqrt(as[i] * as[i] + bs[i] * bs[i]);
+        }
+    }
+
+    /**
+     * Геттер дерева первого кандидата - чтобы при добавлении или удалении цвета не строить его заново
+     * @return - возвращает kd-дерево палитры в CIELAB
+     */
+    BucketTree getSeedTree() {
+        return seedTree;
+    }
+
+    /**
+     * Основной метод - поиск ближайшего по ΔE 2000 цвета
+     * @return - метод возвращает индекс ближайшего цвета в палитре; при равных расстояниях - наименьший
+     */
+    int nearest(float l, float a, float b) {
+        return nearest(l, a, b, null);
+    }
+
+    /**
+     * Метод поиска с подсчётом: посещением считается первый кандидат и каждое улучшение результата,
+     * кандидатами - цвета, для которых считалась полная формула
+     * @param stats - счётчики поиска или null, если статистика не нужна
+     * @return - метод возвращает индекс ближайшего цвета в палитре; при равных расстояниях - наименьший
+     */
+    int nearest(float l, float a, float b, SearchStats stats) {
+        int upper = Arrays.binarySearch(ls, l);
+        upper = upper < 0 ? -upper - 1 : upper;
+        int lower = upper - 1;
+        int bestIndex = seedTree.nearest(l, a, b);
+        double bestDistance = CieLab.deltaE2000Squared(l, a, b, lab[0][bestIndex], lab[1][bestIndex], lab[2][bestIndex]);
+        double limit = Math.sqrt(bestDistance) * CieLab.MAX_LIGHTNESS_WEIGHT;   // наибольшая разница светлот, при которой ещё есть смысл смотреть
+        double c = Math.sqrt(a * a + b * b);
+        if (stats != null) {
+            stats.visit(1);
+        }
+        while (true) {
+            boolean upperOpen = upper < ls.length && ls[upper] - l <= limit;
+            boolean lowerOpen = lower >= 0 && l - ls[lower] <= limit;
+            if (!upperOpen && !lowerOpen) {
+                return bestIndex;
+            }
+            int i = !lowerOpen || (upperOpen && ls[upper] - l <= l - ls[lower]) ? upper++ : lower--;   // сначала ближний по L
+            if (lowerBound(l, a, b, c, i) > bestDistance) {
+                continue;
+            }
+            double distance = CieLab.deltaE2000Squared(l, a, b, ls[i], as[i], bs[i], bestDistance);
+            if (stats != null) {
+                stats.candidates++;
+            }
+            if (distance < bestDistance || (distance == bestDistance && ids[i] < bestIndex)) {
+                if (stats != null && ids[i] != bestIndex) {
+                    stats.visits++;
+                }
+                bestDistance = distance;
+                bestIndex = ids[i];
+                limit = Math.sqrt(bestDistance) * CieLab.MAX_LIGHTNESS_WEIGHT;
+            }
+        }
+    }
+
+    /**
+     * Метод поиска нескольких ближайших цветов или всех цветов в радиусе. Окно по светлоте сужается
+     * вместе с границей накопителя
+     * @param neighbors - накопитель, в который складываются найденные цвета
+     */
+    void collect(float l, float a, float b, Neighbors neighbors) {
+        int upper = Arrays.binarySearch(ls, l);
+        upper = upper < 0 ? -upper - 1 : upper;
+        int lower = upper - 1;
+        double c = Math.sqrt(a * a + b * b);
+        while (true) {
+            double bound = neighbors.bound();
+            double limit = Math.sqrt(bound) * CieLab.MAX_LIGHTNESS_WEIGHT;
+            boolean upperOpen = upper < ls.length && ls[upper] - l <= limit;
+            boolean lowerOpen = lower >= 0 && l - ls[lower] <= limit;
+            if (!upperOpen && !lowerOpen) {
+                return;
+            }
+            int i = !lowerOpen || (upperOpen && ls[upper] - l <= l - ls[lower]) ? upper++ : lower--;
+            if (lowerBound(l, a, b, c, i) <= bound) {
+                neighbors.offer((float) CieLab.deltaE2000Squared(l, a, b, ls[i], as[i], bs[i], bound), ids[i]);
+            }
+        }
+    }
+
+    /**
+     * Нижняя граница квадрата ΔE 2000 без тригонометрии. Слагаемое светлоты не меньше (ΔL / 1.75)².
+     * Хроматическая часть с поворотом R_T (|R_T| < √3) не меньше 0.133 · (ΔC'² + ΔH'²) / S_C², при этом
+     * ΔC'² + ΔH'² = Δa'² + Δb² ≥ Δa² + Δb², а S_C ≥ S_H и S_C ≤ 1 + 0.045 · 1.5 · C̄, так как a' ≤ 1.5a
+     */
+    private double lowerBound(float l, float a, float b, double c, int i) {
+        double dl = (ls[i] - l) / CieLab.MAX_LIGHTNESS_WEIGHT;
+        double da = as[i] - a;
+        double db = bs[i] - b;
+        double sc = 1 + 0.068 * (c + cs[i]) / 2;
+        return dl * dl + 0.133 * (da * da + db * db) / (sc * sc);
+    }
+}
@@ -0,0 +1,273 @@
+package ru.folko85.tableofcolor;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс статистики поиска таблицы именованных цветов. Включается настройкой
+ * {@link TableSettings#setMetricsEnabled(boolean)}; у таблицы без статистики поиск не делает ни одного
+ * лишнего действия, кроме проверки на null. Счётчики - {@link LongAdder}, гистограмма времени - атомарные
+ * счётчики корзин, так что запись из многих потоков не блокируется. Быстрым считается поиск, который
+ * нашёл ответ в первом же ведре дерева (для ΔE 2000 - когда первый кандидат оказался ближайшим),
+ * без возврата в соседние вёдра. Статистику можно выставить в JMX методом {@link #registerMBean(String)}
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public final class LookupMetrics implements LookupMetricsMXBean {
+    /** Домен имён JMX */
+    public static final String JMX_DOMAIN = "ru.folko85.tableofcolor";
+    /** Поле - количество всех поисков одного цвета */
+    private final LongAdder lookups = new LongAdder();
+    /** Поле - количество поисков, ответ на которые взят из плотной таблицы */
+    private final LongAdder denseLookups = new LongAdder();
+    /** Поле - количество поисков, ответ на которые взят из кэша */
+    private final LongAdder cacheHits = new LongAdder();
+    /** Поле - количество настоящих поисков по дереву или перебором */
+    private final LongAdder searches = new LongAdder();
+    /** Поле - количество поисков, завершившихся в первом ведре */
+    private final LongAdder fastPath = new LongAdder();
+    /** Поле - сколько всего цветов просмотрено настоящими поисками */
+    private final LongAdder candidates = new LongAdder();
+    /** Поле - время поиска */
+    private final LatencyHistogram latency = new LatencyHistogram();
+    /** Поле - устройство таблицы, меняется только вместе с палитрой изменяемой таблицы */
+    private volatile Structure structure;
+
+    LookupMetrics() {
+    }
+
+    /**
+     * Неизменяемое описание устройства таблицы
+     */
+    private static final class Structure {
+        private final int bucketCount;
+        private final int treeDepth;
+        private final long[] occupancy;
+        private final long buildTimeNanos;
+        private final long denseBuildTimeNanos;
+
+        private Structure(int bucketCount, int treeDepth, long[] occupancy, long buildTimeNanos, long denseBuildTimeNanos) {
+            this.bucketCount = bucketCount;
+            this.treeDepth = treeDepth;
+            this.occupancy = occupancy;
+            this.buildTimeNanos = buildTimeNanos;
+            this.denseBuildTimeNanos = denseBuildTimeNanos;
+        }
+    }
+
+    /**
+     * Метод записи устройства таблицы после её построения
+     * @param tree - дерево таблицы или null, если поиск идёт без дерева
+     * @param buildTimeNanos - время построения дерева или другой структуры поиска
+     * @param denseBuildTimeNanos - время построения плотной таблицы, 0 если её нет
+     */
+    void describe(BucketTree tree, long buildTimeNanos, long denseBuildTimeNanos) {
+        structure = tree == null ? new Structure(0, 0, new long[0], buildTimeNanos, denseBuildTimeNanos)
+                : new Structure(tree.getBucketCount(), tree.getDepth(), tree.getOccupancyHistogram(), buildTimeNanos, denseBuildTimeNanos);
+    }
+
+    void recordDense(long nanos) {
+        lookups.increment();
+        denseLookups.increment();
+        latency.record(nanos);
+    }
+
+    void recordCacheHit(long nanos) {
+        lookups.increment();
+        cacheHits.increment();
+        latency.record(nanos);
+    }
+
+    void recordSearch(SearchStats stats, long nanos) {
+        lookups.increment();
+        searches.increment();
+        candidates.add(stats.candidates);
+        if (stats.visits <= 1) {
+            fastPath.increment();
+        }
+        latency.record(nanos);
+    }
+
+    /**
+     * Метод регистрации статистики в платформенном MBean-сервере
+     * под именем "ru.folko85.tableofcolor:type=TableOfColor,name=..."
+     * @param name - имя таблицы, например язык палитры
+     * @return - метод возвращает имя, под которым статистика зарегистрирована
+     * @throws JMException - если имя уже занято или сервер отказался регистрировать
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=TableOfColor,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Геттер количества поисков одного цвета
+     * @return - возвращает количество вызовов findNamedColorIndex и методов, которые через него работают
+     */
+    @Override
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    /**
+     * Геттер количества ответов из плотной таблицы
+     * @return - возвращает количество поисков, обошедшихся одним чтением из таблицы
+     */
+    @Override
+    public long getDenseLookupCount() {
+        return denseLookups.sum();
+    }
+
+    /**
+     * Геттер количества ответов из кэша
+     * @return - возвращает количество попаданий в кэш
+     */
+    @Override
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Геттер количества настоящих поисков - по дереву, по светлоте или векторным перебором
+     * @return - возвращает количество поисков, не нашедших ответ в плотной таблице или кэше
+     */
+    @Override
+    public long getSearchCount() {
+        return searches.sum();
+    }
+
+    /**
+     * Геттер количества быстрых поисков
+     * @return - возвращает количество поисков, нашедших ответ в первом же ведре
+     */
+    @Override
+    public long getFastPathCount() {
+        return fastPath.sum();
+    }
+
+    /**
+     * Геттер доли быстрых поисков
+     * @return - возвращает долю от 0 до 1 среди настоящих поисков или 0, если их не было
+     */
+    @Override
+    public double getFastPathRatio() {
+        long count = searches.sum();
+        return count == 0 ? 0 : fastPath.sum() / (double) count;
+    }
+
+    /**
+     * Геттер среднего количества просмотренных цветов
+     * @return - возвращает, для скольких цветов палитры в среднем вычислялось расстояние при одном поиске
+     */
+    @Override
+    public double getCandidatesPerSearch() {
+        long count = searches.sum();
+        return count == 0 ? 0 : candidates.sum() / (double) count;
+    }
+
+    @Override
+    public double getMeanLatencyNanos() {
+        return latency.getMean();
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return latency.percentile(50);
+    }
+
+    @Override
+    public long getLatencyP90Nanos() {
+        return latency.percentile(90);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return latency.percentile(99);
+    }
+
+    @Override
+    public long getLatencyP999Nanos() {
+        return latency.percentile(99.9);
+    }
+
+    @Override
+    public long getMaxLatencyNanos() {
+        return latency.getMax();
+    }
+
+    /**
+     * Метод вычисления процентиля времени поиска, с точностью до 1/8 значения
+     * @param percentile - процентиль от 0 до 100
+     * @return - метод возвращает время в наносекундах
+     */
+    public long getLatencyPercentileNanos(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Процентиль должен быть от 0 до 100: " + percentile);
+        }
+        return latency.percentile(percentile);
+    }
+
+    /**
+     * Геттер количества вёдер дерева
+     * @return - возвращает количество листьев дерева или 0, если поиск идёт без дерева
+     */
+    @Override
+    public int getBucketCount() {
+        return structure.bucketCount;
+    }
+
+    /**
+     * Геттер глубины дерева
+     * @return - возвращает количество узлов на самом длинном пути от корня до листа или 0
+     */
+    @Override
+    public int getTreeDepth() {
+        return structure.treeDepth;
+    }
+
+    /**
+     * Геттер заполненности вёдер
+     * @return - возвращает массив, в котором элемент n - количество вёдер ровно с n цветами
+     */
+    @Override
+    public long[] getBucketOccupancy() {
+        return structure.occupancy.clone();
+    }
+
+    /**
+     * Геттер времени построения структуры поиска
+     * @return - возвращает время построения дерева (или индекса по светлоте) в миллисекундах
+     */
+    @Override
+    public long getBuildTimeMillis() {
+        return structure.buildTimeNanos / 1_000_000;
+    }
+
+    /**
+     * Геттер времени построения плотной таблицы
+     * @return - возвращает время в миллисекундах или 0, если плотной таблицы нет или она отображена из файла
+     */
+    @Override
+    public long getDenseBuildTimeMillis() {
+        return structure.denseBuildTimeNanos / 1_000_000;
+    }
+
+    /**
+     * Метод обнуления счётчиков и гистограммы; устройство таблицы не меняется
+     */
+    @Override
+    public void reset() {
+        lookups.reset();
+        denseLookups.reset();
+        cacheHits.reset();
+        searches.reset();
+        fastPath.reset();
+        candidates.reset();
+        latency.reset();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.folko85.tableofcolor;
+
+/**
+ * Интерфейс статистики поиска для JMX. Все атрибуты только читаются; единственная операция - обнуление счётчиков.
+ * Описание атрибутов - в {@link LookupMetrics}
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public interface LookupMetricsMXBean {
+    long getLookupCount();
+
+    long getDenseLookupCount();
+
+    long getCacheHitCount();
+
+    long getSearchCount();
+
+    long getFastPathCount();
+
+    double getFastPathRatio();
+
+    double getCandidatesPerSearch();
+
+    double getMeanLatencyNanos();
+
+    long getLatencyP50Nanos();
+
+    long getLatencyP90Nanos();
+
+    long getLatencyP99Nanos();
+
+    long getLatencyP999Nanos();
+
+    long getMaxLatencyNanos();
+
+    int getBucketCount();
+
+    int getTreeDepth();
+
+    long[] getBucketOccupancy();
+
+    long getBuildTimeMillis();
+
+    long getDenseBuildTimeMillis();
+
+    void reset();
+}
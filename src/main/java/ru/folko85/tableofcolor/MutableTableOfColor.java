@@ -0,0 +1,134 @@
+package ru.folko85.tableofcolor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Класс изменяемой таблицы именованных цветов - для палитр, которые пополняются во время работы,
+ * например фирменными цветами клиентов. Внутри лежит обычная неизменяемая {@link TableOfColor}:
+ * каждое изменение строит новую таблицу рядом со старой (в дереве перестраивается только затронутое ведро,
+ * а плотная таблица обновляется одним проходом, без поиска для каждого кода)
+ * и одной записью в volatile-поле подменяет её. Поиск читает это поле без блокировок и никогда
+ * не видит наполовину изменённую палитру; изменения выполняются по одному
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public class MutableTableOfColor {
+    /** Поле - текущий снимок палитры */
+    private volatile TableOfColor snapshot;
+
+    /**
+     * Конструктор - создание изменяемой таблицы с начальной палитрой
+     * @param initial - таблица с начальной палитрой; её настройки (метрика, плотная таблица, кэш)
+     *                переходят ко всем следующим снимкам, а сама она не изменяется
+     */
+    public MutableTableOfColor(TableOfColor initial) {
+        this.snapshot = Objects.requireNonNull(initial, "initial");
+    }
+
+    /**
+     * Метод получения текущего снимка палитры. Индексы цветов имеют смысл только внутри одного снимка,
+     * поэтому для поиска индексов и перевода их в названия нужно взять снимок один раз и работать с ним
+     * @return - возвращает неизменяемую таблицу с палитрой на текущий момент
+     */
+    public TableOfColor snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Метод добавления цвета в конец палитры
+     * @param colorName - название цвета
+     * @param hexCode - шестизначный шестнадцатеричный код (регистр не важен, ведущий символ # допускается)
+     * @return - метод возвращает индекс нового цвета в новом снимке
+     */
+    public synchronized int addColor(String colorName, String hexCode) {
+        if (colorName == null || colorName.isBlank()) {
+            throw new IllegalArgumentException("У цвета " + hexCode + " нет названия");
+        }
+        int rgb = ColorPoint.packedFromHex(hexCode);
+        TableOfColor current = snapshot;
+        snapshot = current.withColorAdded(new ColorPoint(colorName, rgb));
+        return current.getPaletteSize();
+    }
+
+    /**
+     * Метод удаления цвета по названию. Цвета после удалённого сдвигаются на одну позицию
+     * @param colorName - название цвета; регистр не важен
+     * @return - метод возвращает true, если цвет был в палитре и удалён
+     * @throws IllegalStateException - если это единственный цвет палитры
+     */
+    public synchronized boolean removeColor(String colorName) {
+        TableOfColor current = snapshot;
+        int index = current.findIndexByName(colorName);
+        if (index < 0) {
+            return false;
+        }
+        snapshot = current.withColorRemoved(index);
+        return true;
+    }
+
+    /**
+     * Метод замены всей палитры с сохранением настроек таблицы
+     * @param palette - путь к файлу с палитрой, формат определяется по расширению
+     * @throws IOException - если файл не удалось прочитать
+     * @throws PaletteFormatException - если в файле ошибка; текущая палитра тогда остаётся прежней
+     */
+    public void replacePalette(Path palette) throws IOException {
+        List<ColorPoint> colors = PaletteLoader.load(palette);      // файл читается без блокировки
+        synchronized (this) {
+            snapshot = snapshot.withPalette(colors);
+        }
+    }
+
+    /**
+     * Метод поиска ближайшего именованного цвета в текущей палитре
+     * @param hexCode - шестизначный шестнадцатеричный код (регистр не важен, ведущий символ # допускается)
+     * @return - метод возвращает название ближайшего именованного цвета
+     */
+    public String findNamedColorFromHex(String hexCode) {
+        return snapshot.findNamedColorFromHex(hexCode);
+    }
+
+    /**
+     * Метод повторяет предыдущий и отличается лишь входными параметрами, являющимися RGB-кодом
+     * @param r - десятичное число от 0 до 255 характеризующее интенсивность красного цвета
+     * @param g - десятичное число от 0 до 255 характеризующее интенсивность зелёного цвета
+     * @param b - десятичное число от 0 до 255 характеризующее интенсивность голубого цвета
+     * @return - метод возвращает название ближайшего именованного цвета
+     * @throws IllegalArgumentException - если координата вне диапазона 0..255
+     */
+    public String findNamedColorFromRGB(int r, int g, int b) {
+        return snapshot.findNamedColorFromRGB(r, g, b);
+    }
+
+    /**
+     * Метод поиска нескольких ближайших именованных цветов в текущей палитре
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @param k - сколько цветов найти
+     * @return - метод возвращает k ближайших цветов по возрастанию расстояния
+     */
+    public List<ColorMatch> findNearestK(int rgb, int k) {
+        return snapshot.findNearestK(rgb, k);
+    }
+
+    /**
+     * Геттер статистики поиска. Статистика одна на все снимки: изменения палитры её не обнуляют,
+     * а устройство дерева в ней обновляется вместе с палитрой
+     * @return - возвращает статистику или null, если начальная таблица создана без неё
+     */
+    public LookupMetrics getLookupMetrics() {
+        return snapshot.getLookupMetrics();
+    }
+
+    /**
+     * Геттер размера текущей палитры
+     * @return - возвращает количество именованных цветов
+     */
+    public int getPaletteSize() {
+        return snapshot.getPaletteSize();
+    }
+}
@@ -0,0 +1,248 @@
+package ru.folko85.tableofcolor;
+
+import java.util.Arrays;
+
+/**
+ * Вспомогательный класс библиотеки - указатель названий и кодов палитры для обратного поиска.
+ * Названия приводятся к одному регистру (и "ё" к "е") и хранятся в отсортированном массиве, так что
+ * точный поиск и поиск по началу названия - это двоичный поиск. Запрос сворачивается посимвольно
+ * при сравнении, без создания новых строк. Коды цветов хранятся отдельно, тоже отсортированными,
+ * для поиска цвета с тем же кодом в палитре другого языка
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class NameIndex {
+    /** Поле - свёрнутые названия в порядке возрастания */
+    private final String[] keys;
+    /** Поле - индексы цветов палитры в порядке названий; при одинаковых названиях - по возрастанию индекса */
+    private final int[] order;
+    /** Поле - пары (код 0xRRGGBB, индекс цвета), упакованные в long и отсортированные */
+    private final long[] codes;
+
+    /**
+     * Конструктор - построение указателя по палитре
+     * @param names - названия цветов палитры
+     * @param paletteRgb - упакованные коды тех же цветов
+     */
+    NameIndex(String[] names, int[] paletteRgb) {
+        int size = names.length;
+        String[] folded = new String[size];
+        Integer[] sorted = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            folded[i] = fold(names[i]);
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (one, two) -> {
+            int byName = folded[one].compareTo(folded[two]);
+            return byName != 0 ? byName : Integer.compare(one, two);
+        });
+        this.keys = new String[size];
+        this.order = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = folded[sorted[i]];
+            order[i] = sorted[i];
+        }
+        this.codes = new long[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = ((long) paletteRgb[i] << 32) | i;
+        }
+        Arrays.sort(codes);
+    }
+
+    /**
+     * Метод точного поиска названия без учёта регистра и пробелов по краям
+     * @param name - название цвета
+     * @return - метод возвращает индекс цвета в палитре (при повторах - наименьший) или -1
+     */
+    int indexOfName(CharSequence name) {
+        int from = firstNonSpace(name);
+        int to = lastNonSpace(name, from);
+        int position = lowerBound(name, from, to);
+        if (position < keys.length && compare(keys[position], name, from, to) == 0) {
+            return order[position];
+        }
+        return -1;
+    }
+
+    /**
+     * Метод поиска названий по началу, например для автодополнения
+     * @param prefix - начало названия; регистр не важен
+     * @param limit - наибольшее количество результатов
+     * @return - метод возвращает индексы цветов в алфавитном порядке названий
+     */
+    int[] indexesByPrefix(CharSequence prefix, int limit) {
+        int from = firstNonSpace(prefix);
+        int length = prefix.length() - from;             // пробел в конце начала названия значим: "Light " - не "Lighter"
+        int first = lowerBound(prefix, from, prefix.length());
+        int last = first;
+        while (last < keys.length && last - first < limit && startsWith(keys[last], prefix, from, length)) {
+            last++;
+        }
+        return Arrays.copyOfRange(order, first, last);
+    }
+
+    /**
+     * Метод нечёткого поиска - названий, отличающихся от запроса не больше чем на заданное число правок
+     * (вставка, удаление, замена символа или перестановка двух соседних)
+     * @param name - название цвета, возможно с опечатками
+     * @param maxEdits - наибольшее число правок
+     * @return - метод возвращает пары (число правок, индекс цвета), упакованные в long
+     * и упорядоченные по числу правок, затем по названию
+     */
+    long[] indexesByEditDistance(CharSequence name, int maxEdits) {
+        String query = fold(name.toString().strip());
+        int[][] rows = new int[3][query.length() + 1];
+        long[] found = new long[8];
+        int count = 0;
+        for (int position = 0; position < keys.length; position++) {
+            String key = keys[position];
+            if (Math.abs(key.length() - query.length()) > maxEdits) {
+                continue;
+            }
+            int edits = editDistance(key, query, maxEdits, rows);
+            if (edits <= maxEdits) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = ((long) edits << 32) | position;
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        for (int i = 0; i < count; i++) {
+            found[i] = (found[i] & 0xFFFFFFFF00000000L) | order[(int) found[i]];
+        }
+        return found;
+    }
+
+    /**
+     * Метод поиска цвета с точно таким же кодом
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @return - метод возвращает индекс цвета в палитре (при повторах - наименьший) или -1
+     */
+    int indexOfRgb(int rgb) {
+        long key = (long) (rgb & 0xFFFFFF) << 32;
+        int position = Arrays.binarySearch(codes, key);
+        position = position < 0 ? -position - 1 : position;    // индекс в младших битах, поэтому key - нижняя граница
+        if (position < codes.length && (codes[position] >>> 32) == (rgb & 0xFFFFFF)) {
+            return (int) codes[position];
+        }
+        return -1;
+    }
+
+    /**
+     * Расстояние Дамерау-Левенштейна с перестановками соседних символов. Строки матрицы переиспользуются,
+     * а расчёт прекращается, как только вся строка превысила порог
+     * @return - метод возвращает число правок или maxEdits + 1, если правок больше порога
+     */
+    private static int editDistance(String key, String query, int maxEdits, int[][] rows) {
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        int[] beforePrevious = rows[2];
+        for (int j = 0; j <= query.length(); j++) {
+            current[j] = j;
+        }
+        for (int i = 1; i <= key.length(); i++) {
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+            current[0] = i;
+            int rowMin = i;
+            char k = key.charAt(i - 1);
+            for (int j = 1; j <= query.length(); j++) {
+                char q = query.charAt(j - 1);
+                int cost = k == q ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && k == query.charAt(j - 2) && key.charAt(i - 2) == q) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+        }
+        return current[query.length()];
+    }
+
+    /**
+     * Нижняя граница запроса в отсортированном массиве названий
+     */
+    private int lowerBound(CharSequence query, int from, int to) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(keys[middle], query, from, to) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Сравнение свёрнутого названия с куском запроса, который сворачивается на лету
+     */
+    private static int compare(String key, CharSequence query, int from, int to) {
+        int length = Math.min(key.length(), to - from);
+        for (int i = 0; i < length; i++) {
+            int difference = key.charAt(i) - fold(query.charAt(from + i));
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return key.length() - (to - from);
+    }
+
+    private static boolean startsWith(String key, CharSequence prefix, int from, int length) {
+        if (key.length() < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != fold(prefix.charAt(from + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int firstNonSpace(CharSequence text) {
+        int from = 0;
+        while (from < text.length() && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int lastNonSpace(CharSequence text, int from) {
+        int to = text.length();
+        while (to > from && Character.isWhitespace(text.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Метод сворачивания названия: один регистр для всех букв и "е" вместо "ё"
+     * @param name - название цвета
+     * @return - метод возвращает свёрнутое название
+     */
+    static String fold(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static char fold(char c) {
+        char folded = Character.toLowerCase(Character.toUpperCase(c));
+        return folded == 'ё' ? 'е' : folded;
+    }
+}
@@ -0,0 +1,119 @@
+package ru.folko85.tableofcolor;
+
+import java.util.Arrays;
+
+/**
+ * Вспомогательный класс библиотеки - накопитель соседей для поиска нескольких цветов.
+ * Каждый найденный цвет хранится одним числом, как и в {@link BucketTree}: в старших битах квадрат расстояния,
+ * в младших - индекс, так что числа упорядочены сначала по расстоянию, а потом по индексу.
+ * Для k ближайших это ограниченная куча с наибольшим элементом в корне, для поиска в радиусе - растущий массив.
+ * Граница {@link #bound()} говорит поиску, какие поддеревья уже можно не смотреть
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class Neighbors {
+    /** Поле - найденные соседи; для k ближайших - куча */
+    private long[] found;
+    /** Поле - количество найденных соседей */
+    private int count;
+    /** Поле - true для k ближайших, false для поиска в радиусе */
+    private final boolean bounded;
+    /** Поле - квадрат радиуса поиска или бесконечность */
+    private final float maxDistance;
+
+    private Neighbors(int capacity, boolean bounded, float maxDistance) {
+        this.found = new long[capacity];
+        this.bounded = bounded;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Метод создания накопителя k ближайших соседей
+     * @param k - количество соседей
+     * @return - метод возвращает пустой накопитель
+     */
+    static Neighbors nearest(int k) {
+        return new Neighbors(k, true, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Метод создания накопителя соседей в радиусе
+     * @param maxDistance - квадрат радиуса в единицах метрики
+     * @return - метод возвращает пустой накопитель
+     */
+    static Neighbors within(float maxDistance) {
+        return new Neighbors(16, false, maxDistance);
+    }
+
+    /**
+     * Метод получения границы поиска
+     * @return - метод возвращает квадрат расстояния, дальше которого соседи уже не нужны
+     */
+    float bound() {
+        return bounded && count == found.length ? distanceOf(found[0]) : maxDistance;
+    }
+
+    /**
+     * Метод добавления кандидата. Кандидат дальше границы отбрасывается
+     * @param distance - квадрат расстояния до кандидата
+     * @param index - индекс кандидата в палитре
+     */
+    void offer(float distance, int index) {
+        if (distance > maxDistance) {
+            return;
+        }
+        long key = ((long) Float.floatToRawIntBits(distance) << 32) | index;
+        if (!bounded) {
+            if (count == found.length) {
+                found = Arrays.copyOf(found, count * 2);
+            }
+            found[count++] = key;
+        } else if (count < found.length) {
+            int child = count++;                      // просеивание вверх
+            while (child > 0 && found[(child - 1) / 2] < key) {
+                found[child] = found[(child - 1) / 2];
+                child = (child - 1) / 2;
+            }
+            found[child] = key;
+        } else if (key < found[0]) {
+            int parent = 0;                           // новый корень просеивается вниз
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= count) {
+                    break;
+                }
+                if (child + 1 < count && found[child + 1] > found[child]) {
+                    child++;
+                }
+                if (found[child] <= key) {
+                    break;
+                }
+                found[parent] = found[child];
+                parent = child;
+            }
+            found[parent] = key;
+        }
+    }
+
+    /**
+     * Метод превращения найденных соседей в результаты
+     * @param table - таблица, из которой берутся названия и коды
+     * @return - метод возвращает соседей по возрастанию расстояния, при равенстве - по индексу
+     */
+    ColorMatch[] toMatches(TableOfColor table) {
+        long[] sorted = Arrays.copyOf(found, count);
+        Arrays.sort(sorted);
+        ColorMatch[] matches = new ColorMatch[count];
+        for (int i = 0; i < count; i++) {
+            int index = (int) sorted[i];
+            matches[i] = new ColorMatch(index, table.nameOf(index), table.rgbOf(index), Math.sqrt(distanceOf(sorted[i])));
+        }
+        return matches;
+    }
+
+    private static float distanceOf(long key) {
+        return Float.intBitsToFloat((int) (key >>> 32));
+    }
+}
@@ -0,0 +1,118 @@
+package ru.folko85.tableofcolor;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Вспомогательный класс библиотеки - палитра в двух массивах примитивов и строк.
+ * Таблица хранит не список объектов-точек, а массив упакованных кодов 0xRRGGBB и массив названий:
+ * 8 байт на цвет плюс сами названия вместо отдельного объекта со строкой кода и массивом координат.
+ * Названия интернируются, поэтому таблицы одной палитры (например, снимки изменяемой таблицы
+ * или несколько таблиц встроенной палитры) делят одни и те же строки.
+ * Для кода, которому нужен список точек (запись палитры, контрольная сумма индекса), палитра
+ * притворяется неизменяемым списком и создаёт точку при каждом обращении
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class PackedPalette extends AbstractList<ColorPoint> implements RandomAccess {
+    /** Поле - названия цветов */
+    private final String[] names;
+    /** Поле - упакованные коды 0xRRGGBB в том же порядке */
+    private final int[] rgb;
+
+    private PackedPalette(String[] names, int[] rgb) {
+        this.names = names;
+        this.rgb = rgb;
+    }
+
+    /**
+     * Метод упаковки палитры. Уже упакованная палитра возвращается как есть - она не изменяется
+     * @param colors - список точек-цветов
+     * @return - метод возвращает упакованную палитру
+     */
+    static PackedPalette of(List<ColorPoint> colors) {
+        if (colors instanceof PackedPalette) {
+            return (PackedPalette) colors;
+        }
+        int size = colors.size();
+        String[] names = new String[size];
+        int[] rgb = new int[size];
+        int i = 0;
+        for (ColorPoint color : colors) {                     // список может быть и не ArrayList
+            names[i] = intern(color.getColorName());
+            rgb[i++] = color.getRgb();
+        }
+        return new PackedPalette(names, rgb);
+    }
+
+    /**
+     * Метод создания палитры с ещё одним цветом в конце; эта палитра не изменяется
+     * @param color - новый цвет
+     * @return - метод возвращает новую палитру
+     */
+    PackedPalette withAdded(ColorPoint color) {
+        String[] newNames = Arrays.copyOf(names, names.length + 1);
+        int[] newRgb = Arrays.copyOf(rgb, rgb.length + 1);
+        newNames[names.length] = intern(color.getColorName());
+        newRgb[rgb.length] = color.getRgb();
+        return new PackedPalette(newNames, newRgb);
+    }
+
+    /**
+     * Метод создания палитры без одного цвета; цвета после него сдвигаются, эта палитра не изменяется
+     * @param index - индекс удаляемого цвета
+     * @return - метод возвращает новую палитру
+     */
+    PackedPalette withRemoved(int index) {
+        String[] newNames = new String[names.length - 1];
+        int[] newRgb = new int[rgb.length - 1];
+        System.arraycopy(names, 0, newNames, 0, index);
+        System.arraycopy(names, index + 1, newNames, index, names.length - index - 1);
+        System.arraycopy(rgb, 0, newRgb, 0, index);
+        System.arraycopy(rgb, index + 1, newRgb, index, rgb.length - index - 1);
+        return new PackedPalette(newNames, newRgb);
+    }
+
+    /**
+     * Геттер названия цвета без создания точки
+     * @param index - индекс цвета
+     * @return - возвращает название
+     */
+    String nameOf(int index) {
+        return names[index];
+    }
+
+    /**
+     * Геттер массива названий. Массив общий - изменять его нельзя
+     * @return - возвращает названия цветов
+     */
+    String[] names() {
+        return names;
+    }
+
+    /**
+     * Геттер массива кодов. Массив общий - изменять его нельзя
+     * @return - возвращает упакованные коды цветов
+     */
+    int[] rgb() {
+        return rgb;
+    }
+
+    @Override
+    public ColorPoint get(int index) {
+        return new ColorPoint(names[index], rgb[index]);
+    }
+
+    @Override
+    public int size() {
+        return rgb.length;
+    }
+
+    private static String intern(String name) {
+        return name == null ? null : name.intern();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.folko85.tableofcolor;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Перечисление форматов файлов с палитрой именованных цветов
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public enum PaletteFormat {
+    /** Формат встроенных палитр en.yml и ru.yml: строки "название: код" под заголовками разделов */
+    YAML,
+    /** Строки "название,код" (или через точку с запятой), название можно взять в двойные кавычки */
+    CSV,
+    /** Компактный двоичный формат для очень больших палитр: заголовок, количество цветов, затем код и название каждого */
+    BINARY;
+
+    /**
+     * Метод определения формата по расширению файла: .yml и .yaml, .csv, .ctpl
+     * @param file - путь к файлу с палитрой
+     * @return - метод возвращает формат файла
+     */
+    public static PaletteFormat fromFileName(Path file) {
+        String name = String.valueOf(file.getFileName()).toLowerCase(Locale.ROOT);
+        if (name.endsWith(".yml") || name.endsWith(".yaml")) {
+            return YAML;
+        }
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ctpl")) {
+            return BINARY;
+        }
+        throw new IllegalArgumentException("Неизвестный формат палитры (ожидается .yml, .yaml, .csv или .ctpl): " + file);
+    }
+}
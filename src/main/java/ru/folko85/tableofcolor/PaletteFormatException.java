@@ -0,0 +1,33 @@
+package ru.folko85.tableofcolor;
+
+/**
+ * Исключение, возникающее при чтении палитры с ошибкой в данных.
+ * Сообщение содержит источник палитры и номер строки (для двоичного формата - номер записи)
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public class PaletteFormatException extends IllegalArgumentException {
+    /** Поле - номер строки или записи с ошибкой, 0 - ошибка не привязана к строке */
+    private final long lineNumber;
+
+    /**
+     * Конструктор - создание исключения
+     * @param source - имя источника палитры (файл, ресурс или поток)
+     * @param lineNumber - номер строки или записи, начиная с 1
+     * @param message - описание ошибки
+     */
+    public PaletteFormatException(String source, long lineNumber, String message) {
+        super(source + (lineNumber > 0 ? ", строка " + lineNumber : "") + ": " + message);
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Геттер номера строки с ошибкой
+     * @return - возвращает номер строки или записи, 0 - ошибка не привязана к строке
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+}
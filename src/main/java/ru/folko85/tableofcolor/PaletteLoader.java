@@ -0,0 +1,299 @@
+package ru.folko85.tableofcolor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Вспомогательный класс библиотеки - чтение и запись палитр.
+ * Палитра читается из потока построчно (или по записям для двоичного формата), без загрузки файла
+ * в память целиком. Ошибки в данных сообщаются исключением {@link PaletteFormatException} с номером строки
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class PaletteLoader {
+    /** Заголовок двоичного формата - байты "CTPL" */
+    static final int BINARY_MAGIC = 0x4354504C;
+    /** Версия двоичного формата */
+    static final int BINARY_VERSION = 1;
+    /** Размер буферов чтения и записи */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private PaletteLoader() {
+    }
+
+    /**
+     * Метод чтения встроенной палитры из ресурсов библиотеки
+     * @param resourceName - имя ресурса, например "en.yml"
+     * @return - метод возвращает список точек-цветов
+     */
+    static List<ColorPoint> loadResource(String resourceName) {
+        InputStream in = PaletteLoader.class.getClassLoader().getResourceAsStream(resourceName);
+        if (in == null) {
+            throw new IllegalArgumentException("Палитра " + resourceName + " не найдена среди ресурсов");
+        }
+        try (in) {
+            return load(in, PaletteFormat.fromFileName(Path.of(resourceName)), resourceName);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Не удалось прочитать палитру " + resourceName, ex);
+        }
+    }
+
+    /**
+     * Метод чтения палитры из файла, формат определяется по расширению
+     * @param file - путь к файлу с палитрой
+     * @return - метод возвращает список точек-цветов
+     */
+    static List<ColorPoint> load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return load(in, PaletteFormat.fromFileName(file), file.toString());
+        }
+    }
+
+    /**
+     * Метод чтения палитры из потока. Поток не закрывается
+     * @param in - поток с палитрой
+     * @param format - формат палитры
+     * @param source - имя источника для сообщений об ошибках
+     * @return - метод возвращает список точек-цветов в порядке их следования в источнике
+     */
+    static List<ColorPoint> load(InputStream in, PaletteFormat format, String source) throws IOException {
+        List<ColorPoint> colors;
+        switch (format) {
+            case YAML:
+                colors = readText(in, source, false);
+                break;
+            case CSV:
+                colors = readText(in, source, true);
+                break;
+            default:
+                colors = readBinary(in, source);
+        }
+        if (colors.isEmpty()) {
+            throw new PaletteFormatException(source, 0, "в палитре нет ни одного цвета");
+        }
+        return colors;
+    }
+
+    /**
+     * Метод чтения текстовой палитры. В yml-файле пропускаются заголовки разделов ("en:", "colors:") -
+     * ключи без значения, за которыми идут строки с большим отступом; ключ без значения и без вложенных строк
+     * ("Red:") - ошибка, а не раздел. В csv-файле пропускается строка заголовка; в обоих пропускаются пустые
+     * строки и комментарии после #
+     * @param csv - true для строк "название,код", false для строк "название: код"
+     */
+    private static List<ColorPoint> readText(InputStream in, String source, boolean csv) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        List<ColorPoint> colors = new ArrayList<>();
+        String line;
+        long lineNumber = 0;
+        boolean headerAllowed = csv;                    // первая строка csv может быть заголовком "name,hex"
+        long sectionLine = 0;                           // строка последнего заголовка yaml, пока не видно его содержимого
+        int sectionIndent = 0;
+        String sectionName = null;
+        while ((line = reader.readLine()) != null) {       // readLine сам справляется и с \n, и с \r\n
+            lineNumber++;
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                line = line.substring(1);                    // метка порядка байтов от блокнота
+            }
+            String content = csv ? (line.strip().startsWith("#") ? "" : line) : stripComment(line);
+            String comment = line.substring(content.length());
+            line = content.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            int indent = content.length() - content.stripLeading().length();
+            if (sectionLine != 0) {
+                if (indent <= sectionIndent) {
+                    throw emptyKey(source, sectionLine, sectionName);
+                }
+                sectionLine = 0;
+            }
+            int separator = csv ? findCsvSeparator(line) : line.lastIndexOf(':');
+            if (separator < 0) {
+                throw new PaletteFormatException(source, lineNumber,
+                        "ожидается \"" + (csv ? "название,код" : "название: код") + "\", а получено \"" + line + "\"");
+            }
+            String name = unquote(line.substring(0, separator).strip());
+            String hexCode = unquote(line.substring(separator + 1).strip());
+            if (!csv && hexCode.isEmpty()) {
+                if (comment.matches("#\\p{XDigit}{6}\\s*")) {      // "Red: #FF0000" в yaml - это пустое значение с комментарием
+                    throw new PaletteFormatException(source, lineNumber, "код цвета с # нужно взять в кавычки: \"" + comment.strip() + "\"");
+                }
+                sectionLine = lineNumber;                     // заголовок раздела, если дальше строки глубже
+                sectionIndent = indent;
+                sectionName = name;
+                continue;
+            }
+            try {
+                ColorPoint.packedFromHex(hexCode);                // проверяем код до создания точки
+            } catch (NumberFormatException ex) {
+                if (headerAllowed) {
+                    headerAllowed = false;
+                    continue;
+                }
+                throw new PaletteFormatException(source, lineNumber, "неверный код цвета \"" + hexCode + "\" у цвета \"" + name + "\"");
+            }
+            headerAllowed = false;
+            if (name.isEmpty()) {
+                throw new PaletteFormatException(source, lineNumber, "у цвета " + hexCode + " нет названия");
+            }
+            colors.add(new ColorPoint(name, hexCode.charAt(0) == '#' ? hexCode.substring(1) : hexCode));
+        }
+        if (sectionLine != 0) {
+            throw emptyKey(source, sectionLine, sectionName);
+        }
+        return colors;
+    }
+
+    private static PaletteFormatException emptyKey(String source, long lineNumber, String name) {
+        return new PaletteFormatException(source, lineNumber, "у \"" + name + "\" нет ни кода цвета, ни вложенных строк");
+    }
+
+    /**
+     * Метод удаления комментария yaml: # в начале строки или после пробела, вне кавычек.
+     * Кавычка открывает строку только в начале слова, так что апостроф в названии ничего не ломает
+     */
+    private static String stripComment(String line) {
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            boolean wordStart = i == 0 || Character.isWhitespace(line.charAt(i - 1)) || line.charAt(i - 1) == ':';
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if ((c == '"' || c == '\'') && wordStart) {
+                quote = c;
+            } else if (c == '#' && wordStart && (i == 0 || line.charAt(i - 1) != ':')) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Метод поиска разделителя csv - последней запятой или точки с запятой вне кавычек
+     */
+    private static int findCsvSeparator(String line) {
+        int separator = -1;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;                   // удвоенная кавычка внутри названия дважды меняет состояние
+            } else if (!quoted && (c == ',' || c == ';')) {
+                separator = i;
+            }
+        }
+        return separator;
+    }
+
+    /**
+     * Метод снятия кавычек; удвоенные кавычки внутри превращаются в одинарные
+     */
+    private static String unquote(String value) {
+        if (value.length() >= 2) {
+            char first = value.charAt(0);
+            if ((first == '"' || first == '\'') && value.charAt(value.length() - 1) == first) {
+                String doubled = String.valueOf(first) + first;
+                return value.substring(1, value.length() - 1).replace(doubled, String.valueOf(first));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Метод чтения двоичной палитры: заголовок CTPL, версия, количество цветов,
+     * затем для каждого цвета упакованный код 0xRRGGBB и название в модифицированной UTF-8
+     */
+    private static List<ColorPoint> readBinary(InputStream in, String source) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        int count;
+        try {
+            if (data.readInt() != BINARY_MAGIC) {
+                throw new PaletteFormatException(source, 0, "это не двоичная палитра - нет заголовка CTPL");
+            }
+            int version = data.readInt();
+            if (version != BINARY_VERSION) {
+                throw new PaletteFormatException(source, 0, "неподдерживаемая версия двоичной палитры " + version);
+            }
+            count = data.readInt();
+        } catch (EOFException ex) {
+            throw new PaletteFormatException(source, 0, "файл обрезан на заголовке");
+        }
+        if (count < 0) {
+            throw new PaletteFormatException(source, 0, "отрицательное количество цветов " + count);
+        }
+        List<ColorPoint> colors = new ArrayList<>(Math.min(count, 1 << 20));   // не верим заголовку на слово
+        for (int i = 1; i <= count; i++) {
+            try {
+                int rgb = data.readInt();
+                String name = data.readUTF();
+                if ((rgb & 0xFF000000) != 0) {
+                    throw new PaletteFormatException(source, i, "код цвета вне диапазона: " + Integer.toHexString(rgb));
+                }
+                colors.add(new ColorPoint(name, rgb));
+            } catch (EOFException ex) {
+                throw new PaletteFormatException(source, i, "файл обрезан, ожидалось цветов: " + count);
+            }
+        }
+        return colors;
+    }
+
+    /**
+     * Метод записи палитры в поток. Поток не закрывается
+     * @param colors - список точек-цветов
+     * @param out - поток для записи
+     * @param format - формат палитры
+     */
+    static void write(List<ColorPoint> colors, OutputStream out, PaletteFormat format) throws IOException {
+        if (format == PaletteFormat.BINARY) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+            data.writeInt(BINARY_MAGIC);
+            data.writeInt(BINARY_VERSION);
+            data.writeInt(colors.size());
+            for (ColorPoint color : colors) {
+                data.writeInt(color.getRgb());
+                data.writeUTF(color.getColorName());
+            }
+            data.flush();
+            return;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == PaletteFormat.YAML) {
+            writer.write("palette:\n  colors:\n");
+        }
+        for (ColorPoint color : colors) {
+            String name = color.getColorName();
+            char quote = format == PaletteFormat.CSV ? '"' : '\'';     // кавычка удваивается внутри названия
+            boolean quoted = name.isEmpty() || Character.isWhitespace(name.charAt(0))
+                    || Character.isWhitespace(name.charAt(name.length() - 1))
+                    || name.chars().anyMatch(c -> c == '#' || c == '"' || c == '\'' || c == ':' || c == ',' || c == ';');
+            writer.write(format == PaletteFormat.YAML ? "    " : "");
+            writer.write(quoted ? quote + name.replace(String.valueOf(quote), "" + quote + quote) + quote : name);
+            writer.write(format == PaletteFormat.YAML ? ": " : ",");
+            writer.write(ColorPoint.rgbToHex(color.getRValue(), color.getGValue(), color.getBValue()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,197 @@
+package ru.folko85.tableofcolor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Вспомогательный класс библиотеки - пакетная обработка пикселей.
+ * Большие массивы делятся пополам, пока куски не станут меньше {@link #CHUNK_SIZE}, и обрабатываются
+ * параллельно в общем пуле fork-join. Внутри куска соседние одинаковые пиксели (а на картинках их много)
+ * ищутся в таблице только один раз
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class PixelBatch {
+    /** Размер куска, который обрабатывается одним потоком без дальнейшего деления */
+    static final int CHUNK_SIZE = 1 << 14;
+
+    private PixelBatch() {
+    }
+
+    /**
+     * Метод поиска индексов для всех пикселей
+     * @param table - таблица, в которой ищутся цвета
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @param indexes - массив для индексов ближайших цветов
+     */
+    static void findIndexes(TableOfColor table, int[] pixels, int[] indexes) {
+        checkLength(pixels.length, indexes.length);
+        run(new IndexTask(table, pixels, indexes, null, 0, pixels.length));
+    }
+
+    /**
+     * Метод поиска индексов для всех пикселей с записью в массив short (вдвое меньше памяти).
+     * Индексы записываются как беззнаковые, так что палитра должна быть не больше 65536 цветов
+     * @param table - таблица, в которой ищутся цвета
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @param indexes - массив для индексов ближайших цветов
+     */
+    static void findIndexes(TableOfColor table, int[] pixels, short[] indexes) {
+        checkLength(pixels.length, indexes.length);
+        if (table.getPaletteSize() > DenseColorTable.MAX_PALETTE_SIZE) {
+            throw new IllegalArgumentException("Индексы палитры из " + table.getPaletteSize() + " цветов не помещаются в short");
+        }
+        run(new IndexTask(table, pixels, null, indexes, 0, pixels.length));
+    }
+
+    /**
+     * Метод подсчёта пикселей каждого именованного цвета без сохранения индексов каждого пикселя
+     * @param table - таблица, в которой ищутся цвета
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @return - метод возвращает количество пикселей для каждого индекса палитры
+     */
+    static long[] countColors(TableOfColor table, int[] pixels) {
+        HistogramTask task = new HistogramTask(table, pixels, 0, pixels.length);
+        return pixels.length <= CHUNK_SIZE ? task.compute() : ForkJoinPool.commonPool().invoke(task);
+    }
+
+    /**
+     * Метод поиска индексов для начала массива пикселей в текущем потоке, без пула fork-join.
+     * Для вызывающих, которые сами распределяют работу по своим потокам
+     * @param table - таблица, в которой ищутся цвета
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @param indexes - массив для индексов ближайших цветов
+     * @param count - сколько пикселей с начала массива обработать
+     */
+    static void findIndexesSequential(TableOfColor table, int[] pixels, int[] indexes, int count) {
+        checkLength(count, indexes.length);
+        findRange(table, pixels, indexes, null, 0, count);
+    }
+
+    /**
+     * Метод поиска индексов для куска массива пикселей в текущем потоке, без пула fork-join
+     * @param table - таблица, в которой ищутся цвета
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @param indexes - массив для индексов ближайших цветов, той же длины, что и массив пикселей
+     * @param from - индекс первого пикселя куска
+     * @param to - индекс за последним пикселем куска
+     */
+    static void findIndexesSequential(TableOfColor table, int[] pixels, int[] indexes, int from, int to) {
+        checkLength(to, indexes.length);
+        findRange(table, pixels, indexes, null, from, to);
+    }
+
+    private static void checkLength(int pixels, int indexes) {
+        if (indexes < pixels) {
+            throw new IllegalArgumentException("Массив индексов короче массива пикселей: " + indexes + " < " + pixels);
+        }
+    }
+
+    private static void run(IndexTask task) {
+        if (task.to - task.from <= CHUNK_SIZE) {
+            task.compute();                      // маленькие картинки не стоят пересылки в пул
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    /**
+     * Задача поиска индексов для куска массива пикселей
+     */
+    private static final class IndexTask extends RecursiveAction {
+        private final TableOfColor table;
+        private final int[] pixels;
+        private final int[] intIndexes;
+        private final short[] shortIndexes;
+        private final int from;
+        private final int to;
+
+        private IndexTask(TableOfColor table, int[] pixels, int[] intIndexes, short[] shortIndexes, int from, int to) {
+            this.table = table;
+            this.pixels = pixels;
+            this.intIndexes = intIndexes;
+            this.shortIndexes = shortIndexes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new IndexTask(table, pixels, intIndexes, shortIndexes, from, middle),
+                        new IndexTask(table, pixels, intIndexes, shortIndexes, middle, to));
+                return;
+            }
+            findRange(table, pixels, intIndexes, shortIndexes, from, to);
+        }
+    }
+
+    /**
+     * Поиск индексов для куска массива в текущем потоке; соседние одинаковые пиксели ищутся один раз
+     */
+    private static void findRange(TableOfColor table, int[] pixels, int[] intIndexes, short[] shortIndexes, int from, int to) {
+        int previousRgb = -1;          // ни один код 0xRRGGBB не равен -1
+        int previousIndex = 0;
+        for (int i = from; i < to; i++) {
+            int rgb = pixels[i] & 0xFFFFFF;
+            if (rgb != previousRgb) {
+                previousIndex = table.findNamedColorIndex(rgb);
+                previousRgb = rgb;
+            }
+            if (intIndexes != null) {
+                intIndexes[i] = previousIndex;
+            } else {
+                shortIndexes[i] = (short) previousIndex;
+            }
+        }
+    }
+
+    /**
+     * Задача подсчёта цветов для куска массива пикселей. Каждый кусок считает в свой массив,
+     * а массивы складываются при объединении результатов
+     */
+    private static final class HistogramTask extends RecursiveTask<long[]> {
+        private final TableOfColor table;
+        private final int[] pixels;
+        private final int from;
+        private final int to;
+
+        private HistogramTask(TableOfColor table, int[] pixels, int from, int to) {
+            this.table = table;
+            this.pixels = pixels;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                HistogramTask right = new HistogramTask(table, pixels, middle, to);
+                right.fork();
+                long[] counts = new HistogramTask(table, pixels, from, middle).compute();
+                long[] rightCounts = right.join();
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += rightCounts[i];
+                }
+                return counts;
+            }
+            long[] counts = new long[table.getPaletteSize()];
+            int i = from;
+            while (i < to) {
+                int rgb = pixels[i] & 0xFFFFFF;
+                int runEnd = i + 1;
+                while (runEnd < to && (pixels[runEnd] & 0xFFFFFF) == rgb) {   // вся серия одинаковых пикселей разом
+                    runEnd++;
+                }
+                counts[table.findNamedColorIndex(rgb)] += runEnd - i;
+                i = runEnd;
+            }
+            return counts;
+        }
+    }
+}
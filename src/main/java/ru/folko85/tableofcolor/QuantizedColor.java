@@ -0,0 +1,61 @@
+package ru.folko85.tableofcolor;
+
+/**
+ * Класс цвета палитры, построенной по картинке, - средний цвет группы пикселей,
+ * количество этих пикселей и ближайший к среднему именованный цвет
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public final class QuantizedColor {
+    /** Поле - средний цвет группы, упакованный код 0xRRGGBB */
+    private final int rgb;
+    /** Поле - количество пикселей в группе */
+    private final long pixelCount;
+    /** Поле - ближайший именованный цвет и расстояние до него */
+    private final ColorMatch namedColor;
+
+    QuantizedColor(int rgb, long pixelCount, ColorMatch namedColor) {
+        this.rgb = rgb;
+        this.pixelCount = pixelCount;
+        this.namedColor = namedColor;
+    }
+
+    /**
+     * Геттер кода цвета
+     * @return - возвращает средний цвет группы пикселей, упакованный код 0xRRGGBB
+     */
+    public int getRgb() {
+        return rgb;
+    }
+
+    /**
+     * Геттер шестнадцатеричного кода цвета
+     * @return - возвращает шестизначный код в нижнем регистре, без #
+     */
+    public String getHexCode() {
+        return ColorPoint.rgbToHex(rgb >>> 16, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    /**
+     * Геттер количества пикселей
+     * @return - возвращает количество пикселей картинки, попавших в эту группу
+     */
+    public long getPixelCount() {
+        return pixelCount;
+    }
+
+    /**
+     * Геттер ближайшего именованного цвета
+     * @return - возвращает именованный цвет таблицы и его расстояние до среднего цвета группы
+     */
+    public ColorMatch getNamedColor() {
+        return namedColor;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + getHexCode() + " x" + pixelCount + " -> " + namedColor;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.folko85.tableofcolor;
+
+import java.util.Arrays;
+
+/**
+ * Вспомогательный класс библиотеки - поиск ближайшего цвета перебором.
+ * Палитра хранится как три отдельных массива int (структура массивов), дополненных до кратной шестнадцати
+ * длины далёкими точками, чтобы векторным циклам не нужен был хвост. Перебор идёт в два прохода: сначала
+ * наименьший квадрат расстояния, потом первый цвет с таким расстоянием - так при равенстве побеждает
+ * наименьший индекс.
+ * Сам этот класс - обычная реализация. Замеры ScanKernelBenchmark показали, что C2 свёртку минимума
+ * по int выгодно не векторизует, и обычный перебор проигрывает kd-дереву на палитрах любого размера.
+ * А наследник на Vector API (JDK 17+, модуль jdk.incubator.vector, профиль сборки vector) обгоняет дерево
+ * на палитрах до {@link #MAX_PALETTE_SIZE} цветов - только его таблица и выбирает, иначе ищет по дереву
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+class ScanKernel {
+    /** Наибольший размер палитры, для которого векторный перебор быстрее kd-дерева */
+    static final int MAX_PALETTE_SIZE = 256;
+    /** Кратность длины массивов: 16 int - самый широкий вектор (AVX-512), более узкие в него укладываются целиком */
+    static final int PADDING = 16;
+    /** Координата точек-заполнителей: далеко за кубом RGB, но квадрат расстояния ещё помещается в int */
+    private static final int FAR_AWAY = 1 << 14;
+    /** Имя класса векторной реализации */
+    private static final String VECTOR_KERNEL = "ru.folko85.tableofcolor.VectorScanKernel";
+    /** Координаты цветов палитры по осям */
+    protected final int[] rs;
+    protected final int[] gs;
+    protected final int[] bs;
+    /** Размер палитры без заполнителей */
+    protected final int size;
+
+    /**
+     * Конструктор - раскладка упакованных кодов по трём массивам
+     * @param paletteRgb - упакованные коды 0xRRGGBB цветов палитры
+     */
+    ScanKernel(int[] paletteRgb) {
+        this.size = paletteRgb.length;
+        int length = (size + PADDING - 1) / PADDING * PADDING;
+        this.rs = new int[length];
+        this.gs = new int[length];
+        this.bs = new int[length];
+        Arrays.fill(rs, size, length, FAR_AWAY);
+        Arrays.fill(gs, size, length, FAR_AWAY);
+        Arrays.fill(bs, size, length, FAR_AWAY);
+        for (int i = 0; i < size; i++) {
+            rs[i] = (paletteRgb[i] >>> 16) & 0xFF;
+            gs[i] = (paletteRgb[i] >>> 8) & 0xFF;
+            bs[i] = paletteRgb[i] & 0xFF;
+        }
+    }
+
+    /**
+     * Метод выбора реализации: векторная, если она есть в сборке и модуль jdk.incubator.vector подключён
+     * (--add-modules jdk.incubator.vector), иначе обычная
+     * @param paletteRgb - упакованные коды 0xRRGGBB цветов палитры
+     * @return - метод возвращает самую быструю доступную реализацию
+     */
+    static ScanKernel create(int[] paletteRgb) {
+        ScanKernel vector = createVector(paletteRgb);
+        return vector != null ? vector : new ScanKernel(paletteRgb);
+    }
+
+    /**
+     * Метод выбора перебора для таблицы по размеру палитры
+     * @param paletteRgb - упакованные коды 0xRRGGBB цветов палитры
+     * @return - метод возвращает векторный перебор, если он доступен и палитра не больше {@link #MAX_PALETTE_SIZE},
+     * или null, если по дереву искать быстрее
+     */
+    static ScanKernel forPalette(int[] paletteRgb) {
+        return paletteRgb.length <= MAX_PALETTE_SIZE ? createVector(paletteRgb) : null;
+    }
+
+    private static ScanKernel createVector(int[] paletteRgb) {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (ScanKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor(int[].class).newInstance((Object) paletteRgb);
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                // сборка без профиля vector или JDK, на котором векторный класс не загружается - обходимся без него
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Основной метод - поиск ближайшего цвета перебором
+     * @param r - интенсивность красного цвета
+     * @param g - интенсивность зелёного цвета
+     * @param b - интенсивность голубого цвета
+     * @return - метод возвращает индекс ближайшего цвета; при равных расстояниях - наименьший
+     */
+    int nearest(int r, int g, int b) {
+        int[] rs = this.rs;
+        int[] gs = this.gs;
+        int[] bs = this.bs;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < rs.length; i++) {
+            int dr = rs[i] - r;
+            int dg = gs[i] - g;
+            int db = bs[i] - b;
+            int distance = dr * dr + dg * dg + db * db;
+            min = distance < min ? distance : min;
+        }
+        for (int i = 0; ; i++) {                  // цвет с наименьшим расстоянием точно есть
+            int dr = rs[i] - r;
+            int dg = gs[i] - g;
+            int db = bs[i] - b;
+            if (dr * dr + dg * dg + db * db == min) {
+                return i;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.folko85.tableofcolor;
+
+/**
+ * Вспомогательный класс библиотеки - счётчики одного поиска для статистики.
+ * Передаётся в поиск только при включённой статистике, в остальных случаях вместо него передаётся null
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class SearchStats {
+    /** Поле - сколько вёдер (или шагов улучшения результата) пришлось посетить */
+    int visits;
+    /** Поле - для скольких цветов палитры вычислено расстояние */
+    int candidates;
+
+    /**
+     * Метод учёта посещения ведра
+     * @param points - количество цветов в ведре
+     */
+    void visit(int points) {
+        visits++;
+        candidates += points;
+    }
+}
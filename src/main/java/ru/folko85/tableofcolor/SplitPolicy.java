@@ -0,0 +1,24 @@
+package ru.folko85.tableofcolor;
+
+/**
+ * Перечисление способов деления ведра при построении kd-дерева.
+ * Ось и плоскость деления определяют, сколько вёдер и точек просмотрит поиск: середина разброса
+ * хороша для равномерных палитр, медиана - для палитр со сгущениями (например, много оттенков серого),
+ * а оценка по площади поверхности - для палитр, где точки лежат вытянутыми облаками
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public enum SplitPolicy {
+    /** Середина разброса точек по оси с наибольшим разбросом - способ по умолчанию */
+    MIDPOINT,
+    /** Медиана точек по оси с наибольшим разбросом: обе половины получают поровну точек, дерево сбалансировано */
+    MEDIAN,
+    /**
+     * Оценка по площади поверхности: из всех осей и плоскостей между точками выбирается та, при которой
+     * сумма (количество точек × площадь поверхности охватывающего их параллелепипеда) по обеим половинам
+     * наименьшая - так вёдра получаются компактными, и поиск реже заходит в соседние
+     */
+    SURFACE_AREA
+}
@@ -1,30 +1,61 @@
 package ru.folko85.tableofcolor;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Основной класс библиотеки - таблица именованных цветов.
- * При создании таблицы именованные цвета извлекаются из yml-файла и раскладываются по вёдрам
+ * При создании таблицы именованные цвета извлекаются из yml-файла и раскладываются по вёдрам kd-дерева.
+ * После создания таблица не изменяется, поэтому один её экземпляр можно без блокировок
+ * использовать из любого количества потоков. Таблицы встроенных палитр удобнее брать из общего реестра
+ * методом {@link #forLocale(Locale)} - так палитра читается и дерево строится один раз на весь процесс
  * @author Othernik aka Folko85
  * @version 1.0.6
  */
 
 public class TableOfColor {
-    /** Поле - имя  файла */
-    private final String ymlFile;
-    /** Поле - список точек-цветов */
-    private final List<ColorPoint> colors;
-    /** Поле - список вёдер */
-    private final List<BucketOfColor> buckets = new ArrayList<>();
+    /** Поле - палитра: названия и упакованные коды цветов в двух массивах */
+    private final PackedPalette colors;
+    /** Поле - метрика, по которой ищется ближайший цвет */
+    private final ColorMetric metric;
+    /** Поле - kd-дерево вёдер, построенное при создании таблицы и больше не изменяющееся; null для ΔE 2000 */
+    private final BucketTree tree;
+    /** Поле - векторный перебор небольшой палитры вместо дерева; null, если по дереву быстрее */
+    private final ScanKernel scanKernel;
+    /** Поле - палитра, упорядоченная по светлоте, для поиска по ΔE 2000; null для остальных метрик */
+    private final LightnessIndex lightnessIndex;
+    /** Поле - координаты палитры в CIELAB (L, a, b), вычисленные один раз; null для метрик в RGB */
+    private final float[][] paletteLab;
     /** Поле - начальная граничная точка рабочей области */
-    private int[] startPoint = new int[]{0, 0, 0};       // все наши цвета находятся в этом диапазоне
+    private static final int[] startPoint = new int[]{0, 0, 0};       // все наши цвета находятся в этом диапазоне
     /** Поле - конечная граничная точка рабочей области */
-    private int[] endPoint = new int[]{256, 256, 256};
+    private static final int[] endPoint = new int[]{256, 256, 256};
     /** Поле - максимальное количество точек-цветов в ведре  */
-    private static int maxPointsCount = 16;
+    private final int maxPointsCount;
+    /** Поле - способ деления вёдер при построении дерева */
+    private final SplitPolicy splitPolicy;
+    /** Поле - подбиралось ли дерево при построении; новая палитра тогда тоже получит подобранное дерево */
+    private final boolean autoTune;
+    /** Поле - разрешён ли векторный перебор маленьких палитр; новая палитра получает то же разрешение */
+    private final boolean scanKernelEnabled;
+    /** Поле - упакованные коды 0xRRGGBB всех цветов палитры, в том же порядке, что и список точек-цветов */
+    private final int[] paletteRgb;
+    /** Размер плотной таблицы поиска в байтах */
+    public static final long DENSE_TABLE_BYTES = DenseColorTable.MEMORY_BYTES;
+    /** Поле - плотная таблица поиска, null если таблица создана без неё */
+    private final DenseColorTable denseTable;
+    /** Поле - кэш результатов поиска, null если таблица создана без него */
+    private final ColorCache cache;
+    /** Поле - указатель названий и кодов для обратного поиска */
+    private final NameIndex nameIndex;
+    /** Поле - статистика поиска, null если таблица создана без неё */
+    private final LookupMetrics metrics;
 
     /**
      * Конструктор - создание нового объекта с определенными значениями
@@ -32,178 +63,807 @@ public class TableOfColor {
      *               список точек-цветов и распределяется по вёдрам
      */
     public TableOfColor(Locale locale) {
-        this.ymlFile = locale.getLanguage() + ".yml";
-        this.colors = extractYml(this.ymlFile);
-        this.buckets.add(new BucketOfColor(startPoint, endPoint));
-        distributePoints(colors);               // распределим все точки по вёдрам
+        this(locale, false);
     }
 
     /**
-     * Метод извлечения точек из yml-файла
-     * @param ymlFile - имя файла, зависящее от языка создаваемой таблицы
-     * @return - возвращает список всех точек-цветов, извлечённых из файла
+     * Конструктор - создание таблицы с возможностью построить плотную таблицу поиска.
+     * Плотная таблица хранит ближайший цвет для каждого из 256³ RGB-кодов: это {@link #DENSE_TABLE_BYTES}
+     * байт памяти и несколько секунд на построение (параллельно на всех ядрах), зато поиск
+     * превращается в одно чтение из массива
+     * @param locale - язык создаваемой таблицы
+     * @param denseLookup - true, если нужно построить плотную таблицу поиска
+     */
+    public TableOfColor(Locale locale, boolean denseLookup) {
+        this(locale, new TableSettings().setDenseLookup(denseLookup));
+    }
+
+    /**
+     * Конструктор - создание таблицы с заданными настройками
+     * @param locale - язык создаваемой таблицы
+     * @param settings - настройки таблицы: плотная таблица поиска, кэш результатов
+     */
+    public TableOfColor(Locale locale, TableSettings settings) {
+        this(extractYml(locale.getLanguage() + ".yml"), settings);
+    }
+
+    /**
+     * Конструктор - создание таблицы из файла с палитрой. Формат определяется по расширению:
+     * .yml или .yaml, .csv, .ctpl (двоичный)
+     * @param palette - путь к файлу с палитрой
+     * @param settings - настройки таблицы
+     * @throws IOException - если файл не удалось прочитать
+     * @throws PaletteFormatException - если в файле ошибка; сообщение содержит номер строки
+     */
+    public TableOfColor(Path palette, TableSettings settings) throws IOException {
+        this(PaletteLoader.load(palette), settings);
+    }
+
+    /**
+     * Конструктор - создание таблицы из потока с палитрой. Поток читается до конца, но не закрывается
+     * @param palette - поток с палитрой
+     * @param format - формат палитры
+     * @param settings - настройки таблицы
+     * @throws IOException - если поток не удалось прочитать
+     * @throws PaletteFormatException - если в палитре ошибка; сообщение содержит номер строки
+     */
+    public TableOfColor(InputStream palette, PaletteFormat format, TableSettings settings) throws IOException {
+        this(PaletteLoader.load(palette, format, "поток " + format), settings);
+    }
+
+    /**
+     * Конструктор - создание таблицы по готовому списку точек-цветов
+     * @param colors - список точек-цветов, порядок которого задаёт индексы цветов в палитре
+     * @param settings - настройки таблицы
+     */
+    TableOfColor(List<ColorPoint> colors, TableSettings settings) {
+        this(colors, settings, null, null, null);
+    }
+
+    /**
+     * Конструктор - создание таблицы с уже готовым деревом, например обновлённым после добавления цвета
+     * @param colors - список точек-цветов
+     * @param settings - настройки таблицы
+     * @param updatedTree - дерево для этой палитры или null, чтобы построить его заново; для ΔE 2000 -
+     *                    дерево первого кандидата
+     * @param updatedDense - обновление плотной таблицы прежней палитры, вызываемое с готовым поиском этой таблицы,
+     *                     или null, чтобы строить плотную таблицу по настройкам
+     * @param inheritedMetrics - статистика прежней палитры, которая продолжает копиться, или null
      */
-    private List<ColorPoint> extractYml(String ymlFile) {  // так криво, потому что некогда разбираться в парсерах ради простенькой операции
-        ClassLoader classLoader = this.getClass().getClassLoader();
-        List<ColorPoint> colorPoints = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(classLoader.getResourceAsStream(ymlFile)))) {
-            String colorLine;
-            List<String> lines = new ArrayList<>();
-            while ((colorLine = reader.readLine()) != null) {
-                lines.add(colorLine);
+    private TableOfColor(List<ColorPoint> colors, TableSettings settings, BucketTree updatedTree,
+                         Function<TableOfColor, DenseColorTable> updatedDense, LookupMetrics inheritedMetrics) {
+        long buildStart = System.nanoTime();
+        this.colors = PackedPalette.of(colors);
+        this.metric = settings.getMetric();
+        this.paletteRgb = this.colors.rgb();
+        this.paletteLab = metric.isLab() ? CieLab.toLab(paletteRgb) : null;
+        this.scanKernel = metric == ColorMetric.EUCLIDEAN_RGB && settings.isScanKernelEnabled()
+                ? ScanKernel.forPalette(paletteRgb) : null;
+        this.autoTune = settings.isAutoTune();
+        this.scanKernelEnabled = settings.isScanKernelEnabled();
+        BucketTree built = null;
+        if (scanKernel == null) {
+            built = updatedTree != null ? updatedTree
+                    : autoTune && metric == ColorMetric.CIEDE2000   // дерево там лишь ищет первого кандидата
+                    ? TreeTuner.tune(this::buildTree, seedTree -> new LightnessIndex(paletteLab, seedTree)::nearest,
+                            true, TreeTuner.SMALL_SAMPLE_SIZE)
+                    : autoTune ? TreeTuner.tune(this::buildTree, metric.isLab())
+                    : buildTree(settings.getLeafCapacity(), settings.getSplitPolicy());
+        }
+        this.maxPointsCount = built != null ? built.getLeafCapacity() : settings.getLeafCapacity();
+        this.splitPolicy = built != null ? built.getSplitPolicy() : settings.getSplitPolicy();
+        if (metric == ColorMetric.CIEDE2000) {
+            this.tree = null;
+            this.lightnessIndex = new LightnessIndex(paletteLab, built);
+        } else {
+            this.tree = built;
+            this.lightnessIndex = null;
+        }
+        long buildTimeNanos = System.nanoTime() - buildStart;
+        if (updatedDense != null) {
+            this.denseTable = updatedDense.apply(this);       // дерево и палитра уже готовы
+        } else if (settings.getIndexFile() != null) {
+            try {
+                this.denseTable = IndexFile.openOrBuild(settings.getIndexFile(), this.colors, metric, this::nearest);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Не удалось прочитать файл индекса " + settings.getIndexFile(), ex);
             }
-            lines.remove(1);
-            lines.remove(0);
-            colorPoints = lines.stream().map(line -> {
-                String[] map = line.split(":");
-                return new ColorPoint(map[0].trim(), map[1].trim());
-            }).collect(Collectors.toList());
-        } catch (Exception ex) {
-            ex.printStackTrace();            // сюда привинтим логгер, но позже
+        } else {
+            this.denseTable = settings.isDenseLookup() ? DenseColorTable.build(paletteRgb.length, this::nearest) : null;
+        }
+        this.nameIndex = new NameIndex(this.colors.names(), paletteRgb);
+        this.metrics = inheritedMetrics != null ? inheritedMetrics : settings.isMetricsEnabled() ? new LookupMetrics() : null;
+        if (metrics != null) {
+            metrics.describe(tree, buildTimeNanos, denseTable == null ? 0 : denseTable.getBuildTimeNanos());
         }
-        return colorPoints;
+        this.cache = settings.getCacheCapacity() > 0 && denseTable == null ? new ColorCache(settings.getCacheCapacity()) : null;
     }
 
     /**
-     * Метод распределяет все именованные цвета по вёдрам
-     * @param points - список всех цветов-точек, полученных из yml-файла
+     * Метод построения дерева палитры: в CIELAB для ΔE 1976 и ΔE 2000 (там оно ищет первого кандидата),
+     * в RGB для остальных метрик
+     * @param leafCapacity - максимальное количество точек в листе
+     * @param policy - способ деления вёдер
+     * @return - метод возвращает построенное дерево
      */
-    private void distributePoints(List<ColorPoint> points) {
-        points.forEach(point -> {
-            BucketOfColor bucket = findBucket(point);  // для каждой точки находим подходящее ведро
-            bucket.addColorPoint(point);                          // и добавляем туда точку
-        });
+    private BucketTree buildTree(int leafCapacity, SplitPolicy policy) {
+        return metric.isLab() ? BucketTree.buildLab(paletteLab, leafCapacity, policy)
+                : BucketTree.build(colors, metric, startPoint, endPoint, leafCapacity, policy);   // распределим все точки по вёдрам
     }
 
     /**
-     * Метод поиска подходящего ведра для точки-цвета. При переполнении ведра вызывается метод splitBucket, делящий
-     * ведро на две части, а затем метод рекурсивно вызывает сам себя.
-     * @param point - точка-цвет, которую нужно положить в ведро. Метод выполняется для каждого именованного цвета
-     * @return - метод возвращает ведро, в границах которого находится наша точка-цвет
+     * Метод создания новой таблицы с тем же набором цветов и ещё одним цветом в конце палитры.
+     * Дерево не строится заново: новая точка добавляется в него с перестройкой одного листа; для ΔE 2000 так же
+     * обновляется дерево первого кандидата, а упорядоченная по светлоте палитра просто сортируется заново.
+     * Плотная таблица, если она есть, не строится заново, а обходится один раз: коды переходят к новому цвету,
+     * только если он строго ближе. Эта таблица не изменяется
+     * @param color - новый цвет
+     * @return - метод возвращает новую таблицу с теми же настройками
      */
-    private BucketOfColor findBucket(ColorPoint point) {
-        BucketOfColor resultBucket = buckets.stream()
-                .filter(bucket -> bucket.isContainPoint(point))
-                .findFirst().orElseThrow(); // находим ведро для точки
-        if (resultBucket.getSize() < maxPointsCount) {
-            return resultBucket;
-        } else {
-            splitBucket(resultBucket);
-            return findBucket(point);              // рекурсия иногда бывает полезна
+    TableOfColor withColorAdded(ColorPoint color) {
+        PackedPalette updated = colors.withAdded(color);
+        BucketTree currentTree = searchTree();
+        BucketTree updatedTree = null;
+        if (currentTree != null) {
+            float[] point = new float[]{color.getRValue(), color.getGValue(), color.getBValue()};
+            if (metric.isLab()) {
+                float[][] lab = CieLab.toLab(new int[]{color.getRgb()});
+                point = new float[]{lab[0][0], lab[1][0], lab[2][0]};
+            }
+            updatedTree = currentTree.withPoint(point[0], point[1], point[2], colors.size());
+        }
+        DenseColorTable currentDense = denseTable;
+        int added = colors.size();
+        return new TableOfColor(updated, derivedSettings(), updatedTree,
+                currentDense == null ? null : table -> currentDense.withAdded(added, table::isCloser), metrics);
+    }
+
+    /**
+     * Метод создания новой таблицы без одного цвета. Цвета после удалённого сдвигаются на одну позицию,
+     * а в дереве перестраивается только лист с удалённой точкой или, если он опустел, его родитель.
+     * В плотной таблице заново ищутся только коды, ближайшим для которых был удалённый цвет.
+     * Эта таблица не изменяется
+     * @param index - индекс удаляемого цвета
+     * @return - метод возвращает новую таблицу с теми же настройками
+     */
+    TableOfColor withColorRemoved(int index) {
+        if (colors.size() == 1) {
+            throw new IllegalStateException("Нельзя удалить единственный цвет палитры");
         }
+        PackedPalette updated = colors.withRemoved(Objects.checkIndex(index, colors.size()));
+        BucketTree currentTree = searchTree();
+        BucketTree updatedTree = currentTree == null ? null : currentTree.withoutPoint(index);
+        DenseColorTable currentDense = denseTable;
+        return new TableOfColor(updated, derivedSettings(), updatedTree,
+                currentDense == null ? null : table -> currentDense.withRemoved(index, table::nearest), metrics);
+    }
+
+    /**
+     * Вспомогательный метод - дерево, по которому ищет эта таблица: само дерево поиска или, для ΔE 2000,
+     * дерево первого кандидата. Если палитра перебирается целиком, дерева нет
+     */
+    private BucketTree searchTree() {
+        return tree != null ? tree : lightnessIndex != null ? lightnessIndex.getSeedTree() : null;
     }
 
     /**
-     * Метод разделения вёдер при переполнении.
-     * @param resultBucket - на вход принимается полное ведро, которое нужно разделить.
-     *                     В ходе работы метода ведро делится надвое по координате с самым большим разбросом
-     *                     точек. Новые вёдра добавляются в список вёдер, а старое удаляется из списка.
-     *                     Точки распределяются между вёдрами рекурсивным вызовом метода distributePoints
+     * Метод сравнения двух цветов палитры по расстоянию до кода - в тех же числах и в том же порядке действий,
+     * что и полный перебор, чтобы равные расстояния решались одинаково
+     * @param rgb - упакованный код цвета 0xRRGGBB
+     * @param candidate - индекс проверяемого цвета
+     * @param current - индекс цвета, с которым сравнивается
+     * @return - метод возвращает true, если candidate строго ближе
      */
-    private void splitBucket(BucketOfColor resultBucket) {
-        int bestAxis = resultBucket.getBestColorAxis();
-        int newBound = resultBucket.getBoundPlane(bestAxis);       // при делении параллелограмма плоскостью
-        int[] leftBoundCoordinates = new int[3];
-        // у условно левой части изменится конечная координата
-        int[] rightBoundCoordinates = new int[3];
-        resultBucket.getStartCoordinates(); // у условно правой части начальная координата
-        for (int j = 0; j < 3; j++) {
-            leftBoundCoordinates[j] = resultBucket.getEndCoordinates()[j];
-            rightBoundCoordinates[j] = resultBucket.getStartCoordinates()[j];
+    private boolean isCloser(int rgb, int candidate, int current) {
+        if (paletteLab != null) {
+            float fy = CieLab.fy(rgb);
+            float l = CieLab.lightness(fy);
+            float a = CieLab.a(CieLab.fx(rgb), fy);
+            float b = CieLab.b(fy, CieLab.fz(rgb));
+            return labDistance(l, a, b, candidate) < labDistance(l, a, b, current);
         }
-        leftBoundCoordinates[bestAxis] = newBound;
-        rightBoundCoordinates[bestAxis] = newBound + 1;
-        BucketOfColor leftBucket = new BucketOfColor(resultBucket.getStartCoordinates(), leftBoundCoordinates);
-        BucketOfColor rightBucket = new BucketOfColor(rightBoundCoordinates, resultBucket.getEndCoordinates());
-        List<ColorPoint> reDistributedPoints = resultBucket.getBucketPoints();
-        buckets.add(leftBucket);
-        buckets.add(rightBucket);      // добавляем новые вёдра
-        buckets.remove(resultBucket);   // удаляем старое ведро
-        distributePoints(reDistributedPoints);   //перераспределяем точки тем же методом, что и начали распределять их
+        int r = (rgb >>> 16) & 0xFF;
+        int g = (rgb >>> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        if (metric == ColorMetric.REDMEAN) {
+            return redmeanDistance(r, g, b, candidate) < redmeanDistance(r, g, b, current);
+        }
+        return euclideanDistance(r, g, b, candidate) < euclideanDistance(r, g, b, current);
+    }
+
+    /**
+     * Метод создания новой таблицы с другой палитрой, но с теми же настройками
+     * @param palette - новая палитра
+     * @return - метод возвращает новую таблицу
+     */
+    TableOfColor withPalette(List<ColorPoint> palette) {
+        return new TableOfColor(palette, derivedSettings().setAutoTune(autoTune), null, null, metrics);
+    }
+
+    /**
+     * Вспомогательный метод - настройки, с которыми создана эта таблица. Файл индекса в них не входит:
+     * он построен для прежней палитры, поэтому плотная таблица новой палитры строится в куче.
+     * Статистика тоже не входит - она передаётся новой таблице целиком. Подбор дерева не входит:
+     * после добавления или удаления цвета остаётся подобранное устройство, а не подбирается заново
+     */
+    private TableSettings derivedSettings() {
+        return new TableSettings().setMetric(metric).setDenseLookup(denseTable != null)
+                .setCacheCapacity(cache == null ? 0 : cache.getCapacity())
+                .setLeafCapacity(maxPointsCount).setSplitPolicy(splitPolicy)
+                .setScanKernelEnabled(scanKernelEnabled);
+    }
+
+    /**
+     * Метод получения общей таблицы встроенной палитры. Таблица каждого языка строится один раз,
+     * при первом обращении, и затем возвращается всем, кто её запросит, из любого потока.
+     * Общая таблица создаётся с настройками по умолчанию; для плотной таблицы или кэша нужен конструктор
+     * @param locale - язык таблицы
+     * @return - метод возвращает таблицу, одну и ту же для всех вызовов с этим языком
+     * @throws IllegalArgumentException - если для языка нет палитры
+     */
+    public static TableOfColor forLocale(Locale locale) {
+        return TableRegistry.get(locale);
+    }
+
+    /**
+     * Метод фонового построения общей таблицы, чтобы первый запрос не ждал чтения палитры
+     * @param locale - язык таблицы
+     * @return - метод возвращает будущую таблицу, ту же, что потом вернёт {@link #forLocale(Locale)}
+     */
+    public static CompletableFuture<TableOfColor> warmUp(Locale locale) {
+        return TableRegistry.warmUp(locale);
+    }
+
+    /**
+     * Метод фонового построения общих таблиц всех встроенных палитр, параллельно друг другу
+     * @return - метод возвращает будущее, которое завершится, когда будут готовы все таблицы
+     */
+    public static CompletableFuture<Void> preloadBundledLocales() {
+        return TableRegistry.preloadBundled();
+    }
+
+    /**
+     * Метод записи палитры таблицы в поток, например для перевода большой палитры в двоичный формат,
+     * который читается быстрее текстового. Поток не закрывается
+     * @param out - поток для записи
+     * @param format - формат палитры
+     * @throws IOException - если в поток не удалось записать
+     */
+    public void exportPalette(OutputStream out, PaletteFormat format) throws IOException {
+        PaletteLoader.write(colors, out, format);
+    }
+
+    /**
+     * Метод записи файла индекса с плотной таблицей поиска, который потом открывается через
+     * {@link TableSettings#setIndexFile(Path)}. Если у таблицы нет плотной таблицы, она строится на время записи
+     * @param indexFile - путь к файлу индекса; существующий файл атомарно заменяется
+     * @throws IOException - если файл не удалось записать
+     */
+    public void saveIndex(Path indexFile) throws IOException {
+        DenseColorTable table = denseTable != null ? denseTable : DenseColorTable.build(colors.size(), this::nearest);
+        IndexFile.write(indexFile, table, colors, metric);
+    }
+
+    /**
+     * Метод проверки режима работы таблицы
+     * @return - возвращает true, если таблица построена с плотной таблицей поиска
+     */
+    public boolean isDenseLookup() {
+        return denseTable != null;
+    }
+
+    /**
+     * Метод проверки, отображена ли плотная таблица из файла индекса
+     * @return - возвращает true, если плотная таблица читается из файла индекса, а не построена в куче
+     */
+    public boolean isIndexMapped() {
+        return denseTable != null && denseTable.isMapped();
+    }
+
+    /**
+     * Геттер статистики поиска
+     * @return - возвращает статистику или null, если таблица создана без неё ({@link TableSettings#setMetricsEnabled(boolean)})
+     */
+    public LookupMetrics getLookupMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Геттер метрики таблицы
+     * @return - возвращает метрику, по которой ищется ближайший цвет
+     */
+    public ColorMetric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Геттер размера листа kd-дерева
+     * @return - возвращает максимальное количество цветов в листе - заданное или подобранное
+     */
+    public int getLeafCapacity() {
+        return maxPointsCount;
+    }
+
+    /**
+     * Геттер способа деления вёдер
+     * @return - возвращает способ, которым построено дерево, - заданный или подобранный
+     */
+    public SplitPolicy getSplitPolicy() {
+        return splitPolicy;
+    }
+
+    /**
+     * Геттер времени построения плотной таблицы
+     * @return - возвращает время построения в миллисекундах или 0, если плотной таблицы нет
+     */
+    public long getDenseBuildTimeMillis() {
+        return denseTable == null ? 0 : denseTable.getBuildTimeNanos() / 1_000_000;
+    }
+
+    /**
+     * Метод извлечения точек из yml-файла, встроенного в библиотеку
+     * @param ymlFile - имя файла, зависящее от языка создаваемой таблицы
+     * @return - возвращает список всех точек-цветов, извлечённых из файла
+     * @throws IllegalArgumentException - если для языка нет палитры
+     * @throws PaletteFormatException - если в палитре ошибка
+     */
+    private static List<ColorPoint> extractYml(String ymlFile) {
+        return PaletteLoader.loadResource(ymlFile);
     }
 
     /**
      * Основной метод библиотеки - поиск ближайшего именованного цвета
      * @param hexCode - на вход метод принимает шестизначный шестнадцатеричный код
+     *                (регистр не важен, ведущий символ # допускается)
      * @return - метод возвращает название ближайшего именованного цвета.
      */
     public String findNamedColorFromHex(String hexCode) {
-        ColorPoint targetPoint = new ColorPoint(hexCode);
-        BucketOfColor targetBucket = findBucket(targetPoint); // даже если в ходе поиска у нас прибавится вёдер - не страшно
-        List<ColorPoint> searchArea = targetBucket.getBucketPoints();
-        // строим карту названий - расстояний
+        return nameOf(findNamedColorIndex(ColorPoint.packedFromHex(hexCode)));
+    }
+
+    /**
+     * Метод повторяет предыдущий и отличается лишь входными параметрами, являющимися RGB-кодом
+     * @param r - десятичное число от 0 до 255 характеризующее интенсивность красного цвета
+     * @param g - десятичное число от 0 до 255 характеризующее интенсивность зелёного цвета
+     * @param b - десятичное число от 0 до 255 характеризующее интенсивность голубого цвета
+     * @return - метод возвращает название ближайшего именованного цвета
+     * @throws IllegalArgumentException - если координата вне диапазона 0..255
+     */
+    public String findNamedColorFromRGB(int r, int g, int b) {
+        return nameOf(findNamedColorIndex(r, g, b));
+    }
 
-        Map.Entry<String, Double> minDistancePoint = getNearestNamedColor(searchArea, targetPoint);// и вычисляем минимальное
+    /**
+     * Метод поиска индекса ближайшего именованного цвета без выделения памяти в куче.
+     * Индекс можно превратить в название методом {@link #nameOf(int)}
+     * @param r - десятичное число от 0 до 255 характеризующее интенсивность красного цвета
+     * @param g - десятичное число от 0 до 255 характеризующее интенсивность зелёного цвета
+     * @param b - десятичное число от 0 до 255 характеризующее интенсивность голубого цвета
+     * @return - метод возвращает индекс ближайшего именованного цвета в палитре
+     * @throws IllegalArgumentException - если координата вне диапазона 0..255
+     */
+    public int findNamedColorIndex(int r, int g, int b) {
+        return findNamedColorIndex(ColorPoint.packedFromRGB(r, g, b));
+    }
 
-        double distanceToSide = getDistanceToBucketSide(targetPoint, targetBucket);  // находим расстояние до ближайшей стороны
+    /**
+     * Метод поиска индекса ближайшего именованного цвета без выделения памяти в куче.
+     * Поиск спускается по kd-дереву к ведру, содержащему цвет, и заглядывает в соседние вёдра,
+     * только если их граница ближе уже найденной точки. Небольшие палитры при доступном Vector API
+     * перебираются целиком векторными инструкциями
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @return - метод возвращает индекс ближайшего именованного цвета в палитре
+     */
+    public int findNamedColorIndex(int rgb) {
+        if (metrics != null) {
+            return findNamedColorIndexRecorded(rgb);
+        }
+        if (denseTable != null) {
+            return denseTable.indexOf(rgb);
+        }
+        if (cache == null) {
+            return nearest(rgb);
+        }
+        rgb &= 0xFFFFFF;                       // одинаковые цвета с разной альфой - один ключ
+        int index = cache.get(rgb);
+        if (index < 0) {
+            index = nearest(rgb);
+            cache.put(rgb, index);
+        }
+        return index;
+    }
 
-        if (distanceToSide > minDistancePoint.getValue()) {  // если именованная точка ближе стороны, то возвращаем её
-            return minDistancePoint.getKey();
-        } else {
-            int[] startBigBucket = new int[3];
-            int[] endBigBucket = new int[3];
-            for (int i = 0; i < 3; i++) {
-                startBigBucket[i] = targetPoint.getCoordinates()[i] - minDistancePoint.getValue().intValue();  // точность? ну уж нет
-                endBigBucket[i] = targetPoint.getCoordinates()[i] + minDistancePoint.getValue().intValue();
+    /**
+     * Метод поиска с записью статистики - тот же поиск, что и без неё, но с замером времени и счётчиками
+     */
+    private int findNamedColorIndexRecorded(int rgb) {
+        long start = System.nanoTime();
+        if (denseTable != null) {
+            int index = denseTable.indexOf(rgb);
+            metrics.recordDense(System.nanoTime() - start);
+            return index;
+        }
+        rgb &= 0xFFFFFF;
+        int index = cache == null ? -1 : cache.get(rgb);
+        if (index >= 0) {
+            metrics.recordCacheHit(System.nanoTime() - start);
+            return index;
+        }
+        SearchStats stats = new SearchStats();
+        index = search(rgb, null, stats);
+        if (cache != null) {
+            cache.put(rgb, index);
+        }
+        metrics.recordSearch(stats, System.nanoTime() - start);
+        return index;
+    }
+
+    /**
+     * Метод точного поиска ближайшего цвета по метрике таблицы, без плотной таблицы и кэша
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @return - метод возвращает индекс ближайшего именованного цвета в палитре
+     */
+    private int nearest(int rgb) {
+        return search(rgb, null, null);
+    }
+
+    /**
+     * Метод поиска по метрике таблицы: одного ближайшего цвета или, если передан накопитель, нескольких
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @param neighbors - накопитель для поиска нескольких цветов или null для поиска одного
+     * @param stats - счётчики поиска одного цвета или null, если статистика не нужна
+     * @return - метод возвращает индекс ближайшего цвета или -1 при поиске нескольких
+     */
+    private int search(int rgb, Neighbors neighbors, SearchStats stats) {
+        if (neighbors != null) {
+            if (paletteLab != null) {
+                return nearestLab(rgb, false, neighbors, null);
+            }
+            if (tree != null) {
+                tree.collect((rgb >>> 16) & 0xFF, (rgb >>> 8) & 0xFF, rgb & 0xFF, neighbors);
+                return -1;
+            }
+            for (int i = 0; i < paletteRgb.length; i++) {      // небольшая палитра без дерева - перебор
+                int dr = ((paletteRgb[i] >>> 16) & 0xFF) - ((rgb >>> 16) & 0xFF);
+                int dg = ((paletteRgb[i] >>> 8) & 0xFF) - ((rgb >>> 8) & 0xFF);
+                int db = (paletteRgb[i] & 0xFF) - (rgb & 0xFF);
+                neighbors.offer(dr * dr + dg * dg + db * db, i);
             }
-            BucketOfColor extendedBucked = new BucketOfColor(startBigBucket, endBigBucket);
-            List<ColorPoint> secondArea = colors.stream().filter(extendedBucked::isContainPoint)
-                    .filter(p -> !searchArea.contains(p)).collect(Collectors.toList());
-            if (secondArea.isEmpty()) {       // если точек в близлежащих вёдрах нет
-                return minDistancePoint.getKey();
+            return -1;
+        }
+        if (scanKernel != null) {
+            if (stats != null) {
+                stats.visit(paletteRgb.length);
             }
-            Map.Entry<String, Double> secondPoint = getNearestNamedColor(secondArea, targetPoint);
-            return (secondPoint.getValue() < minDistancePoint.getValue()) ? secondPoint.getKey() : minDistancePoint.getKey();
-            // без тернарного оператора нам не обойтись
+            return scanKernel.nearest((rgb >>> 16) & 0xFF, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+        }
+        if (paletteLab == null) {
+            return stats == null ? tree.nearest((rgb >>> 16) & 0xFF, (rgb >>> 8) & 0xFF, rgb & 0xFF)
+                    : tree.nearest((rgb >>> 16) & 0xFF, (rgb >>> 8) & 0xFF, rgb & 0xFF, stats);
         }
+        return nearestLab(rgb, false, null, stats);
     }
 
     /**
-     * Метод повторяет предыдущий и отличается лишь входными параметрами, являющимися RGB-кодом
-     * @param r - десятичное число от 0 до 256 характеризующее интенсивность красного цвета
-     * @param g - десятичное число от 0 до 256 характеризующее интенсивность зелёного цвета
-     * @param b - десятичное число от 0 до 256 характеризующее интенсивность голубого цвета
-     * @return - метод возвращает название ближайшего именованного цвета
+     * Метод поиска в CIELAB. Искомый цвет переводится в CIELAB здесь, в одном месте, и для ускоренного поиска,
+     * и для полного перебора - так оба поиска сравнивают одни и те же числа
+     * @param rgb - упакованный код цвета 0xRRGGBB
+     * @param fullScan - true для полного перебора палитры
+     * @param neighbors - накопитель для поиска нескольких цветов или null для поиска одного
+     * @param stats - счётчики поиска одного цвета или null
+     * @return - метод возвращает индекс ближайшего именованного цвета; при равных расстояниях - наименьший.
+     * При поиске нескольких цветов возвращает -1
      */
-    public String findNamedColorFromRGB(int r, int g, int b) {
-        String hexCode = ColorPoint.rgbToHex(r, g, b);
-        return findNamedColorFromHex(hexCode);
+    private int nearestLab(int rgb, boolean fullScan, Neighbors neighbors, SearchStats stats) {
+        float fy = CieLab.fy(rgb);
+        float l = CieLab.lightness(fy);
+        float a = CieLab.a(CieLab.fx(rgb), fy);
+        float b = CieLab.b(fy, CieLab.fz(rgb));
+        if (neighbors != null) {
+            if (tree != null) {
+                tree.collect(l, a, b, neighbors);
+            } else {
+                lightnessIndex.collect(l, a, b, neighbors);
+            }
+            return -1;
+        }
+        if (!fullScan) {
+            return tree != null ? tree.nearest(l, a, b, stats) : lightnessIndex.nearest(l, a, b, stats);
+        }
+        int bestIndex = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < paletteRgb.length; i++) {
+            double distance = labDistance(l, a, b, i);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestIndex = i;
+            }
+        }
+        return bestIndex;
+    }
+
+    /**
+     * Метод поиска нескольких ближайших именованных цветов, например для списка подсказок
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @param k - сколько цветов найти; если в палитре меньше цветов, то возвращаются все
+     * @return - метод возвращает k ближайших цветов по возрастанию расстояния, при равенстве - по индексу
+     */
+    public List<ColorMatch> findNearestK(int rgb, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Количество цветов должно быть положительным: " + k);
+        }
+        Neighbors neighbors = Neighbors.nearest(Math.min(k, paletteRgb.length));
+        search(rgb, neighbors, null);
+        return List.of(neighbors.toMatches(this));
+    }
+
+    /**
+     * Метод повторяет предыдущий и отличается лишь входным параметром - шестнадцатеричным кодом
+     * @param hexCode - шестизначный шестнадцатеричный код (регистр не важен, ведущий символ # допускается)
+     * @param k - сколько цветов найти
+     * @return - метод возвращает k ближайших цветов по возрастанию расстояния
+     */
+    public List<ColorMatch> findNearestK(String hexCode, int k) {
+        return findNearestK(ColorPoint.packedFromHex(hexCode), k);
+    }
+
+    /**
+     * Метод поиска всех именованных цветов не дальше заданного расстояния
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @param radius - наибольшее расстояние в единицах метрики таблицы ({@link ColorMatch#getDistance()})
+     * @return - метод возвращает найденные цвета по возрастанию расстояния, при равенстве - по индексу
+     */
+    public List<ColorMatch> findWithinRadius(int rgb, double radius) {
+        if (!(radius >= 0)) {
+            throw new IllegalArgumentException("Радиус должен быть неотрицательным: " + radius);
+        }
+        Neighbors neighbors = Neighbors.within((float) (radius * radius));
+        search(rgb, neighbors, null);
+        return List.of(neighbors.toMatches(this));
+    }
+
+    /**
+     * Метод повторяет предыдущий и отличается лишь входным параметром - шестнадцатеричным кодом
+     * @param hexCode - шестизначный шестнадцатеричный код (регистр не важен, ведущий символ # допускается)
+     * @param radius - наибольшее расстояние в единицах метрики таблицы
+     * @return - метод возвращает найденные цвета по возрастанию расстояния
+     */
+    public List<ColorMatch> findWithinRadius(String hexCode, double radius) {
+        return findWithinRadius(ColorPoint.packedFromHex(hexCode), radius);
+    }
+
+    /**
+     * Метод обратного поиска - индекса цвета по его названию. Регистр букв и пробелы по краям не важны,
+     * "ё" и "е" не различаются. Поиск идёт двоичным поиском и не выделяет память
+     * @param name - название цвета, например "Crimson" или "зелёная лужайка"
+     * @return - метод возвращает индекс цвета в палитре (при одинаковых названиях - наименьший) или -1,
+     * если такого названия нет; код цвета по индексу даёт {@link #rgbOf(int)}
+     */
+    public int findIndexByName(CharSequence name) {
+        return nameIndex.indexOfName(name);
+    }
+
+    /**
+     * Метод поиска цветов по началу названия, например для автодополнения
+     * @param prefix - начало названия; регистр не важен
+     * @param limit - наибольшее количество результатов
+     * @return - метод возвращает цвета в алфавитном порядке названий; расстояние у всех равно 0
+     */
+    public List<ColorMatch> findByNamePrefix(CharSequence prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Количество результатов должно быть неотрицательным: " + limit);
+        }
+        int[] indexes = nameIndex.indexesByPrefix(prefix, limit);
+        ColorMatch[] matches = new ColorMatch[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            matches[i] = new ColorMatch(indexes[i], nameOf(indexes[i]), rgbOf(indexes[i]), 0);
+        }
+        return List.of(matches);
+    }
+
+    /**
+     * Метод нечёткого поиска по названию - для названий с опечатками. Правка - это вставка, удаление
+     * или замена символа либо перестановка двух соседних символов. Палитра перебирается целиком
+     * @param name - название цвета, возможно с опечатками
+     * @param maxEdits - наибольшее число правок, обычно 1 или 2
+     * @return - метод возвращает найденные цвета по возрастанию числа правок, при равенстве - по алфавиту;
+     * расстояние ({@link ColorMatch#getDistance()}) равно числу правок
+     */
+    public List<ColorMatch> findByNameFuzzy(CharSequence name, int maxEdits) {
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException("Число правок должно быть неотрицательным: " + maxEdits);
+        }
+        long[] found = nameIndex.indexesByEditDistance(name, maxEdits);
+        ColorMatch[] matches = new ColorMatch[found.length];
+        for (int i = 0; i < found.length; i++) {
+            int index = (int) found[i];
+            matches[i] = new ColorMatch(index, nameOf(index), rgbOf(index), found[i] >>> 32);
+        }
+        return List.of(matches);
+    }
+
+    /**
+     * Метод поиска цвета с точно таким же кодом
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @return - метод возвращает индекс цвета в палитре (при повторах - наименьший) или -1, если такого кода нет
+     */
+    public int findIndexByRgb(int rgb) {
+        return nameIndex.indexOfRgb(rgb);
+    }
+
+    /**
+     * Метод перевода названия цвета на язык другой таблицы: находит цвет с тем же кодом в другой палитре,
+     * например "LawnGreen" из английской таблицы даёт "Зелёная лужайка" из русской
+     * @param name - название цвета в этой таблице
+     * @param target - таблица другого языка, например {@code TableOfColor.forLocale(new Locale("ru"))}
+     * @return - метод возвращает название цвета с тем же кодом в другой таблице или null,
+     * если названия нет в этой таблице или кода нет в другой
+     */
+    public String translateName(CharSequence name, TableOfColor target) {
+        int index = findIndexByName(name);
+        if (index < 0) {
+            return null;
+        }
+        int targetIndex = target.findIndexByRgb(paletteRgb[index]);
+        return targetIndex < 0 ? null : target.nameOf(targetIndex);
+    }
+
+    /**
+     * Пакетный метод поиска индексов ближайших именованных цветов для всех пикселей картинки.
+     * Подходит для массивов из BufferedImage.getRGB или DataBufferInt растра. Большие массивы
+     * обрабатываются параллельно, а серии одинаковых соседних пикселей ищутся один раз
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @param indexes - массив не короче массива пикселей, в который записываются индексы цветов палитры
+     */
+    public void findNamedColorIndexes(int[] pixels, int[] indexes) {
+        PixelBatch.findIndexes(this, pixels, indexes);
+    }
+
+    /**
+     * Пакетный метод поиска, записывающий индексы в массив short - вдвое меньше памяти на пиксель.
+     * Индексы беззнаковые (читать как {@code index & 0xFFFF}), палитра должна быть не больше 65536 цветов
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @param indexes - массив не короче массива пикселей, в который записываются индексы цветов палитры
+     */
+    public void findNamedColorIndexes(int[] pixels, short[] indexes) {
+        PixelBatch.findIndexes(this, pixels, indexes);
     }
 
     /**
-     *  Вспомогательный метод используемый для поиска ближайшего именованного цвета. Метод принимает на вход
-     * @param candidates - список цветов-точек, являющихся ближайшими к введённому цвету-точке
-     * @param targetPoint - цвет-точку, созданную на основе переданного пользователем цветового кода
-     * @return - метод возвращает пару ключ-значение с координатами и именем ближайшего цвета-точки
+     * Метод построения гистограммы именованных цветов картинки без сохранения индекса каждого пикселя
+     * @param pixels - пиксели в формате ARGB, альфа-канал игнорируется
+     * @return - метод возвращает количество пикселей для каждого индекса палитры,
+     * название цвета по индексу даёт {@link #nameOf(int)}
      */
-    private static Map.Entry<String, Double> getNearestNamedColor(List<ColorPoint> candidates, ColorPoint targetPoint) {
-        Map<String, Double> candidatesMap = candidates.stream()
-                .collect(Collectors.toMap(ColorPoint::getColorName, cp -> ColorPoint.calculateDistance(cp, targetPoint)));
-        return candidatesMap.entrySet().stream()
-                .min(Map.Entry.comparingByValue()).orElseThrow();
+    public long[] countNamedColors(int[] pixels) {
+        return PixelBatch.countColors(this, pixels);
     }
 
     /**
-     * Вспомогательный метод для поиска расстояния от цвета-точки до границы ведра
-     * @param targetPoint - цвет-точка, созданная на основе переданного пользователем цветового кода
-     * @param targetBucket - ведро, в котором находится данная точка
-     * @return - метод возвращает переменную типа double с минимальным расстоянием до границы ведра
+     * Метод поиска индекса ближайшего именованного цвета полным перебором палитры. Работает медленнее дерева,
+     * но точен по построению, поэтому служит эталоном для проверки ускоренного поиска. Расстояние
+     * считается по метрике таблицы
+     * @param rgb - упакованный код цвета 0xRRGGBB, старшие биты игнорируются
+     * @return - метод возвращает индекс ближайшего именованного цвета; при равных расстояниях - наименьший
      */
-    private static double getDistanceToBucketSide(ColorPoint targetPoint, BucketOfColor targetBucket)  // у параллелограмма 6 сторон
-    {
-        //расстояние до стороны - разность соответствующих координат
-        int[] pointCoordinates = targetPoint.getCoordinates();
-        int[] startBucketCoordinates = targetBucket.getStartCoordinates();
-        int[] endBucketCoordinates = targetBucket.getStartCoordinates();
-        int distance = 256;  // выбираем заведомо большое расстояние
-        for (int i = 0; i < pointCoordinates.length; i++) {
-            if (distance > (pointCoordinates[i] - startBucketCoordinates[i])) { // начальные стороны будут заведомо меньше координат точки
-                distance = pointCoordinates[i] - startBucketCoordinates[i];
+    public int findNamedColorIndexByFullScan(int rgb) {
+        if (paletteLab != null) {
+            return nearestLab(rgb, true, null, null);
+        }
+        int r = (rgb >>> 16) & 0xFF;
+        int g = (rgb >>> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        if (metric == ColorMetric.REDMEAN) {
+            return redmeanFullScan(r, g, b);
+        }
+        int bestIndex = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < paletteRgb.length; i++) {
+            int distance = euclideanDistance(r, g, b, i);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestIndex = i;
             }
-            if (distance > (endBucketCoordinates[i] - pointCoordinates[i])) { // конечные стороны заведомо больше
-                distance = endBucketCoordinates[i] - pointCoordinates[i];
+        }
+        return bestIndex;
+    }
+
+    /**
+     * Полный перебор по расстоянию "redmean" - с теми же float, что и в листьях дерева
+     */
+    private int redmeanFullScan(int r, int g, int b) {
+        int bestIndex = -1;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < paletteRgb.length; i++) {
+            float distance = redmeanDistance(r, g, b, i);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestIndex = i;
             }
         }
-        return distance;
+        return bestIndex;
+    }
+
+    /**
+     * Квадрат евклидова расстояния в RGB; упорядочивает точки так же, как и ColorPoint.calculateDistance
+     */
+    private int euclideanDistance(int r, int g, int b, int index) {
+        int dr = ((paletteRgb[index] >>> 16) & 0xFF) - r;
+        int dg = ((paletteRgb[index] >>> 8) & 0xFF) - g;
+        int db = (paletteRgb[index] & 0xFF) - b;
+        return dr * dr + dg * dg + db * db;
+    }
+
+    /**
+     * Квадрат расстояния "redmean" - с теми же float, что и в листьях дерева
+     */
+    private float redmeanDistance(int r, int g, int b, int index) {
+        float pr = (paletteRgb[index] >>> 16) & 0xFF;
+        return ColorMetric.redmeanDistance(pr - r, ((paletteRgb[index] >>> 8) & 0xFF) - (float) g,
+                (paletteRgb[index] & 0xFF) - (float) b, (pr + r) * 0.5f);
+    }
+
+    /**
+     * Квадрат расстояния в CIELAB по метрике таблицы: ΔE 1976 в том же порядке и в тех же float, что и в дереве,
+     * или ΔE 2000
+     */
+    private double labDistance(float l, float a, float b, int index) {
+        if (metric == ColorMetric.CIE76) {
+            float dl = paletteLab[0][index] - l;
+            float da = paletteLab[1][index] - a;
+            float db = paletteLab[2][index] - b;
+            return dl * dl + da * da + db * db;
+        }
+        return CieLab.deltaE2000Squared(l, a, b, paletteLab[0][index], paletteLab[1][index], paletteLab[2][index]);
+    }
+
+    /**
+     * Геттер названия цвета по его индексу в палитре
+     * @param index - индекс цвета, полученный методом {@link #findNamedColorIndex(int)}
+     * @return - возвращает название именованного цвета
+     */
+    public String nameOf(int index) {
+        return colors.nameOf(index);
+    }
+
+    /**
+     * Геттер кода цвета по его индексу в палитре
+     * @param index - индекс цвета, полученный методом {@link #findNamedColorIndex(int)}
+     * @return - возвращает упакованный код цвета 0xRRGGBB
+     */
+    public int rgbOf(int index) {
+        return paletteRgb[index];
+    }
+
+    /**
+     * Геттер количества попаданий в кэш результатов поиска
+     * @return - возвращает количество попаданий с момента создания таблицы или 0, если кэша нет
+     */
+    public long getCacheHits() {
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    /**
+     * Геттер количества промахов кэша результатов поиска
+     * @return - возвращает количество промахов с момента создания таблицы или 0, если кэша нет
+     */
+    public long getCacheMisses() {
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    /**
+     * Геттер количества вытеснений из кэша результатов поиска
+     * @return - возвращает количество результатов, вытесненных новыми, или 0, если кэша нет
+     */
+    public long getCacheEvictions() {
+        return cache == null ? 0 : cache.getEvictions();
+    }
+
+    /**
+     * Геттер размера палитры
+     * @return - возвращает количество именованных цветов в таблице
+     */
+    public int getPaletteSize() {
+        return paletteRgb.length;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package ru.folko85.tableofcolor;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Вспомогательный класс библиотеки - общий реестр таблиц встроенных палитр.
+ * Таблица каждого языка строится не более одного раза, при первом обращении, и дальше разделяется
+ * всеми, кто её запросил. Пока один поток строит таблицу, остальные ждут его результата, а не строят свою
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class TableRegistry {
+    /** Языки палитр, встроенных в библиотеку */
+    static final List<String> BUNDLED_LANGUAGES = List.of("en", "ru");
+    /** Поле - таблицы по языкам; незавершённое значение означает, что таблица ещё строится */
+    private static final ConcurrentMap<String, CompletableFuture<TableOfColor>> tables = new ConcurrentHashMap<>();
+
+    private TableRegistry() {
+    }
+
+    /**
+     * Метод получения общей таблицы. Если таблицы ещё нет, она строится в вызывающем потоке
+     * @param locale - язык таблицы
+     * @return - метод возвращает таблицу, одну и ту же для всех вызовов с этим языком
+     */
+    static TableOfColor get(Locale locale) {
+        String language = locale.getLanguage();
+        CompletableFuture<TableOfColor> future = tables.get(language);     // обычный случай - таблица уже есть
+        if (future == null) {
+            CompletableFuture<TableOfColor> created = new CompletableFuture<>();
+            future = tables.putIfAbsent(language, created);
+            if (future == null) {
+                build(language, created);
+                future = created;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();      // отдаём ту же ошибку, что и конструктор таблицы
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Метод фонового построения общей таблицы в общем пуле fork-join
+     * @param locale - язык таблицы
+     * @return - метод возвращает будущую таблицу; если таблица уже построена или строится, то её же
+     */
+    static CompletableFuture<TableOfColor> warmUp(Locale locale) {
+        String language = locale.getLanguage();
+        CompletableFuture<TableOfColor> future = tables.get(language);
+        if (future != null) {
+            return future;
+        }
+        CompletableFuture<TableOfColor> created = new CompletableFuture<>();
+        future = tables.putIfAbsent(language, created);
+        if (future != null) {
+            return future;
+        }
+        ForkJoinPool.commonPool().execute(() -> build(language, created));
+        return created;
+    }
+
+    /**
+     * Метод фонового построения таблиц всех встроенных палитр, параллельно друг другу
+     * @return - метод возвращает будущее, которое завершится, когда будут готовы все таблицы
+     */
+    static CompletableFuture<Void> preloadBundled() {
+        return CompletableFuture.allOf(BUNDLED_LANGUAGES.stream()
+                .map(language -> warmUp(new Locale(language)))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Метод построения таблицы. Если построить не удалось, язык убирается из реестра,
+     * чтобы следующий запрос попробовал снова, а ожидающие сейчас получили ту же ошибку
+     */
+    private static void build(String language, CompletableFuture<TableOfColor> future) {
+        try {
+            future.complete(new TableOfColor(new Locale(language)));
+        } catch (RuntimeException | Error ex) {
+            tables.remove(language, future);
+            future.completeExceptionally(ex);
+        }
+    }
+}
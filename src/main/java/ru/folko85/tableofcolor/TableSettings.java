@@ -0,0 +1,224 @@
+package ru.folko85.tableofcolor;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Класс настроек таблицы именованных цветов.
+ * Все настройки необязательны: таблица, созданная с настройками по умолчанию, ведёт себя
+ * так же, как таблица, созданная конструктором без настроек
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+public class TableSettings {
+    /** Размер листа kd-дерева по умолчанию */
+    public static final int DEFAULT_LEAF_CAPACITY = 16;
+    /** Наибольший допустимый размер листа */
+    public static final int MAX_LEAF_CAPACITY = 1024;
+    /** Поле - нужно ли строить плотную таблицу поиска */
+    private boolean denseLookup;
+    /** Поле - количество запоминаемых результатов поиска, 0 - без кэша */
+    private int cacheCapacity;
+    /** Поле - метрика, по которой ищется ближайший цвет */
+    private ColorMetric metric = ColorMetric.EUCLIDEAN_RGB;
+    /** Поле - файл индекса с готовой плотной таблицей, null - без файла */
+    private Path indexFile;
+    /** Поле - нужно ли собирать статистику поиска */
+    private boolean metricsEnabled;
+    /** Поле - максимальное количество цветов в листе kd-дерева */
+    private int leafCapacity = DEFAULT_LEAF_CAPACITY;
+    /** Поле - способ деления вёдер при построении дерева */
+    private SplitPolicy splitPolicy = SplitPolicy.MIDPOINT;
+    /** Поле - подбирать ли размер листа и способ деления при построении */
+    private boolean autoTune;
+    /** Поле - можно ли искать в маленьких палитрах векторным перебором вместо дерева */
+    private boolean scanKernelEnabled = true;
+
+    /**
+     * Геттер режима плотной таблицы поиска
+     * @return - возвращает true, если нужно строить плотную таблицу
+     */
+    public boolean isDenseLookup() {
+        return denseLookup;
+    }
+
+    /**
+     * Сеттер режима плотной таблицы поиска: 32 Мб памяти и несколько секунд на построение
+     * в обмен на поиск одним чтением из массива
+     * @param denseLookup - true, если нужно строить плотную таблицу
+     * @return - возвращает эти же настройки, чтобы вызовы можно было объединять в цепочку
+     */
+    public TableSettings setDenseLookup(boolean denseLookup) {
+        this.denseLookup = denseLookup;
+        return this;
+    }
+
+    /**
+     * Геттер размера кэша результатов поиска
+     * @return - возвращает количество запоминаемых результатов, 0 - кэш выключен
+     */
+    public int getCacheCapacity() {
+        return cacheCapacity;
+    }
+
+    /**
+     * Сеттер размера кэша результатов поиска. Кэш полезен, когда одни и те же цвета ищутся много раз,
+     * и не нужен при плотной таблице поиска, которая и так быстрее. Размер округляется вверх до степени двойки
+     * @param cacheCapacity - количество запоминаемых результатов, 0 - без кэша
+     * @return - возвращает эти же настройки, чтобы вызовы можно было объединять в цепочку
+     */
+    public TableSettings setCacheCapacity(int cacheCapacity) {
+        if (cacheCapacity < 0 || cacheCapacity > ColorCache.MAX_CAPACITY) {
+            throw new IllegalArgumentException("Размер кэша должен быть от 0 до " + ColorCache.MAX_CAPACITY + ": " + cacheCapacity);
+        }
+        this.cacheCapacity = cacheCapacity;
+        return this;
+    }
+
+    /**
+     * Геттер метрики
+     * @return - возвращает метрику, по которой ищется ближайший цвет
+     */
+    public ColorMetric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Сеттер метрики. Перцептивные метрики находят цвет, который глазу кажется ближайшим;
+     * плотная таблица и кэш работают с любой метрикой
+     * @param metric - метрика, по которой ищется ближайший цвет
+     * @return - возвращает эти же настройки, чтобы вызовы можно было объединять в цепочку
+     */
+    public TableSettings setMetric(ColorMetric metric) {
+        this.metric = Objects.requireNonNull(metric, "metric");
+        return this;
+    }
+
+    /**
+     * Геттер файла индекса
+     * @return - возвращает путь к файлу индекса или null, если он не задан
+     */
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Сеттер файла индекса. Таблица с файлом индекса всегда плотная, но не строит плотную таблицу в куче,
+     * а отображает её из файла в память: создание таблицы почти мгновенно, куча почти не расходуется,
+     * а страницы файла делятся между всеми процессами. Если файла нет или он построен для другой палитры,
+     * метрики или версии библиотеки, таблица строится заново и записывается в этот файл; если записать его
+     * нельзя, таблица остаётся в куче, а в журнал System.Logger пишется предупреждение
+     * @param indexFile - путь к файлу индекса или null, чтобы работать без него
+     * @return - возвращает эти же настройки, чтобы вызовы можно было объединять в цепочку
+     */
+    public TableSettings setIndexFile(Path indexFile) {
+        this.indexFile = indexFile;
+        return this;
+    }
+
+    /**
+     * Геттер режима сбора статистики
+     * @return - возвращает true, если таблица собирает статистику поиска
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Сеттер режима сбора статистики поиска ({@link LookupMetrics}): количество поисков по путям,
+     * гистограмма времени, просмотренные цвета, устройство дерева. Каждый поиск со статистикой дважды
+     * читает часы, поэтому включать её стоит, когда нужно разобраться, а не всегда
+     * @param metricsEnabled - true, если нужно собирать статистику
+     * @return - возвращает эти же настройки, чтобы вызовы можно было объединять в цепочку
+     */
+    public TableSettings setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+        return this;
+    }
+
+    /**
+     * Геттер размера листа kd-дерева
+     * @return - возвращает максимальное количество цветов в листе
+     */
+    public int getLeafCapacity() {
+        return leafCapacity;
+    }
+
+    /**
+     * Сеттер размера листа kd-дерева. Маленькие листья - меньше сравнений цветов, но глубже дерево;
+     * большие - наоборот. Для ΔE 2000 размер листа относится к дереву, которое ищет первого кандидата
+     * @param leafCapacity - максимальное количество цветов в листе, от 1 до {@link #MAX_LEAF_CAPACITY}
+     * @return - возвращает эти же настройки, чтобы вызовы можно было объединять в цепочку
+     */
+    public TableSettings setLeafCapacity(int leafCapacity) {
+        if (leafCapacity < 1 || leafCapacity > MAX_LEAF_CAPACITY) {
+            throw new IllegalArgumentException("Размер листа должен быть от 1 до " + MAX_LEAF_CAPACITY + ": " + leafCapacity);
+        }
+        this.leafCapacity = leafCapacity;
+        return this;
+    }
+
+    /**
+     * Геттер способа деления вёдер
+     * @return - возвращает способ, которым делятся вёдра при построении дерева
+     */
+    public SplitPolicy getSplitPolicy() {
+        return splitPolicy;
+    }
+
+    /**
+     * Сеттер способа деления вёдер при построении kd-дерева
+     * @param splitPolicy - способ деления
+     * @return - возвращает эти же настройки, чтобы вызовы можно было объединять в цепочку
+     */
+    public TableSettings setSplitPolicy(SplitPolicy splitPolicy) {
+        this.splitPolicy = Objects.requireNonNull(splitPolicy, "splitPolicy");
+        return this;
+    }
+
+    /**
+     * Геттер режима подбора дерева
+     * @return - возвращает true, если размер листа и способ деления подбираются при построении
+     */
+    public boolean isAutoTune() {
+        return autoTune;
+    }
+
+    /**
+     * Сеттер режима подбора дерева. При построении таблицы дерево строится со всеми размерами листа
+     * из нескольких вариантов и всеми способами деления, на каждом замеряется одна и та же выборка
+     * запросов, и устройство по умолчанию заменяется, только если другое заметно быстрее; заданные размер
+     * листа и способ деления тогда не используются.
+     * Построение таблицы становится в несколько десятков раз дольше. Выбранное устройство показывают
+     * {@link TableOfColor#getLeafCapacity()} и {@link TableOfColor#getSplitPolicy()}.
+     * Маленькие палитры с евклидовой метрикой перебираются без дерева, и подбирать им нечего
+     * @param autoTune - true, если дерево нужно подбирать
+     * @return - возвращает эти же настройки, чтобы вызовы можно было объединять в цепочку
+     */
+    public TableSettings setAutoTune(boolean autoTune) {
+        this.autoTune = autoTune;
+        return this;
+    }
+
+    /**
+     * Геттер разрешения векторного перебора
+     * @return - возвращает true, если маленькие палитры можно перебирать без дерева
+     */
+    boolean isScanKernelEnabled() {
+        return scanKernelEnabled;
+    }
+
+    /**
+     * Сеттер разрешения векторного перебора. Выключается в тестах, которые проверяют само дерево:
+     * при подключённом модуле jdk.incubator.vector палитры до {@link ScanKernel#MAX_PALETTE_SIZE} цветов
+     * иначе ищутся перебором, и дерево, по которому ищут на Java 11, осталось бы непроверенным
+     * @param scanKernelEnabled - false, чтобы всегда искать по дереву
+     * @return - возвращает эти же настройки, чтобы вызовы можно было объединять в цепочку
+     */
+    TableSettings setScanKernelEnabled(boolean scanKernelEnabled) {
+        this.scanKernelEnabled = scanKernelEnabled;
+        return this;
+    }
+}
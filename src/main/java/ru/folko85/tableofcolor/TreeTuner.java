@@ -0,0 +1,171 @@
+package ru.folko85.tableofcolor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Вспомогательный класс библиотеки - подбор устройства kd-дерева под палитру.
+ * Лучший размер листа и способ деления зависят от размера палитры и от того, как в ней лежат цвета:
+ * маленькие листья экономят сравнения точек, большие - переходы по узлам. Поэтому дерево строится
+ * во всех вариантах, и на каждом выполняется одна и та же выборка случайных запросов.
+ * Все варианты ищут одним и тем же кодом, поэтому сначала каждый прогоняется по выборке для прогрева JIT,
+ * и только потом замеряются круги, в каждом из которых варианты идут по очереди со сдвигом - так
+ * сборка мусора и перекомпиляция не достаются одному варианту. Вариант оценивается медианой кругов, а не
+ * лучшим кругом, чтобы один удачный замер из полутора десятков вариантов не решал дело. Устройство
+ * по умолчанию заменяется, только если другое быстрее заметно, на {@link #MARGIN}, а не на величину шума
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class TreeTuner {
+    /** Размеры листа, из которых выбирается лучший; размер по умолчанию первым */
+    static final List<Integer> LEAF_CAPACITIES = List.of(TableSettings.DEFAULT_LEAF_CAPACITY, 4, 8, 32, 64);
+    /** Доля, на которую вариант должен обогнать устройство по умолчанию, чтобы его заменить */
+    static final double MARGIN = 0.2;
+    /** Количество запросов в выборке для поиска по дереву - несколько миллисекунд на круг */
+    static final int SAMPLE_SIZE = 16384;
+    /** Количество запросов в выборке для ΔE 2000, где каждый запрос в десятки раз дороже */
+    static final int SMALL_SAMPLE_SIZE = 1024;
+    /** Количество прогревочных проходов выборки по всем вариантам */
+    private static final int WARMUP_ROUNDS = 2;
+    /** Количество замеряемых кругов; нечётное, чтобы медиана была одним из замеров */
+    private static final int ROUNDS = 7;
+    /** Поле для результатов запросов, чтобы JIT не выбросил замеряемый цикл */
+    private static volatile int sink;
+
+    /**
+     * Поиск, скорость которого замеряется: по самому дереву или по индексу, которому дерево ищет первого кандидата
+     */
+    interface Search {
+        /**
+         * Метод поиска ближайшего цвета для точки в пространстве дерева
+         * @return - метод возвращает индекс цвета в палитре
+         */
+        int nearest(float x, float y, float z);
+    }
+
+    /**
+     * Замер одного прохода выборки; в тестах заменяется заранее известными временами
+     */
+    interface Timing {
+        /**
+         * Метод замера
+         * @param search - поиск, который замеряется
+         * @param queries - выборка запросов по осям
+         * @return - метод возвращает время прохода выборки в наносекундах
+         */
+        long nanos(Search search, float[][] queries);
+    }
+
+    private TreeTuner() {
+    }
+
+    /**
+     * Метод подбора дерева, которое само ищет ближайший цвет
+     * @param build - построение дерева с заданным размером листа и способом деления
+     * @param lab - true для дерева в CIELAB; запросы тогда тоже переводятся в CIELAB
+     * @return - метод возвращает дерево по умолчанию или то, с которым поиск заметно быстрее
+     */
+    static BucketTree tune(BiFunction<Integer, SplitPolicy, BucketTree> build, boolean lab) {
+        return tune(build, tree -> tree::nearest, lab, SAMPLE_SIZE);
+    }
+
+    /**
+     * Метод подбора дерева по скорости того поиска, в котором оно работает
+     * @param build - построение дерева с заданным размером листа и способом деления
+     * @param search - поиск, использующий дерево; для ΔE 2000 это {@link LightnessIndex}
+     * @param lab - true для дерева в CIELAB; запросы тогда тоже переводятся в CIELAB
+     * @param sampleSize - количество запросов в выборке
+     * @return - метод возвращает дерево по умолчанию или то, с которым поиск заметно быстрее
+     */
+    static BucketTree tune(BiFunction<Integer, SplitPolicy, BucketTree> build, Function<BucketTree, Search> search,
+                           boolean lab, int sampleSize) {
+        return tune(build, search, lab, sampleSize, TreeTuner::run);
+    }
+
+    /**
+     * Метод подбора дерева с заданным замером: прогрев, круги по очереди со сдвигом, медиана и порог {@link #MARGIN}
+     * @param build - построение дерева с заданным размером листа и способом деления
+     * @param search - поиск, использующий дерево
+     * @param lab - true для дерева в CIELAB; запросы тогда тоже переводятся в CIELAB
+     * @param sampleSize - количество запросов в выборке
+     * @param timing - замер прохода выборки
+     * @return - метод возвращает дерево по умолчанию или то, с которым поиск заметно быстрее
+     */
+    static BucketTree tune(BiFunction<Integer, SplitPolicy, BucketTree> build, Function<BucketTree, Search> search,
+                           boolean lab, int sampleSize, Timing timing) {
+        float[][] queries = sample(lab, sampleSize);
+        List<BucketTree> trees = new ArrayList<>();
+        List<Search> searches = new ArrayList<>();
+        for (int leafCapacity : LEAF_CAPACITIES) {
+            for (SplitPolicy policy : SplitPolicy.values()) {
+                BucketTree tree = build.apply(leafCapacity, policy);
+                trees.add(tree);
+                searches.add(search.apply(tree));
+            }
+        }
+        int count = trees.size();
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (Search candidate : searches) {
+                timing.nanos(candidate, queries);
+            }
+        }
+        long[][] rounds = new long[count][ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int shift = 0; shift < count; shift++) {
+                int candidate = (round * 3 + shift) % count;      // каждый круг начинается с другого варианта
+                rounds[candidate][round] = timing.nanos(searches.get(candidate), queries);
+            }
+        }
+        long[] nanos = new long[count];
+        for (int candidate = 0; candidate < count; candidate++) {
+            Arrays.sort(rounds[candidate]);
+            nanos[candidate] = rounds[candidate][ROUNDS / 2];
+        }
+        int fastest = 0;                                           // нулевой вариант - устройство по умолчанию
+        for (int candidate = 1; candidate < count; candidate++) {
+            if (nanos[candidate] < nanos[fastest]) {
+                fastest = candidate;
+            }
+        }
+        return nanos[fastest] < nanos[0] * (1 - MARGIN) ? trees.get(fastest) : trees.get(0);
+    }
+
+    private static long run(Search search, float[][] queries) {
+        int checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries[0].length; i++) {
+            checksum += search.nearest(queries[0][i], queries[1][i], queries[2][i]);
+        }
+        long nanos = System.nanoTime() - start;
+        sink += checksum;
+        return nanos;
+    }
+
+    /**
+     * Выборка случайных цветов во всём кубе RGB - так ищут цвета фотографии или случайные коды
+     * @return - метод возвращает координаты запросов в пространстве дерева, по осям
+     */
+    private static float[][] sample(boolean lab, int sampleSize) {
+        Random random = new Random(SAMPLE_SIZE);
+        int[] rgb = new int[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            rgb[i] = random.nextInt(1 << 24);
+        }
+        if (lab) {
+            return CieLab.toLab(rgb);
+        }
+        float[][] queries = new float[3][sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            queries[0][i] = rgb[i] >>> 16;
+            queries[1][i] = (rgb[i] >>> 8) & 0xFF;
+            queries[2][i] = rgb[i] & 0xFF;
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,194 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+import static org.junit.Assert.assertArrayEquals;
+
+public class AsyncTableOfColorTest {
+    /** Исполнитель, который копит задачи, пока тест не выполнит их сам */
+    private static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = poll()) != null) {
+                task.run();
+            }
+        }
+
+        private synchronized Runnable poll() {
+            return tasks.poll();
+        }
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException ex) {
+            return ex.getCause();
+        } catch (TimeoutException ex) {
+            fail("будущее не завершилось");
+        }
+        fail("ожидалась ошибка");
+        return null;
+    }
+
+    @Test
+    public void testLookupsMatchTable() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncTableOfColor async = new AsyncTableOfColor(new Locale("en"), new TableSettings(), executor, 1000);
+            CompletableFuture<String> early = async.findNamedColorFromHex("#AB67FA");  // до готовности таблицы
+            TableOfColor table = async.getTable().get(30, TimeUnit.SECONDS);
+            assertTrue(async.isReady());
+            assertEquals("MediumPurple", early.get(30, TimeUnit.SECONDS));
+            assertEquals(table.findNamedColorFromRGB(10, 200, 30), async.findNamedColorFromRGB(10, 200, 30).join());
+            Random random = new Random(22);
+            for (int i = 0; i < 1000; i++) {
+                int rgb = random.nextInt(1 << 24);
+                assertEquals(table.findNamedColorIndex(rgb), (int) async.findNamedColorIndex(rgb).get(30, TimeUnit.SECONDS));
+            }
+            assertTrue(failure(async.findNamedColorFromHex("zz")) instanceof NumberFormatException);
+            assertTrue(failure(async.findNamedColorFromRGB(0, 300, 0)) instanceof IllegalArgumentException);
+
+            int[] pixels = random.ints(3 * AsyncTableOfColor.BATCH_CHUNK_SIZE + 123, 0, 1 << 24).toArray();
+            int[] expected = new int[pixels.length];
+            table.findNamedColorIndexes(pixels, expected);
+            assertArrayEquals(expected, async.findNamedColorIndexes(pixels).get(30, TimeUnit.SECONDS));
+            assertEquals(0, async.findNamedColorIndexes(new int[0]).get(30, TimeUnit.SECONDS).length);
+            assertEquals(0, async.getPendingRequests());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCoalescingAndBackpressure() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncTableOfColor async = new AsyncTableOfColor(new TableOfColor(new Locale("en")), executor, 2);
+        List<CompletableFuture<Integer>> same = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            same.add(async.findNamedColorIndex(0xFF000000 | 0xAB67FA));   // альфа-канал не делает код другим
+        }
+        assertEquals(4, async.getCoalescedRequests());
+        assertEquals(1, async.getPendingRequests());
+        CompletableFuture<String> other = async.findNamedColorFromHex("000001");
+        assertEquals(2, async.getPendingRequests());
+        assertTrue(failure(async.findNamedColorFromHex("ffffff")) instanceof RejectedExecutionException);
+        assertTrue(failure(async.findNamedColorIndexes(new int[10])) instanceof RejectedExecutionException);
+        assertEquals(2, async.getRejectedRequests());
+
+        same.get(0).cancel(false);                             // отмена одной копии не трогает остальные
+        executor.runAll();
+        for (int i = 1; i < same.size(); i++) {
+            assertEquals(async.getTable().join().findNamedColorIndex(0xAB67FA), (int) same.get(i).join());
+        }
+        assertEquals(async.getTable().join().findNamedColorFromHex("000001"), other.join());
+        assertEquals(0, async.getPendingRequests());
+
+        CompletableFuture<Integer> again = async.findNamedColorIndex(0xAB67FA);   // поиск завершён - ищем заново
+        assertEquals(1, async.getPendingRequests());
+        executor.runAll();
+        assertFalse(again.isCompletedExceptionally());
+        assertEquals(4, async.getCoalescedRequests());
+    }
+
+    @Test
+    public void testFailedConstruction() throws Exception {
+        AsyncTableOfColor async = new AsyncTableOfColor(Path.of("no-such-palette.csv"), new TableSettings(), null, 10);
+        assertTrue(failure(async.getTable()) instanceof IOException);
+        assertTrue(failure(async.findNamedColorIndex(0x123456)) instanceof IOException);
+        assertFalse(async.isReady());
+        assertEquals(0, async.getPendingRequests());
+        try {
+            new AsyncTableOfColor(new TableOfColor(new Locale("en")), null, 0);
+            fail("лимит должен быть положительным");
+        } catch (IllegalArgumentException ex) {
+            // ожидаемо
+        }
+    }
+
+    @Test
+    public void testManyConcurrentCallers() throws Exception {
+        int callers = 16;
+        int requestsPerCaller = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService clients = Executors.newFixedThreadPool(callers);
+        try {
+            Random paletteRandom = new Random(85);
+            List<ColorPoint> palette = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                palette.add(new ColorPoint("color" + i, paletteRandom.nextInt(1 << 24)));
+            }
+            TableOfColor table = new TableOfColor(palette, new TableSettings());
+            AsyncTableOfColor async = new AsyncTableOfColor(table, executor, callers);   // у каждого один запрос в полёте
+            AtomicInteger wrong = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> all = new ArrayList<>();
+            for (int caller = 0; caller < callers; caller++) {
+                Random random = new Random(caller);
+                all.add(clients.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < requestsPerCaller; i++) {
+                        int rgb = random.nextInt(8) == 0 ? 0x336699 : random.nextInt(1 << 24);  // есть повторы
+                        if (async.findNamedColorIndex(rgb).join() != table.findNamedColorIndex(rgb)) {
+                            wrong.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> caller : all) {
+                caller.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(0, wrong.get());
+            assertEquals(0, async.getRejectedRequests());
+            assertEquals(0, async.getPendingRequests());
+        } finally {
+            clients.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectedConstruction() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();                                   // исполнитель больше ничего не принимает
+        AsyncTableOfColor async = new AsyncTableOfColor(Path.of("palette.csv"), new TableSettings(), executor, 10);
+        assertTrue(failure(async.getTable()) instanceof RejectedExecutionException);
+        assertTrue(failure(async.findNamedColorIndex(0x123456)) instanceof RejectedExecutionException);
+        AsyncTableOfColor builtIn = new AsyncTableOfColor(new Locale("en"), new TableSettings(), executor, 10);
+        assertTrue(failure(builtIn.getTable()) instanceof RejectedExecutionException);
+        assertFalse(builtIn.isReady());
+    }
+}
@@ -0,0 +1,144 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class BucketTreeTest {
+    private static final int[] START = new int[]{0, 0, 0};
+    private static final int[] END = new int[]{256, 256, 256};
+
+    private static List<ColorPoint> randomPalette(int size, Random random) {
+        List<ColorPoint> palette = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            palette.add(new ColorPoint("color" + i, String.format("%06X", random.nextInt(1 << 24))));
+        }
+        return palette;
+    }
+
+    private static int bruteForce(List<ColorPoint> palette, ColorPoint target) {
+        int best = 0;
+        for (int i = 1; i < palette.size(); i++) {
+            if (ColorPoint.calculateDistance(palette.get(i), target) < ColorPoint.calculateDistance(palette.get(best), target)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static void assertSameAsBruteForce(List<ColorPoint> palette, int maxPointsCount, Random random) {
+        assertSameAsBruteForce(palette, maxPointsCount, SplitPolicy.MIDPOINT, random);
+    }
+
+    private static void assertSameAsBruteForce(List<ColorPoint> palette, int maxPointsCount, SplitPolicy policy, Random random) {
+        BucketTree tree = BucketTree.build(palette, ColorMetric.EUCLIDEAN_RGB, START, END, maxPointsCount, policy);
+        for (int i = 0; i < 2_000; i++) {
+            ColorPoint target = new ColorPoint(String.format("%06X", random.nextInt(1 << 24)));
+            assertEquals(bruteForce(palette, target), tree.nearest(target.getRValue(), target.getGValue(), target.getBValue()));
+        }
+    }
+
+    @Test
+    public void testNearestMatchesBruteForce() {
+        Random random = new Random(11);
+        for (int size : new int[]{1, 2, 17, 140, 5_000}) {
+            assertSameAsBruteForce(randomPalette(size, random), 16, random);
+        }
+    }
+
+    @Test
+    public void testDuplicatesAndTiesPreferFirstColor() {
+        Random random = new Random(12);
+        List<ColorPoint> palette = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {       // много совпадающих и равноудалённых точек
+            palette.add(new ColorPoint("color" + i, String.format("%02X%02X%02X", 64 * random.nextInt(5) % 256,
+                    64 * random.nextInt(5) % 256, 64 * random.nextInt(5) % 256)));
+        }
+        assertSameAsBruteForce(palette, 4, random);
+        BucketTree tree = BucketTree.build(palette, START, END, 4);
+        assertEquals(bruteForce(palette, new ColorPoint("202020")), tree.nearest(32, 32, 32));
+    }
+
+    @Test
+    public void testSplitPoliciesMatchBruteForce() {
+        Random random = new Random(13);
+        List<ColorPoint> clustered = new ArrayList<>();
+        for (int i = 0; i < 1_500; i++) {      // облака оттенков серого и красного - середина разброса делит их плохо
+            int gray = random.nextInt(40);
+            clustered.add(new ColorPoint("color" + i, i % 3 == 0 ? String.format("%02X0000", 200 + random.nextInt(56))
+                    : String.format("%02X%02X%02X", 100 + gray, 100 + gray, 100 + gray + random.nextInt(3))));
+        }
+        for (SplitPolicy policy : SplitPolicy.values()) {
+            for (int leafCapacity : new int[]{1, 5, 64}) {
+                assertSameAsBruteForce(randomPalette(900, random), leafCapacity, policy, random);
+                assertSameAsBruteForce(clustered, leafCapacity, policy, random);
+            }
+        }
+    }
+
+    @Test
+    public void testMedianSplitIsBalanced() {
+        Random random = new Random(14);
+        List<ColorPoint> palette = randomPalette(4_096, random);
+        BucketTree median = BucketTree.build(palette, ColorMetric.EUCLIDEAN_RGB, START, END, 16, SplitPolicy.MEDIAN);
+        assertTrue(median.getDepth() <= 11);               // 4096 / 2^8 = 16: восемь делений и немного на совпадающие координаты
+        assertEquals(SplitPolicy.MEDIAN, median.getSplitPolicy());
+        assertEquals(16, median.withPoint(1, 2, 3, palette.size()).getLeafCapacity());
+    }
+
+    /** Поиск с одинаковой для всех деревьев работой; дерево по умолчанию можно сделать медленнее */
+    /** Поиск-заглушка, по которому замер узнаёт дерево */
+    private static final class TreeSearch implements TreeTuner.Search {
+        private final BucketTree tree;
+
+        private TreeSearch(BucketTree tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public int nearest(float x, float y, float z) {
+            return tree.nearest(x, y, z);
+        }
+    }
+
+    /**
+     * Замер-заглушка без часов: у дерева по умолчанию каждый круг длится defaultNanos, у дерева 4/MEDIAN -
+     * fasterNanos, у остальных - 1000 нс; пятый замер каждого дерева случайно очень быстрый
+     */
+    private static TreeTuner.Timing fakeTiming(long defaultNanos, long fasterNanos) {
+        Map<BucketTree, Integer> calls = new HashMap<>();
+        return (search, queries) -> {
+            BucketTree tree = ((TreeSearch) search).tree;
+            int call = calls.merge(tree, 1, Integer::sum);
+            if (call == 5) {
+                return 1;                                    // один удачный круг не должен решать дело
+            }
+            if (tree.getLeafCapacity() == TableSettings.DEFAULT_LEAF_CAPACITY && tree.getSplitPolicy() == SplitPolicy.MIDPOINT) {
+                return defaultNanos;
+            }
+            return tree.getLeafCapacity() == 4 && tree.getSplitPolicy() == SplitPolicy.MEDIAN ? fasterNanos : 1000;
+        };
+    }
+
+    @Test
+    public void testTunerKeepsDefaultUnlessClearlyFaster() {
+        List<ColorPoint> palette = randomPalette(300, new Random(15));
+        BiFunction<Integer, SplitPolicy, BucketTree> build = (leafCapacity, policy) ->
+                BucketTree.build(palette, ColorMetric.EUCLIDEAN_RGB, START, END, leafCapacity, policy);
+        long[][] cases = {{1000, 1000}, {1000, 850}, {1000, 700}};   // время по умолчанию, время 4/MEDIAN
+        for (long[] nanos : cases) {
+            BucketTree chosen = TreeTuner.tune(build, TreeSearch::new, false, 64, fakeTiming(nanos[0], nanos[1]));
+            boolean clearlyFaster = nanos[1] < nanos[0] * (1 - TreeTuner.MARGIN);
+            assertEquals(clearlyFaster ? 4 : TableSettings.DEFAULT_LEAF_CAPACITY, chosen.getLeafCapacity());
+            assertEquals(clearlyFaster ? SplitPolicy.MEDIAN : SplitPolicy.MIDPOINT, chosen.getSplitPolicy());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+
+public class ColorMetricTest {
+
+    private static void assertDeltaE2000(double mustBe, double l1, double a1, double b1, double l2, double a2, double b2) {
+        assertEquals(mustBe, Math.sqrt(CieLab.deltaE2000Squared(l1, a1, b1, l2, a2, b2)), 1e-4);
+        assertEquals(mustBe, Math.sqrt(CieLab.deltaE2000Squared(l2, a2, b2, l1, a1, b1)), 1e-4);
+    }
+
+    @Test
+    public void testDeltaE2000ReferenceData() {      // пары из таблицы Шармы, Ву и Далала
+        assertDeltaE2000(2.0425, 50.0000, 2.6772, -79.7751, 50.0000, 0.0000, -82.7485);
+        assertDeltaE2000(2.3669, 50.0000, 0.0000, 0.0000, 50.0000, -1.0000, 2.0000);
+        assertDeltaE2000(7.2195, 50.0000, 2.4900, -0.0010, 50.0000, -2.4900, 0.0011);
+        assertDeltaE2000(27.1492, 50.0000, 2.5000, 0.0000, 73.0000, 25.0000, -18.0000);
+        assertDeltaE2000(1.2644, 60.2574, -34.0099, 36.2677, 60.4626, -34.1751, 39.4387);
+        assertDeltaE2000(0.9082, 2.0776, 0.0795, -1.1350, 0.9033, -0.0636, -0.5514);
+    }
+
+    @Test
+    public void testRgbToLab() {
+        float[][] lab = CieLab.toLab(new int[]{0xFFFFFF, 0x000000, 0xFF0000, 0x808080});
+        assertEquals(100f, lab[0][0], 1e-3f);
+        assertEquals(0f, lab[1][0], 1e-3f);
+        assertEquals(0f, lab[2][0], 1e-3f);
+        assertEquals(0f, lab[0][1], 1e-6f);
+        assertEquals(53.24f, lab[0][2], 0.01f);
+        assertEquals(80.09f, lab[1][2], 0.02f);
+        assertEquals(67.20f, lab[2][2], 0.02f);
+        assertEquals(53.59f, lab[0][3], 0.01f);
+    }
+
+    @Test
+    public void testEveryMetricMatchesFullScan() {
+        Random random = new Random(21);
+        int[] codes = random.ints(20_000, 0, 1 << 24).toArray();
+        for (ColorMetric metric : ColorMetric.values()) {
+            TableOfColor table = new TableOfColor(new Locale("ru"), new TableSettings().setMetric(metric));
+            assertEquals(metric, table.getMetric());
+            for (int rgb : codes) {
+                assertEquals(metric + " " + Integer.toHexString(rgb), table.findNamedColorIndexByFullScan(rgb), table.findNamedColorIndex(rgb));
+            }
+            for (int i = 0; i < table.getPaletteSize(); i++) {
+                int self = table.findNamedColorIndex(table.rgbOf(i));
+                assertEquals(table.rgbOf(i), table.rgbOf(self));     // цвет палитры ближе всех к самому себе
+            }
+        }
+    }
+
+    @Test
+    public void testPerceptualMetricsDisagreeWithRgb() {
+        TableOfColor rgb = new TableOfColor(new Locale("ru"));
+        int differences = 0;
+        for (ColorMetric metric : new ColorMetric[]{ColorMetric.CIE76, ColorMetric.CIEDE2000}) {
+            TableOfColor lab = new TableOfColor(new Locale("ru"), new TableSettings().setMetric(metric));
+            for (int code = 0; code < 1 << 24; code += 4099) {
+                if (lab.findNamedColorIndex(code) != rgb.findNamedColorIndex(code)) {
+                    differences++;
+                }
+            }
+        }
+        assertEquals(true, differences > 0);
+    }
+
+    @Test
+    public void testDenseLookupAndCacheWithLabMetric() {
+        TableOfColor dense = new TableOfColor(new Locale("en"),
+                new TableSettings().setMetric(ColorMetric.CIE76).setDenseLookup(true));
+        TableOfColor cached = new TableOfColor(new Locale("en"),
+                new TableSettings().setMetric(ColorMetric.CIEDE2000).setCacheCapacity(1024));
+        Random random = new Random(22);
+        for (int i = 0; i < 20_000; i++) {
+            int rgb = random.nextInt(1 << 12) * 4093 & 0xFFFFFF;
+            assertEquals(dense.findNamedColorIndexByFullScan(rgb), dense.findNamedColorIndex(rgb));
+            assertEquals(cached.findNamedColorIndexByFullScan(rgb), cached.findNamedColorIndex(rgb));
+        }
+    }
+}
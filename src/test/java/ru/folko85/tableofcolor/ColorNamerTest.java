@@ -0,0 +1,143 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class ColorNamerTest {
+    private static final String[] NAMES = {"Black", "Red", "Green", "Blue", "White"};
+    private static final int[] CODES = {0x000000, 0xFF0000, 0x00FF00, 0x0000FF, 0xFFFFFF};
+
+    private static Path palette() throws IOException {
+        Path file = Files.createTempFile("palette", ".csv");
+        StringBuilder csv = new StringBuilder("name,hex\n");
+        for (int i = 0; i < NAMES.length; i++) {
+            csv.append(NAMES[i]).append(',').append(String.format("%06x", CODES[i])).append('\n');
+        }
+        Files.writeString(file, csv);
+        return file;
+    }
+
+    private static int parse(String line) {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        return ColorTokenParser.parse(buffer, 0, buffer.limit());
+    }
+
+    private static String run(String input, String... args) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        String[] all = new String[args.length + 3];
+        all[0] = "--palette";
+        all[1] = palette().toString();
+        all[2] = "--quiet";
+        System.arraycopy(args, 0, all, 3, args.length);
+        int code = ColorNamer.run(all, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out,
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+        assertEquals(err.toString(StandardCharsets.UTF_8), 0, code);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testParser() {
+        assertEquals(0xFF7A00, parse("#FF7A00"));
+        assertEquals(0xFF7A00, parse("42,brand,ff7a00"));
+        assertEquals(0x0A0B0C, parse("{\"id\":123456,\"color\":\"#0a0b0c\"}"));   // код с # важнее голого слова
+        assertEquals(0x123456, parse("{\"id\":123456,\"n\":1}"));
+        assertEquals(0xABCDEF, parse("value=0xABCDEF"));
+        assertEquals(0x0CC81F, parse("12,200,31"));
+        assertEquals(0x0CC81F, parse("swatch rgb(12, 200, 31)"));
+        assertEquals(0x0CC81F, parse("2024-01-05;sku;12;200;31"));
+        assertEquals(ColorTokenParser.NO_COLOR, parse("2024-01-05;12;200;31"));        // четыре числа подряд - не тройка
+        assertEquals(ColorTokenParser.NO_COLOR, parse("12,300,31"));
+        assertEquals(ColorTokenParser.NO_COLOR, parse("name,hex"));
+        assertEquals(ColorTokenParser.NO_COLOR, parse("#ff00"));
+        assertEquals(ColorTokenParser.NO_COLOR, parse(""));
+    }
+
+    @Test
+    public void testFormats() throws IOException {
+        assertEquals("id,hex\n1,#ee1100,Red\r\n2,rgb(10, 240, 10),Green\n\n", run("id,hex\n1,#ee1100\r\n2,rgb(10, 240, 10)\n\n"));
+        assertEquals("0000f0\tBlue\nfafafa\tWhite\n", run("0000f0\nfafafa", "--format", "tsv"));
+        assertEquals("{\"c\":\"#010101\",\"colorName\":\"Black\"}\n{}\n",
+                run("{\"c\":\"#010101\"}\n{}\n", "--format", "ndjson", "--threads", "1"));
+        assertEquals("#010101 {\"colorName\":\"Black\"}\n#fefefe { \"colorName\":\"White\"}\n",   // пустой объект - без запятой
+                run("#010101 {}\n#fefefe { }\n", "--format", "ndjson"));
+    }
+
+    @Test
+    public void testFailedBlockIsIOException() throws IOException {
+        TableOfColor broken = new TableOfColor(palette(), new TableSettings()) {
+            @Override
+            public int findNamedColorIndex(int rgb) {
+                throw new IllegalStateException("сбой поиска");
+            }
+        };
+        ColorNamer namer = new ColorNamer(broken, ColorNamer.Format.CSV);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (ColorNamer.BlockReader reader = new ColorNamer.BlockReader(Channels.newChannel(
+                new ByteArrayInputStream("#ff0000\n".getBytes(StandardCharsets.UTF_8))), false)) {
+            namer.process(reader, Channels.newChannel(new ByteArrayOutputStream()), pool, 2, new ColorNamer.Statistics());
+            fail("ошибка блока должна дойти до вызывающего");
+        } catch (IOException ex) {                             // run() выведет "Ошибка: ..." и вернёт EXIT_IO_ERROR
+            assertTrue(ex.getMessage().contains("сбой поиска"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSuffixEscaping() {
+        assertEquals(",\"Red, dark \"\"wine\"\"\"", ColorNamer.suffix("Red, dark \"wine\"", ColorNamer.Format.CSV));
+        assertEquals(",\"colorName\":\"a\\\"b\\\\c\"", ColorNamer.suffix("a\"b\\c", ColorNamer.Format.NDJSON));
+    }
+
+    @Test
+    public void testLargeInputKeepsOrder() throws IOException {
+        Random random = new Random(41);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int line = 0; input.length() < 3 * ColorNamer.BLOCK_SIZE + 12345; line++) {   // строки попадают на границы блоков
+            int color = random.nextInt(CODES.length);
+            String text = line + ",#" + String.format("%06x", CODES[color]);
+            input.append(text).append('\n');
+            expected.append(text).append(',').append(NAMES[color]).append('\n');
+        }
+        Path file = Files.createTempFile("colors", ".csv");
+        Files.writeString(file, input);
+        Path output = Files.createTempFile("named", ".csv");
+        assertEquals("", run("", "--threads", "3", "--output", output.toString(), file.toString()));
+        assertEquals(expected.toString(), Files.readString(output));
+        assertEquals(expected.toString(), run(input.toString(), "--threads", "2"));        // тот же вход через канал
+    }
+
+    @Test
+    public void testUsageErrors() {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(err, true, StandardCharsets.UTF_8);
+        for (List<String> args : List.of(List.of("--threads", "0"), List.of("--format", "xml"), List.of("--bogus"),
+                List.of("--metric"))) {
+            assertEquals(ColorNamer.EXIT_USAGE, ColorNamer.run(args.toArray(new String[0]),
+                    new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), stream));
+        }
+        assertEquals(ColorNamer.EXIT_IO_ERROR, ColorNamer.run(new String[]{"--quiet", "no-such-file.csv"},
+                new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), stream));
+        assertEquals(ColorNamer.EXIT_USAGE, ColorNamer.run(new String[]{"--locale", "fr"},   // палитры для языка нет
+                new ByteArrayInputStream("#ff0000\n".getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream(), stream));
+    }
+}
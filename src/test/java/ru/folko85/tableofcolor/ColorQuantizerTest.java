@@ -0,0 +1,138 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class ColorQuantizerTest {
+    private static final TableOfColor TABLE = new TableOfColor(List.of(new ColorPoint("Black", "000000"),
+            new ColorPoint("Red", "ff0000"), new ColorPoint("Green", "00ff00"), new ColorPoint("Blue", "0000ff"),
+            new ColorPoint("White", "ffffff")), new TableSettings());
+
+    private static int[] randomImage(int size, Random random) {
+        int[] centers = {0xE02010, 0x10C040, 0x2030D0, 0xF0F0E0, 0x202020, 0x808000};
+        int[] pixels = new int[size];
+        for (int i = 0; i < size; i++) {
+            int center = centers[random.nextInt(centers.length)];
+            int r = Math.max(0, Math.min(255, (center >>> 16) + random.nextInt(41) - 20));
+            int g = Math.max(0, Math.min(255, ((center >>> 8) & 0xFF) + random.nextInt(41) - 20));
+            int b = Math.max(0, Math.min(255, (center & 0xFF) + random.nextInt(41) - 20));
+            pixels[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+        return pixels;
+    }
+
+    private static double squaredError(List<QuantizedColor> palette, int[] pixels) {
+        int[] indexes = new int[pixels.length];
+        ColorQuantizer.remap(palette, pixels, indexes);
+        double error = 0;
+        for (int i = 0; i < pixels.length; i++) {
+            int color = palette.get(indexes[i]).getRgb();
+            int dr = ((pixels[i] >>> 16) & 0xFF) - (color >>> 16);
+            int dg = ((pixels[i] >>> 8) & 0xFF) - ((color >>> 8) & 0xFF);
+            int db = (pixels[i] & 0xFF) - (color & 0xFF);
+            error += dr * dr + dg * dg + db * db;
+        }
+        return error;
+    }
+
+    @Test
+    public void testSolidBlocks() {
+        int[] pixels = new int[1000];
+        int[] colors = {0xFF0000, 0x00FF00, 0x0000FF, 0xFFFFFF};
+        int[] sizes = {400, 300, 200, 100};
+        int position = 0;
+        for (int i = 0; i < colors.length; i++) {
+            for (int j = 0; j < sizes[i]; j++) {
+                pixels[position++] = 0xFF000000 | colors[i];
+            }
+        }
+        List<QuantizedColor> palette = new ColorQuantizer(TABLE).accept(pixels).quantize(16);
+        assertEquals(4, palette.size());                          // цветов меньше, чем просили
+        String[] names = {"Red", "Green", "Blue", "White"};
+        for (int i = 0; i < colors.length; i++) {
+            assertEquals(colors[i], palette.get(i).getRgb());
+            assertEquals(sizes[i], palette.get(i).getPixelCount());
+            assertEquals(names[i], palette.get(i).getNamedColor().getColorName());
+            assertEquals(0.0, palette.get(i).getNamedColor().getDistance());
+        }
+    }
+
+    @Test
+    public void testStreamingEqualsWholeImage() {
+        int[] pixels = randomImage(100_000, new Random(31));
+        ColorQuantizer whole = new ColorQuantizer(TABLE).accept(pixels);
+        ColorQuantizer rows = new ColorQuantizer(TABLE);
+        for (int from = 0; from < pixels.length; from += 640) {
+            rows.accept(pixels, from, Math.min(pixels.length, from + 640));
+        }
+        assertEquals(whole.getPixelCount(), rows.getPixelCount());
+        List<QuantizedColor> expected = whole.quantize(8);
+        List<QuantizedColor> actual = rows.quantize(8);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getRgb(), actual.get(i).getRgb());
+            assertEquals(expected.get(i).getPixelCount(), actual.get(i).getPixelCount());
+        }
+    }
+
+    @Test
+    public void testLargeImageCountsAndKMeans() {
+        int[] pixels = randomImage(600_000, new Random(32));
+        ColorQuantizer quantizer = new ColorQuantizer(TABLE).accept(pixels);
+        List<QuantizedColor> medianCut = quantizer.quantize(6);
+        List<QuantizedColor> refined = quantizer.quantize(6, 5);
+        assertEquals(6, medianCut.size());
+        for (List<QuantizedColor> palette : List.of(medianCut, refined)) {
+            assertEquals(pixels.length, palette.stream().mapToLong(QuantizedColor::getPixelCount).sum());
+            for (int i = 1; i < palette.size(); i++) {
+                assertTrue(palette.get(i - 1).getPixelCount() >= palette.get(i).getPixelCount());
+            }
+        }
+        assertTrue(squaredError(refined, pixels) <= squaredError(medianCut, pixels) * 1.01);
+    }
+
+    @Test
+    public void testRemap() {
+        int[] pixels = randomImage(20_000, new Random(33));
+        List<QuantizedColor> palette = new ColorQuantizer(TABLE).accept(pixels).quantize(12);
+        int[] indexes = new int[pixels.length];
+        ColorQuantizer.remap(palette, pixels, indexes);
+        for (int i = 0; i < pixels.length; i += 97) {
+            long bestDistance = Long.MAX_VALUE;
+            for (int j = 0; j < palette.size(); j++) {
+                int color = palette.get(j).getRgb();
+                long dr = ((pixels[i] >>> 16) & 0xFF) - (color >>> 16);
+                long dg = ((pixels[i] >>> 8) & 0xFF) - ((color >>> 8) & 0xFF);
+                long db = (pixels[i] & 0xFF) - (color & 0xFF);
+                long distance = dr * dr + dg * dg + db * db;
+                bestDistance = Math.min(bestDistance, distance);
+            }
+            int color = palette.get(indexes[i]).getRgb();
+            long dr = ((pixels[i] >>> 16) & 0xFF) - (color >>> 16);
+            long dg = ((pixels[i] >>> 8) & 0xFF) - ((color >>> 8) & 0xFF);
+            long db = (pixels[i] & 0xFF) - (color & 0xFF);
+            assertEquals(bestDistance, dr * dr + dg * dg + db * db);    // при равных расстояниях индекс может отличаться
+        }
+
+        ColorQuantizer.Remapper remapper = ColorQuantizer.remapper(palette);   // один поиск на все части картинки
+        int[] tile = new int[1000];
+        for (int from = 0; from < pixels.length; from += tile.length) {
+            remapper.remap(Arrays.copyOfRange(pixels, from, from + tile.length), tile);
+            for (int i = 0; i < tile.length; i++) {
+                assertEquals(indexes[from + i], tile[i]);
+                assertEquals(indexes[from + i], remapper.indexOf(pixels[from + i]));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEmptyHistogram() {
+        new ColorQuantizer(TABLE).quantize(4);
+    }
+}
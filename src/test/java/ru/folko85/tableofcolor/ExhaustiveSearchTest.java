@@ -0,0 +1,93 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Проверка ускоренного поиска полным перебором всех 16 777 216 RGB-кодов.
+ * Каждый код сравнивается с полным перебором палитры, коды обрабатываются параллельно на всех ядрах.
+ * Палитры берутся из src/main/resources - те, что поставляются с библиотекой, а не маленькие тестовые.
+ * Проверки дерева выключают векторный перебор, иначе при подключённом модуле jdk.incubator.vector
+ * маленькие палитры искались бы без дерева; сам перебор проверяется отдельно
+ */
+public class ExhaustiveSearchTest {
+
+    /**
+     * Создаёт таблицу поставляемой палитры
+     * @param language - язык палитры
+     * @param settings - настройки таблицы
+     * @return - возвращает таблицу
+     */
+    static TableOfColor bundled(String language, TableSettings settings) {
+        try {
+            return new TableOfColor(Path.of("src/main/resources", language + ".yml"), settings);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Сравнивает проверяемый поиск с эталонным на всём кубе RGB
+     * @param table - таблица, чей полный перебор служит эталоном
+     * @param candidate - проверяемый поиск индекса по упакованному коду
+     */
+    static void assertExactOnWholeCube(TableOfColor table, IntUnaryOperator candidate) {
+        AtomicInteger mismatches = new AtomicInteger();
+        AtomicLong firstMismatch = new AtomicLong(-1);
+        IntStream.range(0, 256).parallel().forEach(r -> {
+            for (int gb = 0; gb < 1 << 16; gb++) {
+                int rgb = (r << 16) | gb;
+                if (candidate.applyAsInt(rgb) != table.findNamedColorIndexByFullScan(rgb)) {
+                    mismatches.incrementAndGet();
+                    firstMismatch.compareAndSet(-1, rgb);
+                }
+            }
+        });
+        assertEquals("первое расхождение: " + Long.toHexString(firstMismatch.get()), 0, mismatches.get());
+    }
+
+    @Test
+    public void testTreeSearchIsExactForEn() {
+        TableOfColor table = bundled("en", new TableSettings().setScanKernelEnabled(false));
+        assertExactOnWholeCube(table, table::findNamedColorIndex);
+    }
+
+    @Test
+    public void testTreeSearchIsExactForRu() {
+        TableOfColor table = bundled("ru", new TableSettings().setScanKernelEnabled(false));
+        assertExactOnWholeCube(table, table::findNamedColorIndex);
+    }
+
+    @Test
+    public void testTreeSearchIsExactForEnInOtherMetrics() {
+        for (ColorMetric metric : new ColorMetric[]{ColorMetric.REDMEAN, ColorMetric.CIE76}) {
+            TableOfColor table = bundled("en", new TableSettings().setMetric(metric).setScanKernelEnabled(false));
+            assertExactOnWholeCube(table, table::findNamedColorIndex);
+        }
+    }
+
+    @Test
+    public void testScanKernelIsExactForEn() {
+        TableOfColor table = bundled("en", new TableSettings().setScanKernelEnabled(false));
+        int[] palette = new int[table.getPaletteSize()];
+        Arrays.setAll(palette, table::rgbOf);
+        ScanKernel kernel = ScanKernel.create(palette);                 // векторный, если модуль подключён
+        assertExactOnWholeCube(table, rgb -> kernel.nearest(rgb >>> 16, (rgb >>> 8) & 0xFF, rgb & 0xFF));
+    }
+
+    @Test
+    public void testDenseLookupIsExactForRu() {
+        TableOfColor table = bundled("ru", new TableSettings().setDenseLookup(true));
+        assertExactOnWholeCube(table, table::findNamedColorIndex);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class FootprintTest {
+    /** Точка в прежнем виде: строка кода, три координаты и массив с ними же */
+    private static final class LegacyColorPoint {
+        private final String colorName;
+        private final String hexCode;
+        private final int rValue;
+        private final int gValue;
+        private final int bValue;
+        private final int[] coordinates;
+
+        LegacyColorPoint(String colorName, String hexCode) {
+            this.colorName = colorName;
+            this.hexCode = hexCode;
+            this.coordinates = ColorPoint.coordinateFromHex(hexCode);
+            this.rValue = coordinates[0];
+            this.gValue = coordinates[1];
+            this.bValue = coordinates[2];
+        }
+    }
+
+    private static List<ColorPoint> palette(int size) {
+        Random random = new Random(size);
+        List<ColorPoint> colors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            colors.add(new ColorPoint("Color " + i, random.nextInt(1 << 24)));
+        }
+        return colors;
+    }
+
+    @Test
+    public void testPackedPaletteIsAtLeastTwiceSmaller() {
+        for (int size : new int[]{10_000, 100_000}) {
+            List<ColorPoint> colors = palette(size);
+            List<LegacyColorPoint> legacy = new ArrayList<>(size);
+            for (ColorPoint color : colors) {
+                legacy.add(new LegacyColorPoint(color.getColorName(),
+                        ColorPoint.rgbToHex(color.getRValue(), color.getGValue(), color.getBValue())));
+            }
+            PackedPalette packed = PackedPalette.of(colors);
+            long packedSize = GraphLayout.parseInstance(packed).totalSize();
+            long legacySize = GraphLayout.parseInstance(legacy).totalSize();
+            assertTrue(size + ": " + packedSize + " vs " + legacySize, 2 * packedSize < legacySize);
+            assertEquals(colors, packed);
+        }
+    }
+
+    @Test
+    public void testCompactColorPoint() {
+        long point = GraphLayout.parseInstance(new ColorPoint(null, 0x123456)).totalSize();
+        long legacyPoint = GraphLayout.parseInstance(new LegacyColorPoint(null, "123456")).totalSize();
+        assertTrue(point + " vs " + legacyPoint, 2 * point < legacyPoint);
+    }
+}
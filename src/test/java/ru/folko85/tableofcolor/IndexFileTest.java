@@ -0,0 +1,100 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+public class IndexFileTest {
+    private static final List<ColorPoint> PALETTE = List.of(new ColorPoint("Black", "000000"),
+            new ColorPoint("Red", "ff0000"), new ColorPoint("Green", "00ff00"), new ColorPoint("Blue", "0000ff"),
+            new ColorPoint("White", "ffffff"), new ColorPoint("Gray", "808080"), new ColorPoint("Olive", "808000"));
+
+    private static TableOfColor open(List<ColorPoint> palette, Path indexFile) {
+        return new TableOfColor(palette, new TableSettings().setIndexFile(indexFile));
+    }
+
+    private static void assertSameLookups(TableOfColor expected, TableOfColor actual) {
+        for (int rgb = 0; rgb < 1 << 24; rgb += 4099) {
+            assertEquals(Integer.toHexString(rgb), expected.findNamedColorIndexByFullScan(rgb), actual.findNamedColorIndex(rgb));
+        }
+    }
+
+    @Test
+    public void testBuildThenMap() throws IOException {
+        Path dir = Files.createTempDirectory("index");
+        Path file = dir.resolve("palette.ctix");
+        TableOfColor built = open(PALETTE, file);
+        assertTrue(built.isDenseLookup());
+        assertFalse(built.isIndexMapped());                 // файла не было - таблица построена и записана
+        assertEquals(IndexFile.FILE_SIZE, Files.size(file));
+
+        TableOfColor mapped = open(PALETTE, file);
+        assertTrue(mapped.isIndexMapped());
+        assertSameLookups(built, mapped);
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());                  // временный файл не остался
+        }
+    }
+
+    @Test
+    public void testStalePaletteIsRebuilt() throws IOException {
+        Path file = Files.createTempDirectory("index").resolve("palette.ctix");
+        open(PALETTE, file);
+        List<ColorPoint> renamed = List.of(new ColorPoint("Noir", "000000"), new ColorPoint("Rouge", "ff0000"));
+        TableOfColor rebuilt = open(renamed, file);
+        assertFalse(rebuilt.isIndexMapped());
+        assertEquals("Rouge", rebuilt.findNamedColorFromHex("ee1100"));
+        assertTrue(open(renamed, file).isIndexMapped());      // файл перезаписан для новой палитры
+
+        TableOfColor otherMetric = new TableOfColor(renamed, new TableSettings().setIndexFile(file).setMetric(ColorMetric.CIE76));
+        assertFalse(otherMetric.isIndexMapped());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {   // метрика в заголовке тоже проверяется
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ColorMetric.CIEDE2000.ordinal()}), 8);
+        }
+        assertFalse(new TableOfColor(renamed, new TableSettings().setIndexFile(file).setMetric(ColorMetric.CIE76)).isIndexMapped());
+    }
+
+    @Test
+    public void testUnwritableIndexFallsBackToHeap() throws IOException {
+        Path file = Files.createTempDirectory("index").resolve("missing").resolve("palette.ctix");   // каталога нет
+        TableOfColor table = open(PALETTE, file);
+        assertTrue(table.isDenseLookup());
+        assertFalse(table.isIndexMapped());
+        assertFalse(Files.exists(file));
+        assertSameLookups(new TableOfColor(PALETTE, new TableSettings()), table);
+    }
+
+    @Test
+    public void testCorruptedTableIsRebuilt() throws IOException {
+        Path file = Files.createTempDirectory("index").resolve("palette.ctix");
+        TableOfColor built = open(PALETTE, file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{6, 0}), IndexFile.HEADER_SIZE + 2L * 0x123456);
+        }
+        TableOfColor repaired = open(PALETTE, file);
+        assertFalse(repaired.isIndexMapped());
+        assertSameLookups(built, repaired);
+        assertTrue(open(PALETTE, file).isIndexMapped());
+    }
+
+    @Test
+    public void testSaveIndexWithoutDenseTable() throws IOException {
+        Path file = Files.createTempDirectory("index").resolve("palette.ctix");
+        TableOfColor table = new TableOfColor(PALETTE, new TableSettings());
+        table.saveIndex(file);
+        TableOfColor mapped = open(PALETTE, file);
+        assertTrue(mapped.isIndexMapped());
+        assertSameLookups(table, mapped);
+    }
+}
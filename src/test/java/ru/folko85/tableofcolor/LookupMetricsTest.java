@@ -0,0 +1,122 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class LookupMetricsTest {
+
+    @Test
+    public void testDisabledByDefault() {
+        assertNull(new TableOfColor(new Locale("ru")).getLookupMetrics());
+    }
+
+    @Test
+    public void testSearchCountersAndBucketStructure() {
+        TableOfColor table = new TableOfColor(new Locale("ru"),
+                new TableSettings().setMetric(ColorMetric.REDMEAN).setMetricsEnabled(true));
+        LookupMetrics metrics = table.getLookupMetrics();
+        Random random = new Random(31);
+        for (int i = 0; i < 10_000; i++) {
+            table.findNamedColorIndex(random.nextInt(1 << 24));
+        }
+        assertEquals(10_000, metrics.getLookupCount());
+        assertEquals(10_000, metrics.getSearchCount());
+        assertTrue(metrics.getFastPathCount() > 0 && metrics.getFastPathCount() < 10_000);
+        assertTrue(metrics.getCandidatesPerSearch() >= 1 && metrics.getCandidatesPerSearch() < table.getPaletteSize());
+        assertTrue(metrics.getLatencyP50Nanos() <= metrics.getLatencyP99Nanos());
+        assertTrue(metrics.getLatencyP99Nanos() <= metrics.getMaxLatencyNanos());
+
+        long[] occupancy = metrics.getBucketOccupancy();
+        long buckets = 0;
+        long colors = 0;
+        for (int n = 0; n < occupancy.length; n++) {
+            buckets += occupancy[n];
+            colors += n * occupancy[n];
+        }
+        assertEquals(metrics.getBucketCount(), buckets);
+        assertEquals(table.getPaletteSize(), colors);
+        assertTrue(metrics.getTreeDepth() > 1);
+
+        metrics.reset();
+        assertEquals(0, metrics.getLookupCount());
+        assertEquals(0, metrics.getLatencyP99Nanos());
+    }
+
+    @Test
+    public void testCacheAndDensePaths() {
+        TableOfColor cached = new TableOfColor(new Locale("ru"),
+                new TableSettings().setMetric(ColorMetric.CIEDE2000).setCacheCapacity(64).setMetricsEnabled(true));
+        for (int i = 0; i < 10; i++) {
+            cached.findNamedColorFromHex("ab67fa");
+        }
+        assertEquals(1, cached.getLookupMetrics().getSearchCount());
+        assertEquals(9, cached.getLookupMetrics().getCacheHitCount());
+        assertEquals(0, cached.getLookupMetrics().getBucketCount());      // у ΔE 2000 нет дерева
+
+        TableOfColor dense = new TableOfColor(List.of(new ColorPoint("Black", "000000"), new ColorPoint("White", "ffffff")),
+                new TableSettings().setDenseLookup(true).setMetricsEnabled(true));
+        dense.findNamedColorIndexes(new int[]{0, 0xFFFFFF, 0x808080}, new int[3]);
+        assertEquals(3, dense.getLookupMetrics().getDenseLookupCount());
+        assertTrue(dense.getLookupMetrics().getDenseBuildTimeMillis() > 0);
+    }
+
+    @Test
+    public void testMetricsSurviveMutableUpdates() {
+        MutableTableOfColor table = new MutableTableOfColor(new TableOfColor(new Locale("ru"),
+                new TableSettings().setMetric(ColorMetric.CIE76).setMetricsEnabled(true)));
+        LookupMetrics metrics = table.getLookupMetrics();
+        table.findNamedColorFromHex("123456");
+        int buckets = metrics.getBucketCount();
+        for (int i = 0; i < 40; i++) {
+            table.addColor("brand" + i, String.format("%06x", i * 400_000));
+        }
+        table.findNamedColorFromHex("123456");
+        assertTrue(metrics == table.getLookupMetrics());
+        assertEquals(2, metrics.getLookupCount());
+        assertTrue(metrics.getBucketCount() > buckets);
+    }
+
+    @Test
+    public void testJmxExport() throws JMException {
+        TableOfColor table = new TableOfColor(new Locale("ru"), new TableSettings().setMetricsEnabled(true));
+        table.findNamedColorFromHex("ab67fa");
+        ObjectName name = table.getLookupMetrics().registerMBean("ru-test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(1L, server.getAttribute(name, "LookupCount"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "LookupCount"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testHistogramPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            double expected = percentile * 1_000;
+            long actual = histogram.percentile(percentile);
+            assertTrue(percentile + ": " + actual, actual >= expected && actual <= expected * 1.125 + 1);
+        }
+        LatencyHistogram exact = new LatencyHistogram();
+        exact.record(3);                                   // маленькие значения хранятся точно
+        assertEquals(3, exact.percentile(50));
+    }
+}
@@ -0,0 +1,162 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class MutableTableOfColorTest {
+
+    private static List<ColorPoint> randomPalette(int size, Random random) {
+        List<ColorPoint> palette = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            palette.add(new ColorPoint("color" + i, String.format("%06x", random.nextInt(1 << 24))));
+        }
+        return palette;
+    }
+
+    private static void assertSameAsFullScan(TableOfColor table, Random random) {
+        for (int i = 0; i < 300; i++) {
+            int rgb = random.nextInt(1 << 24);
+            assertEquals(Integer.toHexString(rgb), table.findNamedColorIndexByFullScan(rgb), table.findNamedColorIndex(rgb));
+        }
+    }
+
+    @Test
+    public void testIncrementalTreeMatchesFullScan() {
+        Random random = new Random(21);
+        for (ColorMetric metric : ColorMetric.values()) {
+            MutableTableOfColor table = new MutableTableOfColor(
+                    new TableOfColor(randomPalette(300, random), new TableSettings().setMetric(metric)));
+            for (int step = 0; step < 120; step++) {
+                if (random.nextInt(3) > 0) {
+                    int index = table.addColor("new" + step, String.format("#%06X", random.nextInt(1 << 24)));
+                    assertEquals(index + 1, table.getPaletteSize());
+                } else {
+                    TableOfColor snapshot = table.snapshot();
+                    assertTrue(table.removeColor(snapshot.nameOf(random.nextInt(snapshot.getPaletteSize()))));
+                }
+                if (step % 20 == 0) {
+                    assertSameAsFullScan(table.snapshot(), random);
+                }
+            }
+            assertSameAsFullScan(table.snapshot(), random);
+        }
+    }
+
+    @Test
+    public void testDenseTableIsUpdatedInPlaceOfRebuild() {
+        Random random = new Random(25);
+        for (ColorMetric metric : new ColorMetric[]{ColorMetric.EUCLIDEAN_RGB, ColorMetric.REDMEAN}) {
+            List<ColorPoint> palette = randomPalette(300, random);
+            MutableTableOfColor table = new MutableTableOfColor(
+                    new TableOfColor(palette, new TableSettings().setMetric(metric).setDenseLookup(true)));
+            int twin = table.addColor("twin", String.format("%06x", palette.get(7).getRgb()));  // при равенстве - меньший индекс
+            assertEquals(7, table.snapshot().findNamedColorIndex(palette.get(7).getRgb()));
+            table.addColor("brand", "#FF7A00");
+            assertEquals("brand", table.findNamedColorFromHex("ff7a00"));
+            assertTrue(table.removeColor(palette.get(3).getColorName()));   // индексы после удалённого сдвигаются
+            assertTrue(table.removeColor("color" + 150));
+            TableOfColor snapshot = table.snapshot();
+            assertTrue(snapshot.isDenseLookup());
+            assertEquals(twin - 2, snapshot.findIndexByName("twin"));
+            for (int i = 0; i < 20_000; i++) {
+                int rgb = random.nextInt(1 << 24);
+                assertEquals(metric + " " + Integer.toHexString(rgb),
+                        snapshot.findNamedColorIndexByFullScan(rgb), snapshot.findNamedColorIndex(rgb));
+            }
+        }
+    }
+
+    @Test
+    public void testShrinkToOneColorAndGrowBack() {
+        Random random = new Random(22);
+        MutableTableOfColor table = new MutableTableOfColor(
+                new TableOfColor(randomPalette(60, random), new TableSettings().setMetric(ColorMetric.REDMEAN)));
+        while (table.getPaletteSize() > 1) {                  // листья пустеют и сливаются с соседями
+            TableOfColor snapshot = table.snapshot();
+            table.removeColor(snapshot.nameOf(random.nextInt(snapshot.getPaletteSize())));
+            assertSameAsFullScan(table.snapshot(), random);
+        }
+        for (int i = 0; i < 50; i++) {                        // а потом снова делятся
+            table.addColor("again" + i, String.format("%06x", random.nextInt(1 << 24)));
+        }
+        assertSameAsFullScan(table.snapshot(), random);
+    }
+
+    @Test
+    public void testNamesAndReplacePalette() throws IOException {
+        MutableTableOfColor table = new MutableTableOfColor(new TableOfColor(List.of(new ColorPoint("Black", "000000"),
+                new ColorPoint("White", "ffffff")), new TableSettings()));
+        TableOfColor before = table.snapshot();
+        table.addColor("Brand Orange", "#FF7A00");
+        assertEquals("Brand Orange", table.findNamedColorFromHex("ff7f10"));
+        assertEquals(2, before.getPaletteSize());                 // старый снимок не изменился
+        assertEquals(-1, before.findIndexByName("brand orange"));
+        assertTrue(table.removeColor("brand orange"));
+        assertFalse(table.removeColor("brand orange"));
+        assertEquals("White", table.findNamedColorFromRGB(255, 160, 80));
+
+        Path palette = Files.createTempFile("palette", ".csv");
+        try {
+            Files.writeString(palette, "name,hex\nRed,ff0000\nBlue,0000ff\n");
+            table.replacePalette(palette);
+        } finally {
+            Files.deleteIfExists(palette);
+        }
+        assertEquals(2, table.getPaletteSize());
+        assertEquals("Red", table.findNamedColorFromHex("ee1111"));
+        assertEquals(-1, table.snapshot().findIndexByName("Black"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLastColorCannotBeRemoved() {
+        MutableTableOfColor table = new MutableTableOfColor(new TableOfColor(List.of(new ColorPoint("Black", "000000")),
+                new TableSettings()));
+        table.removeColor("Black");
+    }
+
+    @Test
+    public void testReadersSeeConsistentSnapshots() throws InterruptedException {
+        Random random = new Random(23);
+        MutableTableOfColor table = new MutableTableOfColor(
+                new TableOfColor(randomPalette(400, random), new TableSettings().setMetric(ColorMetric.CIE76)));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            Random readerRandom = new Random(24);
+            try {
+                while (!done.get()) {
+                    TableOfColor snapshot = table.snapshot();
+                    int rgb = readerRandom.nextInt(1 << 24);
+                    assertEquals(snapshot.findNamedColorIndexByFullScan(rgb), snapshot.findNamedColorIndex(rgb));
+                    assertTrue(table.findNearestK(rgb, 3).size() == 3);
+                }
+            } catch (Throwable ex) {
+                failure.set(ex);
+            }
+        });
+        reader.start();
+        for (int step = 0; step < 300; step++) {
+            if (step % 2 == 0) {
+                table.addColor("tenant" + step, String.format("%06x", random.nextInt(1 << 24)));
+            } else {
+                table.removeColor("color" + step);
+            }
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
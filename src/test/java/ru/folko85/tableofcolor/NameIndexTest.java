@@ -0,0 +1,75 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class NameIndexTest {
+    private final TableOfColor en = TableOfColor.forLocale(Locale.ENGLISH);
+    private final TableOfColor ru = TableOfColor.forLocale(new Locale("ru"));
+
+    @Test
+    public void testExactLookupIgnoresCaseAndYo() {
+        int crimson = en.findIndexByName("  crimson ");
+        assertEquals("Crimson", en.nameOf(crimson));
+        assertEquals(0xDC143C, en.rgbOf(crimson));
+        assertEquals(0x7CFC00, ru.rgbOf(ru.findIndexByName("ЗЕЛЕНАЯ ЛУЖАЙКА")));
+        assertEquals(-1, en.findIndexByName("Crimso"));
+        assertEquals(-1, en.findIndexByName(""));
+        for (int i = 0; i < ru.getPaletteSize(); i++) {            // каждое название находит само себя
+            assertEquals(ru.nameOf(i), ru.nameOf(i), ru.nameOf(ru.findIndexByName(ru.nameOf(i))));
+        }
+    }
+
+    @Test
+    public void testPrefixSearch() {
+        List<ColorMatch> medium = en.findByNamePrefix("medium", 100);
+        assertEquals(2, medium.size());
+        assertEquals("MediumPurple", medium.get(0).getColorName());      // по алфавиту, а не по порядку в палитре
+        assertEquals("MediumVioletRed", medium.get(1).getColorName());
+        assertEquals("MediumPurple", en.findByNamePrefix("MEDIUM", 1).get(0).getColorName());
+        assertEquals(1, en.findByNamePrefix("MEDIUM", 1).size());
+        List<ColorMatch> dark = ru.findByNamePrefix("темно-", 100);
+        assertTrue(dark.size() > 5);
+        for (int i = 0; i < dark.size(); i++) {
+            assertTrue(dark.get(i).getColorName().toLowerCase(Locale.ROOT).replace('ё', 'е').startsWith("темно-"));
+        }
+        assertEquals(0, en.findByNamePrefix("zzz", 10).size());
+        assertEquals(en.getPaletteSize(), en.findByNamePrefix("", Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testFuzzySearch() {
+        List<ColorMatch> matches = en.findByNameFuzzy("Crmison", 2);
+        assertEquals("Crimson", matches.get(0).getColorName());
+        assertEquals(1.0, matches.get(0).getDistance());          // одна перестановка соседних букв
+        assertEquals("Crimson", en.findByNameFuzzy("crimson", 0).get(0).getColorName());
+        assertEquals(0, en.findByNameFuzzy("Qwertyuiop", 2).size());
+        for (int i = 1; i < matches.size(); i++) {
+            assertTrue(matches.get(i - 1).getDistance() <= matches.get(i).getDistance());
+        }
+    }
+
+    @Test
+    public void testCrossLocaleMapping() {
+        assertEquals("Тёмно-красный", en.translateName("Crimson", ru));
+        assertEquals("Crimson", ru.translateName("темно-красный", en));
+        assertNull(ru.translateName("Зелёная лужайка", en));           // такого кода в английской палитре нет
+        assertEquals(-1, en.findIndexByRgb(0x123456));
+        assertNull(en.translateName("NoSuchColor", ru));
+        int shared = 0;
+        for (int i = 0; i < ru.getPaletteSize(); i++) {
+            String name = ru.translateName(ru.nameOf(i), en);
+            if (name != null) {
+                shared++;
+                assertEquals(ru.rgbOf(i), en.rgbOf(en.findIndexByName(name)));
+            }
+        }
+        assertTrue(shared > 0);
+    }
+}
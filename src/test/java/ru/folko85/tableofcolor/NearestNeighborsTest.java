@@ -0,0 +1,110 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class NearestNeighborsTest {
+
+    /**
+     * Квадраты расстояний от цвета до всей палитры, посчитанные в лоб
+     */
+    private static float[] distances(TableOfColor table, int rgb) {
+        int size = table.getPaletteSize();
+        int[] palette = IntStream.range(0, size).map(table::rgbOf).toArray();
+        float[] distances = new float[size];
+        float[][] lab = CieLab.toLab(palette);
+        float[][] query = CieLab.toLab(new int[]{rgb});
+        for (int i = 0; i < size; i++) {
+            float dr = ((palette[i] >>> 16) & 0xFF) - (float) ((rgb >>> 16) & 0xFF);
+            float dg = ((palette[i] >>> 8) & 0xFF) - (float) ((rgb >>> 8) & 0xFF);
+            float db = (palette[i] & 0xFF) - (float) (rgb & 0xFF);
+            float dl = lab[0][i] - query[0][0];
+            float da = lab[1][i] - query[1][0];
+            float dlb = lab[2][i] - query[2][0];
+            switch (table.getMetric()) {
+                case EUCLIDEAN_RGB:
+                    distances[i] = dr * dr + dg * dg + db * db;
+                    break;
+                case REDMEAN:
+                    distances[i] = ColorMetric.redmeanDistance(dr, dg, db, (((palette[i] >>> 16) & 0xFF) + (float) ((rgb >>> 16) & 0xFF)) * 0.5f);
+                    break;
+                case CIE76:
+                    distances[i] = dl * dl + da * da + dlb * dlb;
+                    break;
+                default:
+                    distances[i] = (float) CieLab.deltaE2000Squared(query[0][0], query[1][0], query[2][0], lab[0][i], lab[1][i], lab[2][i]);
+            }
+        }
+        return distances;
+    }
+
+    private static List<Integer> sortedIndexes(float[] distances) {
+        return IntStream.range(0, distances.length).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> distances[i]).thenComparingInt(i -> i))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> indexesOf(List<ColorMatch> matches) {
+        return matches.stream().map(ColorMatch::getIndex).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testNearestKAndRadiusMatchBruteForce() {
+        Random random = new Random(41);
+        for (ColorMetric metric : ColorMetric.values()) {
+            TableOfColor table = new TableOfColor(new Locale("ru"), new TableSettings().setMetric(metric));
+            for (int i = 0; i < 500; i++) {
+                int rgb = random.nextInt(1 << 24);
+                float[] distances = distances(table, rgb);
+                List<Integer> mustBe = sortedIndexes(distances);
+                for (int k : new int[]{1, 5, 20}) {
+                    assertEquals(metric + " k=" + k, mustBe.subList(0, k), indexesOf(table.findNearestK(rgb, k)));
+                }
+                double radius = Math.sqrt(distances[mustBe.get(7)]);          // в радиус попадают хотя бы восемь цветов
+                List<Integer> inRadius = new ArrayList<>();
+                for (int index : mustBe) {
+                    if (distances[index] <= (float) (radius * radius)) {
+                        inRadius.add(index);
+                    }
+                }
+                assertEquals(metric + " radius", inRadius, indexesOf(table.findWithinRadius(rgb, radius)));
+            }
+        }
+    }
+
+    @Test
+    public void testMatchContents() {
+        TableOfColor table = new TableOfColor(new Locale("en"));
+        List<ColorMatch> matches = table.findNearestK("#ab67fa", 3);
+        assertEquals(3, matches.size());
+        assertEquals("MediumPurple", matches.get(0).getColorName());
+        assertEquals(table.findNamedColorIndex(0xab67fa), matches.get(0).getIndex());
+        assertEquals("9370db", matches.get(0).getHexCode());
+        assertEquals(0x9370DB, matches.get(0).getRgb());
+        assertEquals(ColorPoint.calculateDistance(new ColorPoint("9370db"), new ColorPoint("ab67fa")), matches.get(0).getDistance(), 1e-4);
+        assertTrue(matches.get(0).getDistance() <= matches.get(1).getDistance());
+        assertEquals(table.getPaletteSize(), table.findNearestK(0, 1_000).size());      // больше палитры - вся палитра
+        assertEquals(1, table.findWithinRadius(0x9370DB, 0).size());                    // сам цвет на нулевом расстоянии
+        assertEquals(table.getPaletteSize(), table.findWithinRadius(0, 442).size());    // диагональ куба RGB меньше 442
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveK() {
+        new TableOfColor(new Locale("en")).findNearestK(0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRadius() {
+        new TableOfColor(new Locale("en")).findWithinRadius(0, -1);
+    }
+}
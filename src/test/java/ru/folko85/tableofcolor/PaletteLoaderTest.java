@@ -0,0 +1,113 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
+
+public class PaletteLoaderTest {
+
+    private static List<ColorPoint> load(String text, PaletteFormat format) throws IOException {
+        return PaletteLoader.load(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), format, "тест");
+    }
+
+    private static void assertFormatError(String text, PaletteFormat format, long lineNumber) throws IOException {
+        try {
+            load(text, format);
+            fail("ожидалась ошибка формата");
+        } catch (PaletteFormatException ex) {
+            assertEquals(ex.getMessage(), lineNumber, ex.getLineNumber());
+        }
+    }
+
+    @Test
+    public void testYamlWithCommentsBlankLinesAndCrlf() throws IOException {
+        String yaml = "﻿# моя палитра\r\nmy:\r\n  colors:\r\n\r\n    Crimson: DC143C   # малиновый\r\n"
+                + "    'Tyrian: purple': \"#66023C\"\r\n    Navy: 000080";
+        List<ColorPoint> colors = load(yaml, PaletteFormat.YAML);
+        assertEquals(3, colors.size());
+        assertEquals("Crimson", colors.get(0).getColorName());
+        assertEquals("Tyrian: purple", colors.get(1).getColorName());
+        assertEquals(new ColorPoint("Tyrian", "66023c"), colors.get(1));
+        assertEquals(0x000080, ColorPoint.packedFromHex("000080"));
+    }
+
+    @Test
+    public void testCsvWithHeaderAndQuotes() throws IOException {
+        String csv = "name,hex\n\"Red, bright\",#FF0000\nGreen;00ff00\n# комментарий\n\"Say \"\"hi\"\"\",0000FF\n";
+        List<ColorPoint> colors = load(csv, PaletteFormat.CSV);
+        assertEquals(3, colors.size());
+        assertEquals("Red, bright", colors.get(0).getColorName());
+        assertEquals("Green", colors.get(1).getColorName());
+        assertEquals("Say \"hi\"", colors.get(2).getColorName());
+    }
+
+    @Test
+    public void testValidationErrors() throws IOException {
+        assertFormatError("en:\n  colors:\n    Red: FF00\n", PaletteFormat.YAML, 3);
+        assertFormatError("en:\n  colors:\n    Red: #FF0000\n", PaletteFormat.YAML, 3);   // без кавычек это комментарий
+        assertFormatError("en:\n  colors:\n    just a line\n", PaletteFormat.YAML, 3);
+        assertFormatError("en:\n  colors:\n    Red:\n    Blue: 0000FF\n", PaletteFormat.YAML, 3);   // пустое значение - не раздел
+        assertFormatError("en:\n  colors:\n    Blue: 0000FF\n    Red:\n", PaletteFormat.YAML, 4);
+        assertFormatError("Red,FF0000\nGreen,GG0000\n", PaletteFormat.CSV, 2);
+        assertFormatError("# пусто\n", PaletteFormat.CSV, 0);
+        assertFormatError("not a binary palette", PaletteFormat.BINARY, 0);
+    }
+
+    @Test
+    public void testTruncatedBinaryPalette() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TableOfColor table = new TableOfColor(new Locale("ru"));
+        table.exportPalette(out, PaletteFormat.BINARY);
+        byte[] bytes = out.toByteArray();
+        try {
+            PaletteLoader.load(new ByteArrayInputStream(bytes, 0, bytes.length - 3), PaletteFormat.BINARY, "тест");
+            fail("ожидалась ошибка формата");
+        } catch (PaletteFormatException ex) {
+            assertEquals(table.getPaletteSize(), ex.getLineNumber());   // обрезан последний цвет
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingLocale() {
+        new TableOfColor(new Locale("xx"));
+    }
+
+    @Test
+    public void testLargePaletteRoundTripInAllFormats() throws IOException {
+        List<ColorPoint> palette = new ArrayList<>();
+        Random random = new Random(100);
+        for (int i = 0; i < 100_000; i++) {
+            palette.add(new ColorPoint("Цвет №" + i, String.format("%06x", random.nextInt(1 << 24))));
+        }
+        TableOfColor table = new TableOfColor(palette, new TableSettings());
+        for (PaletteFormat format : PaletteFormat.values()) {
+            Path file = Files.createTempFile("palette", format == PaletteFormat.BINARY ? ".ctpl" : "." + format.name().toLowerCase());
+            try {
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    table.exportPalette(out, format);
+                }
+                TableOfColor loaded = new TableOfColor(file, new TableSettings());
+                assertEquals(palette.size(), loaded.getPaletteSize());
+                for (int i = 0; i < palette.size(); i += 997) {
+                    assertEquals(table.nameOf(i), loaded.nameOf(i));
+                    assertEquals(table.rgbOf(i), loaded.rgbOf(i));
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+}
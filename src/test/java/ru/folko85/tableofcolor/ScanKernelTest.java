@@ -0,0 +1,61 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class ScanKernelTest {
+
+    private static int bruteForce(int[] palette, int rgb) {
+        int best = 0;
+        long bestDistance = Long.MAX_VALUE;
+        for (int i = 0; i < palette.length; i++) {
+            long dr = ((palette[i] >>> 16) & 0xFF) - ((rgb >>> 16) & 0xFF);
+            long dg = ((palette[i] >>> 8) & 0xFF) - ((rgb >>> 8) & 0xFF);
+            long db = (palette[i] & 0xFF) - (rgb & 0xFF);
+            if (dr * dr + dg * dg + db * db < bestDistance) {
+                bestDistance = dr * dr + dg * dg + db * db;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testScalarAndBestKernelsMatchBruteForce() {
+        Random random = new Random(31);
+        for (int size : new int[]{1, 7, 15, 16, 17, 64, 201, 256}) {
+            int[] palette = new int[size];
+            for (int i = 0; i < size; i++) {      // грубая сетка - много совпадений и равных расстояний
+                palette[i] = random.nextInt(8) * 0x240000 + random.nextInt(8) * 0x2400 + random.nextInt(8) * 0x24;
+            }
+            ScanKernel scalar = new ScanKernel(palette);
+            ScanKernel best = ScanKernel.create(palette);
+            for (int i = 0; i < 5_000; i++) {
+                int rgb = random.nextInt(1 << 24);
+                int mustBe = bruteForce(palette, rgb);
+                assertEquals(mustBe, scalar.nearest(rgb >>> 16, (rgb >>> 8) & 0xFF, rgb & 0xFF));
+                assertEquals(mustBe, best.nearest(rgb >>> 16, (rgb >>> 8) & 0xFF, rgb & 0xFF));
+            }
+        }
+    }
+
+    @Test
+    public void testKernelSelection() {
+        boolean vectorAvailable = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        ScanKernel kernel = ScanKernel.create(new int[]{0xFF0000, 0x00FF00});
+        assertEquals(vectorAvailable ? "VectorScanKernel" : "ScanKernel", kernel.getClass().getSimpleName());
+        assertEquals(vectorAvailable, ScanKernel.forPalette(new int[ScanKernel.MAX_PALETTE_SIZE]) != null);
+        assertNull(ScanKernel.forPalette(new int[ScanKernel.MAX_PALETTE_SIZE + 1]));   // большие палитры - по дереву
+        TableOfColor table = new TableOfColor(new Locale("ru"));
+        for (int rgb = 0; rgb < 1 << 24; rgb += 997) {
+            assertEquals(table.findNamedColorIndexByFullScan(rgb), table.findNamedColorIndex(rgb));
+        }
+        assertTrue(table.getPaletteSize() <= ScanKernel.MAX_PALETTE_SIZE);
+    }
+}
@@ -4,13 +4,23 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
 
 public class TableOfColorTest {
    String ymlTest = "en.yml";
@@ -49,6 +59,178 @@ public class TableOfColorTest {
         assertEquals(mustBe, really);
     }
 
+    @Test
+    public void testDenseLookupIsExact() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        TableOfColor dense = new TableOfColor(new Locale("ru"), true);
+        Method method = dense.getClass().getDeclaredMethod("extractYml", String.class);
+        method.setAccessible(true);
+        List<ColorPoint> colors = (List<ColorPoint>) method.invoke(dense, "ru.yml");
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            ColorPoint target = new ColorPoint(ColorPoint.rgbToHex(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            double mustBe = colors.stream().mapToDouble(p -> ColorPoint.calculateDistance(p, target)).min().orElseThrow();
+            String name = dense.findNamedColorFromRGB(target.getRValue(), target.getGValue(), target.getBValue());
+            ColorPoint really = colors.stream().filter(p -> p.getColorName().equals(name)).findFirst().orElseThrow();
+            assertEquals(mustBe, ColorPoint.calculateDistance(really, target));
+        }
+        assertTrue(dense.isDenseLookup());
+        assertEquals(256L * 256 * 256 * 2, TableOfColor.DENSE_TABLE_BYTES);
+    }
+
+    @Test
+    public void testFindNamedColorIndex() {
+        int index = table.findNamedColorIndex(0xab67fa);
+        assertEquals("MediumPurple", table.nameOf(index));
+        assertEquals(index, table.findNamedColorIndex(0xab, 0x67, 0xfa));
+        assertEquals(0x9370DB, table.rgbOf(index));
+        for (int i = 0; i < table.getPaletteSize(); i++) {
+            assertEquals(i, table.findNamedColorIndex(table.rgbOf(i)));  // именованный цвет ближе всех к самому себе
+        }
+    }
+
+    @Test
+    public void testComponentsOutOfRange() {
+        int[][] wrong = {{0, 300, 0}, {0, 0, -1}, {256, 0, 0}};
+        for (int[] rgb : wrong) {
+            try {
+                table.findNamedColorIndex(rgb[0], rgb[1], rgb[2]);
+                fail("координата вне 0..255 не должна превращаться в другой цвет");
+            } catch (IllegalArgumentException ex) {
+                // ожидаемо
+            }
+        }
+        assertEquals(table.findNamedColorIndex(0xFFFFFF), table.findNamedColorIndex(255, 255, 255));
+    }
+
+    @Test
+    public void testFindNamedColorIndexDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int checksum = 0;
+        for (int rgb = 0; rgb < 200_000; rgb++) {        // прогрев, чтобы JIT успел скомпилировать горячий путь
+            checksum += table.findNamedColorIndex(rgb * 83);
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int rgb = 0; rgb < 1_000_000; rgb++) {
+            checksum += table.findNamedColorIndex(rgb * 17);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertTrue("выделено " + allocated + " байт", allocated < 1024);  // при выделении на каждый вызов были бы мегабайты
+        assertTrue(checksum >= 0);
+    }
+
+    @Test
+    public void testSharedTableUnderConcurrency() throws InterruptedException, ExecutionException {
+        TableOfColor shared = new TableOfColor(new Locale("ru"));
+        int[] codes = new Random(7).ints(20_000, 0, 1 << 24).toArray();
+        String[] mustBe = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {       // ответы однопоточного поиска
+            mustBe[i] = shared.findNamedColorFromHex(String.format("%06x", codes[i]));
+        }
+        int threadCount = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int shift = t * 1_237;               // каждый поток идёт по кодам со своего места
+            results.add(pool.submit(() -> {
+                start.await();
+                int mismatches = 0;
+                for (int i = 0; i < codes.length; i++) {
+                    int k = (i + shift) % codes.length;
+                    String hex = String.format("%06x", codes[k]);
+                    if (!shared.findNamedColorFromHex(hex).equals(mustBe[k])) {
+                        mismatches++;
+                    }
+                }
+                return mismatches;
+            }));
+        }
+        start.countDown();
+        for (Future<Integer> result : results) {
+            assertEquals(Integer.valueOf(0), result.get());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testBatchLookupMatchesSingleLookups() {
+        Random random = new Random(3);
+        int[] pixels = new int[300_000];
+        for (int i = 0; i < pixels.length; ) {       // картинка из серий одинаковых пикселей с разной прозрачностью
+            int rgb = random.nextInt(1 << 24);
+            for (int run = random.nextInt(20); run >= 0 && i < pixels.length; run--) {
+                pixels[i++] = (random.nextInt(256) << 24) | rgb;
+            }
+        }
+        int[] indexes = new int[pixels.length];
+        short[] shortIndexes = new short[pixels.length];
+        table.findNamedColorIndexes(pixels, indexes);
+        table.findNamedColorIndexes(pixels, shortIndexes);
+        long[] counts = table.countNamedColors(pixels);
+        long[] mustBeCounts = new long[table.getPaletteSize()];
+        for (int i = 0; i < pixels.length; i++) {
+            int mustBe = table.findNamedColorIndex(pixels[i] & 0xFFFFFF);
+            assertEquals(mustBe, indexes[i]);
+            assertEquals(mustBe, shortIndexes[i] & 0xFFFF);
+            mustBeCounts[mustBe]++;
+        }
+        assertTrue(Arrays.equals(mustBeCounts, counts));
+    }
+
+    @Test
+    public void testCachedLookup() {
+        TableOfColor cached = new TableOfColor(new Locale("en"), new TableSettings().setCacheCapacity(64));
+        assertEquals("MediumPurple", cached.findNamedColorFromHex("ab67fa"));
+        assertEquals("MediumPurple", cached.findNamedColorFromHex("#AB67FA"));   // тот же ключ - попадание
+        assertEquals("MediumPurple", cached.findNamedColorFromRGB(0xab, 0x67, 0xfa));
+        assertEquals(2, cached.getCacheHits());
+        assertEquals(1, cached.getCacheMisses());
+        Random random = new Random(5);
+        for (int i = 0; i < 10_000; i++) {        // кэш маленький, так что вытеснений будет много
+            int rgb = random.nextInt(1 << 10) * 997;
+            assertEquals(table.findNamedColorIndex(rgb), cached.findNamedColorIndex(rgb));
+        }
+        assertTrue(cached.getCacheEvictions() > 0);
+        assertTrue(cached.getCacheHits() > 0);
+        assertEquals(10_003, cached.getCacheHits() + cached.getCacheMisses());
+    }
+
+    @Test
+    public void testTreeSettingsAndAutoTune() {
+        Random random = new Random(5);
+        List<ColorPoint> palette = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            palette.add(new ColorPoint("color" + i, String.format("%06x", random.nextInt(1 << 24))));
+        }
+        TableOfColor configured = new TableOfColor(palette, new TableSettings().setMetric(ColorMetric.REDMEAN)
+                .setLeafCapacity(7).setSplitPolicy(SplitPolicy.SURFACE_AREA));
+        assertEquals(7, configured.getLeafCapacity());
+        assertEquals(SplitPolicy.SURFACE_AREA, configured.getSplitPolicy());
+        for (ColorMetric metric : new ColorMetric[]{ColorMetric.EUCLIDEAN_RGB, ColorMetric.CIEDE2000}) {
+            TableOfColor tuned = new TableOfColor(palette, new TableSettings().setMetric(metric).setAutoTune(true));
+            assertTrue(TreeTuner.LEAF_CAPACITIES.contains(tuned.getLeafCapacity()));
+            TableOfColor grown = tuned.withColorAdded(new ColorPoint("extra", "123456"));   // подобранное устройство сохраняется
+            assertEquals(tuned.getLeafCapacity(), grown.getLeafCapacity());
+            assertEquals(tuned.getSplitPolicy(), grown.getSplitPolicy());
+            for (int i = 0; i < 500; i++) {
+                int rgb = random.nextInt(1 << 24);
+                assertEquals(configured.findNamedColorIndexByFullScan(rgb), configured.findNamedColorIndex(rgb));
+                assertEquals(grown.findNamedColorIndexByFullScan(rgb), grown.findNamedColorIndex(rgb));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLeafCapacity() {
+        new TableSettings().setLeafCapacity(0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testMalformedHexCode() {
+        table.findNamedColorFromHex("#ab67f");
+    }
+
     @After
     public void tearDown() {
 
@@ -0,0 +1,73 @@
+package ru.folko85.tableofcolor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class TableRegistryTest {
+
+    @Test
+    public void testSameTableForAllCallers() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<TableOfColor>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return TableOfColor.forLocale(new Locale("ru"));
+                }));
+            }
+            start.countDown();
+            TableOfColor first = results.get(0).get(30, TimeUnit.SECONDS);
+            for (Future<TableOfColor> result : results) {
+                assertSame(first, result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertSame(TableOfColor.forLocale(new Locale("ru")), TableOfColor.forLocale(Locale.forLanguageTag("ru-RU")));
+    }
+
+    @Test
+    public void testPreloadBundledLocales() {
+        TableOfColor.preloadBundledLocales().join();
+        for (String language : TableRegistry.BUNDLED_LANGUAGES) {
+            TableOfColor warm = TableOfColor.warmUp(new Locale(language)).join();
+            assertSame(warm, TableOfColor.forLocale(new Locale(language)));
+        }
+        assertEquals("MediumPurple", TableOfColor.forLocale(new Locale("en")).findNamedColorFromHex("ab67fa"));
+    }
+
+    @Test
+    public void testMissingLocaleIsNotCached() {
+        for (int attempt = 0; attempt < 2; attempt++) {       // неудача не запоминается, второй раз снова ошибка
+            try {
+                TableOfColor.forLocale(new Locale("xx"));
+                fail("ожидалась ошибка для языка без палитры");
+            } catch (IllegalArgumentException ex) {
+                assertTrue(ex.getMessage().contains("xx.yml"));
+            }
+        }
+        try {
+            TableOfColor.warmUp(new Locale("xx")).join();
+            fail("ожидалась ошибка для языка без палитры");
+        } catch (CompletionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+    }
+}
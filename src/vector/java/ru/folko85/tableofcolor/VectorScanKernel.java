@@ -0,0 +1,52 @@
+package ru.folko85.tableofcolor;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Вспомогательный класс библиотеки - перебор палитры на Vector API (JDK 17+, модуль jdk.incubator.vector).
+ * Делает то же, что и {@link ScanKernel}, но ширина вектора выбирается под процессор явно,
+ * а не на усмотрение JIT. Собирается только в профиле vector и загружается из {@link ScanKernel#create(int[])}
+ *
+ * @author Othernik aka Folko85
+ * @version 1.0.6
+ */
+
+final class VectorScanKernel extends ScanKernel {
+    /** Самая широкая форма вектора int на этом процессоре: 4, 8 или 16 чисел, длина массивов кратна любой из них */
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    VectorScanKernel(int[] paletteRgb) {
+        super(paletteRgb);
+    }
+
+    @Override
+    int nearest(int r, int g, int b) {
+        IntVector vr = IntVector.broadcast(SPECIES, r);
+        IntVector vg = IntVector.broadcast(SPECIES, g);
+        IntVector vb = IntVector.broadcast(SPECIES, b);
+        IntVector min = IntVector.broadcast(SPECIES, Integer.MAX_VALUE);
+        int step = SPECIES.length();
+        for (int i = 0; i < rs.length; i += step) {        // длина массивов кратна ширине вектора
+            min = min.min(distances(i, vr, vg, vb));
+        }
+        int best = min.reduceLanes(VectorOperators.MIN);
+        for (int i = 0; ; i += step) {
+            int lane = distances(i, vr, vg, vb).eq(best).firstTrue();
+            if (lane < step) {
+                return i + lane;
+            }
+        }
+    }
+
+    /**
+     * Квадраты расстояний до цветов палитры с i-го по i + ширина вектора
+     */
+    private IntVector distances(int i, IntVector vr, IntVector vg, IntVector vb) {
+        IntVector dr = IntVector.fromArray(SPECIES, rs, i).sub(vr);
+        IntVector dg = IntVector.fromArray(SPECIES, gs, i).sub(vg);
+        IntVector db = IntVector.fromArray(SPECIES, bs, i).sub(vb);
+        return dr.mul(dr).add(dg.mul(dg)).add(db.mul(db));
+    }
+}